@@ -1,4 +1,5 @@
 import java.awt.image.BufferedImage;
+import java.io.File;
 
 /**
  * Utility class for calculating areas of various geometric shapes and samosa regions.
@@ -23,6 +24,53 @@ public class AreaCalculator {
         return 0.5 * base * height;
     }
     
+    /**
+     * Calculates the area of a triangle from its three vertices using the cross product
+     * of two edges, so no base or height has to be measured.
+     * 
+     * @param x1 The x coordinate of the first vertex
+     * @param y1 The y coordinate of the first vertex
+     * @param x2 The x coordinate of the second vertex
+     * @param y2 The y coordinate of the second vertex
+     * @param x3 The x coordinate of the third vertex
+     * @param y3 The y coordinate of the third vertex
+     * @return The area of the triangle, or -1 if the vertices are collinear or not finite
+     */
+    public static double calculateTriangleArea(double x1, double y1, double x2, double y2, double x3, double y3) {
+        double area = 0.5 * Math.abs((x2 - x1) * (y3 - y1) - (x3 - x1) * (y2 - y1));
+        
+        // Collinear vertices enclose nothing; NaN and infinity fail this check as well
+        if (!(area > 0) || Double.isInfinite(area)) {
+            return -1;
+        }
+        
+        return area;
+    }
+    
+    /**
+     * Calculates the area of a simple polygon using the shoelace formula.
+     * 
+     * @param xs The x coordinates of the vertices, in order around the polygon
+     * @param ys The y coordinates of the vertices, in the same order
+     * @param vertexCount The number of vertices to use from the arrays
+     * @return The area of the polygon, or -1 if the input is invalid or the polygon encloses nothing
+     */
+    public static double calculatePolygonArea(int[] xs, int[] ys, int vertexCount) {
+        if (xs == null || ys == null || vertexCount < 3 || vertexCount > xs.length || vertexCount > ys.length) {
+            return -1;
+        }
+        
+        long twiceArea = 0;
+        for (int i = 0, j = vertexCount - 1; i < vertexCount; j = i++) {
+            twiceArea += (long) xs[j] * ys[i] - (long) xs[i] * ys[j];
+        }
+        
+        if (twiceArea == 0) {
+            return -1;
+        }
+        return Math.abs(twiceArea) / 2.0;
+    }
+    
     /**
      * Calculates the area of a rectangle.
      * 
@@ -106,6 +154,28 @@ public class AreaCalculator {
         }
     }
     
+    /**
+     * Calculates the samosa area in pixels from an encoded image file.
+     * Results are cached by file contents and classifier profile, so a photo that was
+     * analyzed before is neither decoded nor classified again.
+     * 
+     * @param imageFile The image file to analyze
+     * @return The number of samosa pixels found, or -1 if the file is null or cannot be read or decoded
+     */
+    public static int calculateSamosaArea(File imageFile) {
+        if (imageFile == null) {
+            return -1;
+        }
+        
+        try {
+            return SamosaResultCache.getShared().analyze(imageFile, SamosaColorLut.getDefault(),
+                                                         ImageProcessor.DEFAULT_PARALLELISM).getSamosaPixelCount();
+        } catch (Exception e) {
+            System.err.println("Error calculating samosa area: " + e.getMessage());
+            return -1;
+        }
+    }
+    
     /**
      * Calculates the percentage of samosa coverage in an image.
      * 
@@ -118,20 +188,36 @@ public class AreaCalculator {
         }
         
         try {
-            int totalPixels = image.getWidth() * image.getHeight();
+            long totalPixels = (long) image.getWidth() * image.getHeight();
             int samosaPixels = calculateSamosaArea(image);
             
             if (samosaPixels == -1) {
                 return -1;
             }
             
-            return (double) samosaPixels / totalPixels * 100.0;
+            return calculateSamosaCoveragePercentage(samosaPixels, totalPixels);
         } catch (Exception e) {
             System.err.println("Error calculating samosa coverage: " + e.getMessage());
             return -1;
         }
     }
     
+    /**
+     * Calculates the percentage of samosa coverage from an already known pixel count.
+     * Use this when the samosa pixels have been counted elsewhere to avoid rescanning the image.
+     * 
+     * @param samosaPixels The number of samosa pixels
+     * @param totalPixels The total number of pixels in the image
+     * @return The percentage of samosa pixels (0.0 to 100.0), or -1 if the inputs are invalid
+     */
+    public static double calculateSamosaCoveragePercentage(long samosaPixels, long totalPixels) {
+        if (samosaPixels < 0 || totalPixels <= 0 || samosaPixels > totalPixels) {
+            return -1;
+        }
+        
+        return (double) samosaPixels / totalPixels * 100.0;
+    }
+    
     /**
      * Calculates the real-world area of samosa pixels using calibration data.
      * 
@@ -39,7 +39,7 @@ public class ImageLoader {
             
             try {
                 // Load the image using ImageIO
-                BufferedImage image = ImageIO.read(selectedFile);
+                BufferedImage image = readImage(selectedFile);
                 
                 if (image != null) {
                     System.out.println("Successfully loaded image: " + selectedFile.getName());
@@ -67,21 +67,27 @@ public class ImageLoader {
     }
     
     /**
-     * Loads an image from a specific file path.
+     * Loads an image from a specific file path. Every attempt is recorded as a
+     * {@link SamosaImageLoadEvent}, including files that are missing or fail to decode.
      * 
      * @param filePath The path to the image file
      * @return The loaded image as a BufferedImage, or null if loading failed
      */
     public static BufferedImage loadImageFromPath(String filePath) {
+        SamosaImageLoadEvent event = new SamosaImageLoadEvent();
+        event.begin();
+        File file = null;
+        BufferedImage image = null;
         try {
-            File file = new File(filePath);
+            file = new File(filePath);
             if (!file.exists()) {
                 System.err.println("File does not exist: " + filePath);
                 return null;
             }
             
-            BufferedImage image = ImageIO.read(file);
+            image = readImage(file);
             if (image != null) {
+                SamosaImageIds.register(image, file.getName());
                 System.out.println("Successfully loaded image from path: " + filePath);
                 return image;
             } else {
@@ -91,9 +97,39 @@ public class ImageLoader {
         } catch (Exception e) {
             System.err.println("Error loading image from path: " + e.getMessage());
             return null;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                if (file != null) {
+                    event.fileName = file.getName();
+                    event.fileSize = file.length();
+                }
+                if (image != null) {
+                    event.loaded = true;
+                    event.imageId = SamosaImageIds.get(image).id;
+                    event.width = image.getWidth();
+                    event.height = image.getHeight();
+                    event.imageType = SamosaAnalysisEvent.typeName(image.getType());
+                }
+                event.commit();
+            }
         }
     }
     
+    /**
+     * Decodes an image file, recording the decode time and bytes read in {@link SamosaMetrics}.
+     * 
+     * @param file The image file
+     * @return The decoded image, or null if no reader supports the format
+     * @throws IOException if the file cannot be read
+     */
+    private static BufferedImage readImage(File file) throws IOException {
+        SamosaMetrics.Sample sample = SamosaMetrics.start();
+        BufferedImage image = ImageIO.read(file);
+        SamosaMetrics.stop(sample, SamosaMetrics.STAGE_DECODE, file.length());
+        return image;
+    }
+    
     /**
      * Main method for testing the ImageLoader functionality.
      * 
@@ -0,0 +1,97 @@
+import java.awt.image.ColorModel;
+
+/**
+ * Immutable summary of an image file's header: dimensions, format, color model and frame count.
+ * Produced by {@link ImageMetadataReader} without decoding any pixel data.
+ */
+public final class ImageMetadata {
+    
+    private final int width;
+    private final int height;
+    private final String formatName;
+    private final ColorModel colorModel;
+    private final int frameCount;
+    
+    /**
+     * Creates a new metadata record.
+     * 
+     * @param width The width of the first frame in pixels
+     * @param height The height of the first frame in pixels
+     * @param formatName The image format name reported by the reader (for example "png")
+     * @param colorModel The color model of the first frame, or null if the reader cannot tell
+     * @param frameCount The number of frames, or -1 if it is unknown without scanning the file
+     */
+    ImageMetadata(int width, int height, String formatName, ColorModel colorModel, int frameCount) {
+        this.width = width;
+        this.height = height;
+        this.formatName = formatName;
+        this.colorModel = colorModel;
+        this.frameCount = frameCount;
+    }
+    
+    /**
+     * Gets the width of the first frame.
+     * 
+     * @return The width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+    
+    /**
+     * Gets the height of the first frame.
+     * 
+     * @return The height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+    
+    /**
+     * Gets the total pixel area of the first frame.
+     * 
+     * @return The total number of pixels (width * height)
+     */
+    public long getPixelArea() {
+        return (long) width * height;
+    }
+    
+    /**
+     * Gets the image format name.
+     * 
+     * @return The format name, for example "png" or "JPEG"
+     */
+    public String getFormatName() {
+        return formatName;
+    }
+    
+    /**
+     * Gets the color model of the first frame.
+     * 
+     * @return The color model, or null if the reader cannot tell without decoding
+     */
+    public ColorModel getColorModel() {
+        return colorModel;
+    }
+    
+    /**
+     * Gets the number of frames in the file.
+     * 
+     * @return The frame count, or -1 if it is unknown without scanning the whole file
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(width).append(" x ").append(height).append(" pixels, ").append(formatName);
+        if (colorModel != null) {
+            text.append(", ").append(colorModel.getNumComponents()).append(" components");
+            text.append(", ").append(colorModel.getPixelSize()).append(" bits/pixel");
+        }
+        text.append(", frames: ").append(frameCount < 0 ? "unknown" : String.valueOf(frameCount));
+        return text.toString();
+    }
+}
\ No newline at end of file
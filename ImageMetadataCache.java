@@ -0,0 +1,163 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small least-recently-used cache of image header metadata.
+ * Entries are keyed by the file's absolute path, size and last-modified time, so an
+ * image that is rewritten in place is read again instead of returning stale dimensions.
+ */
+public class ImageMetadataCache {
+    
+    /** Number of entries kept by the shared cache. */
+    public static final int DEFAULT_CAPACITY = 4096;
+    
+    private static final ImageMetadataCache SHARED = new ImageMetadataCache(DEFAULT_CAPACITY);
+    
+    private final int capacity;
+    private final LinkedHashMap<CacheKey, ImageMetadata> entries;
+    private long hits;
+    private long misses;
+    
+    /**
+     * Creates a new cache.
+     * 
+     * @param capacity The maximum number of entries to keep
+     * @throws IllegalArgumentException if the capacity is less than 1
+     */
+    public ImageMetadataCache(final int capacity) throws IllegalArgumentException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1: " + capacity);
+        }
+        
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<CacheKey, ImageMetadata>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, ImageMetadata> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+    
+    /**
+     * Gets the cache shared by {@link ImageProcessor}.
+     * 
+     * @return The shared cache
+     */
+    public static ImageMetadataCache getShared() {
+        return SHARED;
+    }
+    
+    /**
+     * Gets the metadata of an image file, reading its header only on a cache miss.
+     * 
+     * @param imageFile The image file to inspect
+     * @return The image metadata
+     * @throws IllegalArgumentException if the imageFile parameter is null
+     * @throws IOException if the file cannot be read or no reader supports its format
+     */
+    public ImageMetadata get(File imageFile) throws IllegalArgumentException, IOException {
+        if (imageFile == null) {
+            throw new IllegalArgumentException("Image file cannot be null");
+        }
+        
+        CacheKey key = new CacheKey(imageFile.getAbsolutePath(), imageFile.length(), imageFile.lastModified());
+        synchronized (this) {
+            ImageMetadata cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        
+        // Read outside the lock so slow disks do not serialize unrelated lookups
+        ImageMetadata metadata = ImageMetadataReader.read(imageFile);
+        synchronized (this) {
+            entries.put(key, metadata);
+        }
+        return metadata;
+    }
+    
+    /**
+     * Removes all entries from the cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+    
+    /**
+     * Gets the number of entries currently cached.
+     * 
+     * @return The entry count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Gets the maximum number of entries kept.
+     * 
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * Gets the number of lookups answered from the cache.
+     * 
+     * @return The hit count
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    /**
+     * Gets the number of lookups that had to read the file header.
+     * 
+     * @return The miss count
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    /**
+     * Identifies one version of a file on disk.
+     */
+    private static final class CacheKey {
+        
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        
+        CacheKey(String path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey key = (CacheKey) other;
+            return size == key.size && lastModified == key.lastModified && path.equals(key.path);
+        }
+        
+        @Override
+        public int hashCode() {
+            int result = path.hashCode();
+            result = 31 * result + Long.hashCode(size);
+            result = 31 * result + Long.hashCode(lastModified);
+            return result;
+        }
+    }
+}
\ No newline at end of file
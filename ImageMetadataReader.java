@@ -0,0 +1,138 @@
+import java.awt.image.ColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Reads image metadata from the file header through an ImageReader, without decoding pixels.
+ * This is orders of magnitude cheaper than ImageIO.read when only dimensions are needed.
+ */
+public class ImageMetadataReader {
+    
+    /**
+     * Reads the header metadata of an image file. The frame count is only reported when
+     * the format stores it in the header; otherwise it is -1.
+     * 
+     * @param imageFile The image file to inspect
+     * @return The image metadata
+     * @throws IllegalArgumentException if the imageFile parameter is null
+     * @throws IOException if the file cannot be read or no reader supports its format
+     */
+    public static ImageMetadata read(File imageFile) throws IllegalArgumentException, IOException {
+        return read(imageFile, false);
+    }
+    
+    /**
+     * Reads the header metadata of an image file.
+     * 
+     * @param imageFile The image file to inspect
+     * @param countFrames true to scan the file for frames when the header does not record the count
+     *                    (still without decoding pixels), false to report -1 in that case
+     * @return The image metadata
+     * @throws IllegalArgumentException if the imageFile parameter is null
+     * @throws IOException if the file cannot be read or no reader supports its format
+     */
+    public static ImageMetadata read(File imageFile, boolean countFrames) throws IllegalArgumentException, IOException {
+        if (imageFile == null) {
+            throw new IllegalArgumentException("Image file cannot be null");
+        }
+        
+        ImageInputStream input = ImageIO.createImageInputStream(imageFile);
+        if (input == null) {
+            throw new IOException("Could not open image file: " + imageFile.getPath());
+        }
+        return read(input, "image file: " + imageFile.getPath(), countFrames);
+    }
+    
+    /**
+     * Reads the header metadata of an encoded image held in memory, such as an upload that
+     * must be checked for its pixel dimensions before it is decoded.
+     * 
+     * @param encodedImage The encoded image bytes
+     * @return The image metadata, with a frame count of -1 unless the header records it
+     * @throws IllegalArgumentException if the encodedImage parameter is null
+     * @throws IOException if no reader supports the format or the header is corrupted
+     */
+    public static ImageMetadata read(byte[] encodedImage) throws IllegalArgumentException, IOException {
+        if (encodedImage == null) {
+            throw new IllegalArgumentException("Encoded image cannot be null");
+        }
+        
+        ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(encodedImage));
+        if (input == null) {
+            throw new IOException("Could not open encoded image");
+        }
+        return read(input, "encoded image", false);
+    }
+    
+    /**
+     * Reads the header of the first image in a stream with the first reader that supports it,
+     * closing the stream afterwards.
+     */
+    private static ImageMetadata read(ImageInputStream input, String description, boolean countFrames) throws IOException {
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Could not read " + description + " (unsupported format or corrupted file)");
+            }
+            
+            ImageReader reader = readers.next();
+            try {
+                // Metadata is skipped; only the header fields below are parsed
+                reader.setInput(input, false, true);
+                
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                String formatName = reader.getFormatName();
+                ColorModel colorModel = readColorModel(reader);
+                int frameCount = reader.getNumImages(countFrames);
+                
+                return new ImageMetadata(width, height, formatName, colorModel, frameCount);
+            } finally {
+                reader.dispose();
+            }
+        } finally {
+            input.close();
+        }
+    }
+    
+    /**
+     * Gets the color model of the first frame from the reader's raw type, falling back to
+     * the first destination type it offers.
+     */
+    private static ColorModel readColorModel(ImageReader reader) throws IOException {
+        ImageTypeSpecifier rawType = reader.getRawImageType(0);
+        if (rawType != null) {
+            return rawType.getColorModel();
+        }
+        
+        Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+        if (types != null && types.hasNext()) {
+            return types.next().getColorModel();
+        }
+        return null;
+    }
+    
+    /**
+     * Main method for testing the ImageMetadataReader functionality.
+     * 
+     * @param args Paths of image files to inspect
+     */
+    public static void main(String[] args) {
+        System.out.println("ImageMetadataReader Test");
+        System.out.println("========================");
+        
+        for (String path : args) {
+            try {
+                System.out.println(path + ": " + read(new File(path), true));
+            } catch (Exception e) {
+                System.out.println(path + ": Error - " + e.getMessage());
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -1,8 +1,10 @@
 import java.awt.image.BufferedImage;
-import java.awt.Color;
 import java.io.File;
 import java.io.IOException;
-import javax.imageio.ImageIO;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 
 /**
  * Utility class for processing image files and extracting basic information.
@@ -10,8 +12,32 @@ import javax.imageio.ImageIO;
  */
 public class ImageProcessor {
     
+    /** Brown/orange colors typically have higher red and green values, lower blue. */
+    public static final SamosaColorRange BROWNISH_RANGE = new SamosaColorRange(100, 200, 50, 150, -1, 100);
+    
+    /** Golden brown colors of a well fried crust. */
+    public static final SamosaColorRange GOLDEN_BROWN_RANGE = new SamosaColorRange(150, 220, 100, 180, -1, 80);
+    
+    /** Darker brown colors of an over fried crust. */
+    public static final SamosaColorRange DARK_BROWN_RANGE = new SamosaColorRange(80, 140, 40, 100, -1, 60);
+    
+    /**
+     * The built-in color ranges used for samosa detection; a pixel matches if it lies in any of them.
+     * A {@link SamosaClassifierProfile} file can replace them per site.
+     */
+    public static final List<SamosaColorRange> DEFAULT_SAMOSA_RANGES = Collections.unmodifiableList(
+        Arrays.asList(BROWNISH_RANGE, GOLDEN_BROWN_RANGE, DARK_BROWN_RANGE));
+    
+    /** Default number of threads used for pixel scans: one per available processor. */
+    public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    
+    /** Approximate number of pixels classified between two progress reports. */
+    static final int PROGRESS_CHUNK_PIXELS = 1 << 21;
+    
     /**
      * Gets the pixel dimensions (width and height) of an image file.
+     * Only the image header is read, and results are cached, so calling getWidth, getHeight
+     * and getPixelArea for the same file reads the header once.
      * 
      * @param imageFile The image file to analyze
      * @return An int array containing [width, height] in pixels, or null if the file cannot be read
@@ -19,6 +45,26 @@ public class ImageProcessor {
      * @throws IOException if there is an error reading the image file
      */
     public static int[] getPixelDimensions(File imageFile) throws IllegalArgumentException, IOException {
+        ImageMetadata metadata = getImageMetadata(imageFile);
+        
+        // Return width and height as an array
+        int[] dimensions = new int[2];
+        dimensions[0] = metadata.getWidth();   // width
+        dimensions[1] = metadata.getHeight();  // height
+        
+        return dimensions;
+    }
+    
+    /**
+     * Gets the header metadata (dimensions, format, color model and frame count) of an image file
+     * without decoding its pixels. Results are cached by path, size and modification time.
+     * 
+     * @param imageFile The image file to analyze
+     * @return The image metadata
+     * @throws IllegalArgumentException if the imageFile parameter is null
+     * @throws IOException if there is an error reading the image file
+     */
+    public static ImageMetadata getImageMetadata(File imageFile) throws IllegalArgumentException, IOException {
         // Validate input parameter
         if (imageFile == null) {
             throw new IllegalArgumentException("Image file cannot be null");
@@ -40,21 +86,8 @@ public class ImageProcessor {
         }
         
         try {
-            // Load the image using ImageIO
-            BufferedImage image = ImageIO.read(imageFile);
-            
-            // Check if image was successfully loaded
-            if (image == null) {
-                throw new IOException("Could not read image file: " + imageFile.getPath() + 
-                                   " (unsupported format or corrupted file)");
-            }
-            
-            // Return width and height as an array
-            int[] dimensions = new int[2];
-            dimensions[0] = image.getWidth();   // width
-            dimensions[1] = image.getHeight();  // height
-            
-            return dimensions;
+            // Read only the image header; cached by path, size and modification time
+            return ImageMetadataCache.getShared().get(imageFile);
             
         } catch (IOException e) {
             // Re-throw IOException with more specific message
@@ -70,107 +103,256 @@ public class ImageProcessor {
     /**
      * Processes an image to detect samosa-like regions based on color analysis.
      * This is a simplified algorithm that looks for brown/orange colors typical of samosas.
+     * Large images are scanned in parallel using {@link #DEFAULT_PARALLELISM} threads.
      * 
      * @param image The image to process
      * @return A processed image with samosa regions highlighted, or null if processing fails
      */
     public static BufferedImage processForSamosaDetection(BufferedImage image) {
+        return processForSamosaDetection(image, DEFAULT_PARALLELISM);
+    }
+    
+    /**
+     * Processes an image to detect samosa-like regions, splitting the scan into row bands
+     * on a ForkJoinPool. Images below a size threshold are processed sequentially.
+     * 
+     * @param image The image to process
+     * @param parallelism The maximum number of threads to use; 1 forces a sequential scan
+     * @return A processed image with samosa regions highlighted, or null if processing fails
+     */
+    public static BufferedImage processForSamosaDetection(BufferedImage image, int parallelism) {
         if (image == null) {
             return null;
         }
         
         try {
-            int width = image.getWidth();
-            int height = image.getHeight();
+            SamosaMask mask = new SamosaMask(image.getWidth(), image.getHeight());
+            int samosaPixelCount = detectSamosaPixels(image, mask, SamosaColorLut.getDefault(), parallelism);
             
-            // Create a new image for the processed result
-            BufferedImage processedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            System.out.println("Samosa detection completed. Found " + samosaPixelCount + " samosa pixels.");
             
-            // Define color ranges for samosa detection (brown/orange colors)
-            int samosaPixelCount = 0;
+            // Highlight samosa pixels in red for visualization
+            return mask.createHighlightedImage(image);
             
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    Color pixelColor = new Color(image.getRGB(x, y));
-                    
-                    // Check if pixel color is in the samosa color range
-                    if (isSamosaColor(pixelColor)) {
-                        // Highlight samosa pixels in red for visualization
-                        processedImage.setRGB(x, y, Color.RED.getRGB());
-                        samosaPixelCount++;
-                    } else {
-                        // Keep original color for non-samosa pixels
-                        processedImage.setRGB(x, y, image.getRGB(x, y));
+        } catch (Exception e) {
+            System.err.println("Error processing image for samosa detection: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Detects samosa pixels in an image and returns them as a bit-packed mask.
+     * Unlike {@link #processForSamosaDetection(BufferedImage)} no full-size image copy is made;
+     * use {@link SamosaMask#createHighlightedImage(BufferedImage)} when a highlighted view is needed.
+     * 
+     * @param image The image to process
+     * @return The samosa mask, or null if the image is null
+     */
+    public static SamosaMask detectSamosaMask(BufferedImage image) {
+        return detectSamosaMask(image, DEFAULT_PARALLELISM);
+    }
+    
+    /**
+     * Detects samosa pixels in an image and returns them as a bit-packed mask, splitting
+     * the scan into row bands on a ForkJoinPool.
+     * 
+     * @param image The image to process
+     * @param parallelism The maximum number of threads to use; 1 forces a sequential scan
+     * @return The samosa mask, or null if the image is null
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public static SamosaMask detectSamosaMask(BufferedImage image, int parallelism) throws IllegalArgumentException {
+        if (image == null) {
+            return null;
+        }
+        
+        SamosaMask mask = new SamosaMask(image.getWidth(), image.getHeight());
+        detectSamosaPixels(image, mask, SamosaColorLut.getDefault(), parallelism);
+        return mask;
+    }
+    
+    /**
+     * Classifies every pixel of an image once, setting the bits of samosa pixels in an empty mask.
+     * 
+     * @param image The image to process
+     * @param mask The destination mask, the same size as the image
+     * @param lut The color lookup table to classify with
+     * @param parallelism The maximum number of threads to use; 1 forces a sequential scan
+     * @return The number of samosa pixels found
+     */
+    static int detectSamosaPixels(BufferedImage image, SamosaMask mask, SamosaColorLut lut, int parallelism) {
+        return detectSamosaPixels(image, mask, null, lut, parallelism);
+    }
+    
+    /**
+     * Classifies every pixel of an image once, setting the bits of samosa pixels in an empty mask
+     * and optionally building the mask's summed-area table in the same pass.
+     * 
+     * @param image The image to process
+     * @param mask The destination mask, the same size as the image
+     * @param integral An empty integral image the same size as the image, or null to skip it
+     * @param lut The color lookup table to classify with
+     * @param parallelism The maximum number of threads to use; 1 forces a sequential scan
+     * @return The number of samosa pixels found
+     */
+    static int detectSamosaPixels(BufferedImage image, SamosaMask mask, SamosaIntegralImage integral,
+                                  SamosaColorLut lut, int parallelism) {
+        return detectSamosaPixels(image, mask, integral, lut, parallelism, null);
+    }
+    
+    /**
+     * Classifies every pixel of an image once, setting the bits of samosa pixels in an empty mask.
+     * With a progress listener the rows are scanned in chunks of about {@link #PROGRESS_CHUNK_PIXELS}
+     * pixels, each still split across threads, and the listener is told about every finished chunk.
+     * Each scan, finished or cancelled, is recorded as a {@link SamosaAnalysisEvent} and in
+     * {@link SamosaMetrics}; a cancelled scan counts only the rows it classified.
+     * 
+     * @param image The image to process
+     * @param mask The destination mask, the same size as the image
+     * @param integral An empty integral image the same size as the image, or null to skip it
+     * @param lut The color lookup table to classify with
+     * @param parallelism The maximum number of threads to use; 1 forces a sequential scan
+     * @param listener Told about each finished chunk and able to cancel the scan, or null to scan in one go
+     * @return The number of samosa pixels found
+     * @throws CancellationException if the listener cancels the scan; the mask is then incomplete
+     */
+    static int detectSamosaPixels(BufferedImage image, final SamosaMask mask, final SamosaIntegralImage integral,
+                                  SamosaColorLut lut, int parallelism, SamosaAnalyzer.ProgressListener listener)
+            throws CancellationException {
+        SamosaAnalysisEvent event = new SamosaAnalysisEvent();
+        event.begin();
+        SamosaMetrics.Sample sample = SamosaMetrics.start();
+        final RgbRowReader reader = RgbRowReader.forImage(image);
+        final SamosaRowKernel kernel = SamosaRowKernel.forLut(lut);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int chunkRows = listener == null ? height : Math.max(1, PROGRESS_CHUNK_PIXELS / width);
+        
+        long samosaPixelCount = 0;
+        int rowsScanned = 0;
+        boolean finished = false;
+        try {
+            for (int chunkStart = 0; chunkStart < height; chunkStart += chunkRows) {
+                final int firstRow = chunkStart;
+                int chunkEnd = Math.min(height, chunkStart + chunkRows);
+                samosaPixelCount += SamosaParallelScan.scanRows(width, chunkEnd - chunkStart, parallelism, new SamosaParallelScan.BandScan() {
+                    @Override
+                    public long scan(int startRow, int endRow) {
+                        return SamosaPixelKernels.markSamosaPixels(reader, kernel, mask, integral, firstRow + startRow, firstRow + endRow);
                     }
+                });
+                rowsScanned = chunkEnd;
+                
+                if (listener != null && !listener.progress(chunkEnd, height, samosaPixelCount)) {
+                    throw new CancellationException("Samosa detection cancelled after " + chunkEnd + " of " + height + " rows");
                 }
             }
             
-            System.out.println("Samosa detection completed. Found " + samosaPixelCount + " samosa pixels.");
-            return processedImage;
-            
-        } catch (Exception e) {
-            System.err.println("Error processing image for samosa detection: " + e.getMessage());
-            return null;
+            if (integral != null) {
+                integral.sumColumns();
+            }
+            finished = true;
+        } finally {
+            // Cancelled scans are recorded too, with only the rows that were actually classified
+            SamosaMetrics.stop(sample, SamosaMetrics.STAGE_CLASSIFY, (long) width * rowsScanned);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = "detectSamosaPixels";
+                event.setImage(image);
+                event.samosaPixelCount = samosaPixelCount;
+                event.parallelism = parallelism;
+                event.cancelled = !finished;
+                event.commit();
+            }
         }
+        return (int) samosaPixelCount;
     }
     
     /**
      * Determines if a color is likely to be part of a samosa based on RGB values.
      * This is a simplified algorithm that looks for brown/orange color ranges.
      * 
-     * @param color The color to analyze
+     * @param red The red component (0-255)
+     * @param green The green component (0-255)
+     * @param blue The blue component (0-255)
      * @return true if the color is likely to be part of a samosa, false otherwise
      */
-    private static boolean isSamosaColor(Color color) {
-        int red = color.getRed();
-        int green = color.getGreen();
-        int blue = color.getBlue();
-        
-        // Define color ranges for samosa detection
-        // Brown/orange colors typically have higher red and green values, lower blue
-        
+    static boolean isSamosaColor(int red, int green, int blue) {
         // Check for brown/orange color ranges
-        boolean isBrownish = (red > 100 && red < 200) && 
-                           (green > 50 && green < 150) && 
-                           (blue < 100);
+        boolean isBrownish = BROWNISH_RANGE.contains(red, green, blue);
         
         // Check for golden brown ranges
-        boolean isGoldenBrown = (red > 150 && red < 220) && 
-                              (green > 100 && green < 180) && 
-                              (blue < 80);
+        boolean isGoldenBrown = GOLDEN_BROWN_RANGE.contains(red, green, blue);
         
         // Check for darker brown ranges
-        boolean isDarkBrown = (red > 80 && red < 140) && 
-                            (green > 40 && green < 100) && 
-                            (blue < 60);
+        boolean isDarkBrown = DARK_BROWN_RANGE.contains(red, green, blue);
         
         return isBrownish || isGoldenBrown || isDarkBrown;
     }
     
     /**
      * Calculates the area of samosa pixels in an image.
+     * Large images are scanned in parallel using {@link #DEFAULT_PARALLELISM} threads.
      * 
      * @param image The image to analyze
      * @return The number of samosa pixels found
      */
     public static int calculateSamosaPixelArea(BufferedImage image) {
+        return calculateSamosaPixelArea(image, DEFAULT_PARALLELISM);
+    }
+    
+    /**
+     * Calculates the area of samosa pixels in an image, splitting the scan into row bands
+     * on a ForkJoinPool. The count is identical to a sequential scan.
+     * 
+     * @param image The image to analyze
+     * @param parallelism The maximum number of threads to use; 1 forces a sequential scan
+     * @return The number of samosa pixels found
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public static int calculateSamosaPixelArea(BufferedImage image, int parallelism) throws IllegalArgumentException {
+        return calculateSamosaPixelArea(image, SamosaColorLut.getDefault(), parallelism);
+    }
+    
+    /**
+     * Calculates the area of samosa pixels in an image using a specific color lookup table,
+     * such as one compiled from a {@link SamosaClassifierProfile}.
+     * 
+     * @param image The image to analyze
+     * @param lut The color lookup table to classify with
+     * @param parallelism The maximum number of threads to use; 1 forces a sequential scan
+     * @return The number of samosa pixels found
+     * @throws IllegalArgumentException if the lut parameter is null or parallelism is less than 1
+     */
+    public static int calculateSamosaPixelArea(BufferedImage image, SamosaColorLut lut, int parallelism) throws IllegalArgumentException {
         if (image == null) {
             return 0;
         }
+        if (lut == null) {
+            throw new IllegalArgumentException("Color lookup table cannot be null");
+        }
         
-        int width = image.getWidth();
-        int height = image.getHeight();
-        int samosaPixelCount = 0;
-        
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                Color pixelColor = new Color(image.getRGB(x, y));
-                if (isSamosaColor(pixelColor)) {
-                    samosaPixelCount++;
-                }
+        SamosaAnalysisEvent event = new SamosaAnalysisEvent();
+        event.begin();
+        SamosaMetrics.Sample sample = SamosaMetrics.start();
+        final RgbRowReader reader = RgbRowReader.forImage(image);
+        final SamosaRowKernel kernel = SamosaRowKernel.forLut(lut);
+        int samosaPixelCount = (int) SamosaParallelScan.scanRows(image.getWidth(), image.getHeight(), parallelism, new SamosaParallelScan.BandScan() {
+            @Override
+            public long scan(int startRow, int endRow) {
+                return SamosaPixelKernels.countSamosaPixels(reader, kernel, startRow, endRow);
             }
-        }
+        });
+        SamosaMetrics.stop(sample, SamosaMetrics.STAGE_CLASSIFY, (long) image.getWidth() * image.getHeight());
         
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = "calculateSamosaPixelArea";
+            event.setImage(image);
+            event.samosaPixelCount = samosaPixelCount;
+            event.parallelism = parallelism;
+            event.commit();
+        }
         return samosaPixelCount;
     }
     
@@ -0,0 +1,44 @@
+/**
+ * Scalar row kernel that classifies each pixel with one lookup-table probe.
+ */
+final class LutRowKernel implements SamosaRowKernel {
+    
+    private final SamosaColorLut lut;
+    
+    /**
+     * Creates a scalar kernel.
+     * 
+     * @param lut The color lookup table to classify with
+     */
+    LutRowKernel(SamosaColorLut lut) {
+        this.lut = lut;
+    }
+    
+    @Override
+    public int countRow(int[] rgbRow, int width) {
+        int samosaPixelCount = 0;
+        for (int x = 0; x < width; x++) {
+            if (lut.matches(rgbRow[x])) {
+                samosaPixelCount++;
+            }
+        }
+        return samosaPixelCount;
+    }
+    
+    @Override
+    public int markRow(int[] rgbRow, int width, long[] maskWords, int wordOffset) {
+        int samosaPixelCount = 0;
+        for (int start = 0; start < width; start += 64) {
+            int end = Math.min(width, start + 64);
+            long word = 0;
+            for (int x = start; x < end; x++) {
+                if (lut.matches(rgbRow[x])) {
+                    word |= 1L << x;
+                }
+            }
+            maskWords[wordOffset + (start >>> 6)] |= word;
+            samosaPixelCount += Long.bitCount(word);
+        }
+        return samosaPixelCount;
+    }
+}
\ No newline at end of file
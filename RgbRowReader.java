@@ -0,0 +1,234 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Reads image rows as packed 0xRRGGBB values straight from the underlying data buffer.
+ * Specialized paths exist for TYPE_INT_RGB, TYPE_INT_ARGB, TYPE_3BYTE_BGR, TYPE_4BYTE_ABGR
+ * and TYPE_BYTE_GRAY; every other layout falls back to the row variant of getRGB.
+ * Reading a row allocates nothing, so the reader can be used inside hot pixel loops.
+ */
+final class RgbRowReader {
+    
+    private static final int LAYOUT_GENERIC = 0;
+    private static final int LAYOUT_INT_PACKED = 1;
+    private static final int LAYOUT_BYTE_INTERLEAVED = 2;
+    private static final int LAYOUT_BYTE_GRAY = 3;
+    
+    private final BufferedImage image;
+    private final int width;
+    private final int layout;
+    
+    private int[] intData;
+    private byte[] byteData;
+    private int baseOffset;
+    private int scanlineStride;
+    private int pixelStride;
+    private int redOffset;
+    private int greenOffset;
+    private int blueOffset;
+    private int[] grayToRgb;
+    
+    private RgbRowReader(BufferedImage image) {
+        this.image = image;
+        this.width = image.getWidth();
+        this.layout = detectLayout();
+    }
+    
+    /**
+     * Creates a row reader for an image, selecting the fastest access path for its type.
+     * 
+     * @param image The image to read
+     * @return A row reader for the image
+     * @throws IllegalArgumentException if the image parameter is null
+     */
+    static RgbRowReader forImage(BufferedImage image) throws IllegalArgumentException {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        
+        return new RgbRowReader(image);
+    }
+    
+    /**
+     * Gets the width of the rows produced by this reader.
+     * 
+     * @return The image width in pixels
+     */
+    int getWidth() {
+        return width;
+    }
+    
+    /**
+     * Gets the number of rows available from this reader.
+     * 
+     * @return The image height in pixels
+     */
+    int getHeight() {
+        return image.getHeight();
+    }
+    
+    /**
+     * Checks whether this reader bypasses getRGB for its image.
+     * 
+     * @return true if rows are read directly from the data buffer, false for the generic fallback
+     */
+    boolean isDirect() {
+        return layout != LAYOUT_GENERIC;
+    }
+    
+    /**
+     * Reads one image row into a caller supplied buffer as packed 0xRRGGBB values.
+     * Alpha is dropped, matching how the samosa color checks ignore it.
+     * 
+     * @param y The row to read
+     * @param rgbRow The destination buffer, at least as long as the image width
+     */
+    void readRow(int y, int[] rgbRow) {
+        readRow(y, 0, width, rgbRow);
+    }
+    
+    /**
+     * Reads part of an image row into the start of a caller supplied buffer as packed 0xRRGGBB values.
+     * 
+     * @param y The row to read
+     * @param startX The first column to read
+     * @param count The number of pixels to read
+     * @param rgbRow The destination buffer, at least count long
+     */
+    void readRow(int y, int startX, int count, int[] rgbRow) {
+        switch (layout) {
+            case LAYOUT_INT_PACKED: {
+                int index = baseOffset + y * scanlineStride + startX;
+                for (int x = 0; x < count; x++) {
+                    rgbRow[x] = intData[index + x] & 0xFFFFFF;
+                }
+                break;
+            }
+            case LAYOUT_BYTE_INTERLEAVED: {
+                int index = baseOffset + y * scanlineStride + startX * pixelStride;
+                for (int x = 0; x < count; x++) {
+                    rgbRow[x] = ((byteData[index + redOffset] & 0xFF) << 16) |
+                                ((byteData[index + greenOffset] & 0xFF) << 8) |
+                                (byteData[index + blueOffset] & 0xFF);
+                    index += pixelStride;
+                }
+                break;
+            }
+            case LAYOUT_BYTE_GRAY: {
+                int index = baseOffset + y * scanlineStride + startX * pixelStride;
+                for (int x = 0; x < count; x++) {
+                    rgbRow[x] = grayToRgb[byteData[index] & 0xFF];
+                    index += pixelStride;
+                }
+                break;
+            }
+            default: {
+                image.getRGB(startX, y, count, 1, rgbRow, 0, count);
+                for (int x = 0; x < count; x++) {
+                    rgbRow[x] &= 0xFFFFFF;
+                }
+                break;
+            }
+        }
+    }
+    
+    /**
+     * Reads a single pixel as a packed 0xRRGGBB value, for sparse sampling.
+     * 
+     * @param x The column
+     * @param y The row
+     * @return The pixel's packed RGB value without alpha
+     */
+    int readPixel(int x, int y) {
+        switch (layout) {
+            case LAYOUT_INT_PACKED:
+                return intData[baseOffset + y * scanlineStride + x] & 0xFFFFFF;
+            case LAYOUT_BYTE_INTERLEAVED: {
+                int index = baseOffset + y * scanlineStride + x * pixelStride;
+                return ((byteData[index + redOffset] & 0xFF) << 16) |
+                       ((byteData[index + greenOffset] & 0xFF) << 8) |
+                       (byteData[index + blueOffset] & 0xFF);
+            }
+            case LAYOUT_BYTE_GRAY:
+                return grayToRgb[byteData[baseOffset + y * scanlineStride + x * pixelStride] & 0xFF];
+            default:
+                return image.getRGB(x, y) & 0xFFFFFF;
+        }
+    }
+    
+    /**
+     * Works out which access path matches the image's raster layout and caches the
+     * buffer geometry needed by that path.
+     */
+    private int detectLayout() {
+        WritableRaster raster = image.getRaster();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        SampleModel sampleModel = raster.getSampleModel();
+        
+        if (dataBuffer.getNumBanks() != 1) {
+            return LAYOUT_GENERIC;
+        }
+        
+        // Child rasters (sub-images) start somewhere inside the parent's buffer
+        int translateX = -raster.getSampleModelTranslateX();
+        int translateY = -raster.getSampleModelTranslateY();
+        
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB: {
+                if (!(dataBuffer instanceof DataBufferInt) || !(sampleModel instanceof SinglePixelPackedSampleModel)) {
+                    return LAYOUT_GENERIC;
+                }
+                SinglePixelPackedSampleModel packedModel = (SinglePixelPackedSampleModel) sampleModel;
+                intData = ((DataBufferInt) dataBuffer).getData();
+                scanlineStride = packedModel.getScanlineStride();
+                baseOffset = dataBuffer.getOffset() + translateY * scanlineStride + translateX;
+                return LAYOUT_INT_PACKED;
+            }
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR: {
+                if (!(dataBuffer instanceof DataBufferByte) || !(sampleModel instanceof ComponentSampleModel)) {
+                    return LAYOUT_GENERIC;
+                }
+                ComponentSampleModel componentModel = (ComponentSampleModel) sampleModel;
+                int[] bandOffsets = componentModel.getBandOffsets();
+                byteData = ((DataBufferByte) dataBuffer).getData();
+                scanlineStride = componentModel.getScanlineStride();
+                pixelStride = componentModel.getPixelStride();
+                baseOffset = dataBuffer.getOffset() + translateY * scanlineStride + translateX * pixelStride;
+                // Raster bands are ordered red, green, blue (then alpha) regardless of byte order
+                redOffset = bandOffsets[0];
+                greenOffset = bandOffsets[1];
+                blueOffset = bandOffsets[2];
+                return LAYOUT_BYTE_INTERLEAVED;
+            }
+            case BufferedImage.TYPE_BYTE_GRAY: {
+                if (!(dataBuffer instanceof DataBufferByte) || !(sampleModel instanceof ComponentSampleModel)) {
+                    return LAYOUT_GENERIC;
+                }
+                ComponentSampleModel componentModel = (ComponentSampleModel) sampleModel;
+                byteData = ((DataBufferByte) dataBuffer).getData();
+                scanlineStride = componentModel.getScanlineStride();
+                pixelStride = componentModel.getPixelStride();
+                baseOffset = dataBuffer.getOffset() + translateY * scanlineStride + translateX * pixelStride
+                             + componentModel.getBandOffsets()[0];
+                // Gray levels go through the color model so the result matches getRGB exactly
+                grayToRgb = new int[256];
+                byte[] grayPixel = new byte[1];
+                for (int level = 0; level < 256; level++) {
+                    grayPixel[0] = (byte) level;
+                    grayToRgb[level] = image.getColorModel().getRGB(grayPixel) & 0xFFFFFF;
+                }
+                return LAYOUT_BYTE_GRAY;
+            }
+            default:
+                return LAYOUT_GENERIC;
+        }
+    }
+}
\ No newline at end of file
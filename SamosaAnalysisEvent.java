@@ -0,0 +1,111 @@
+import java.awt.image.BufferedImage;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event covering one samosa classification pass in {@link ImageProcessor}.
+ * Recordings can be sliced per image through the image id from {@link SamosaImageIds}, which
+ * {@link SamosaImageLoadEvent} records for the file the image was loaded from.
+ * 
+ * Stack traces are off, and fields are only filled in when the event will be committed,
+ * so the event is cheap enough to leave enabled in production recordings.
+ */
+@Name("samosascope.Analysis")
+@Label("Samosa Analysis")
+@Category({"SamosaScope", "Analysis"})
+@Description("A classification pass over every pixel of an image")
+@StackTrace(false)
+class SamosaAnalysisEvent extends Event {
+    
+    @Label("Operation")
+    @Description("The ImageProcessor method that ran the pass")
+    String operation;
+    
+    @Label("Image Id")
+    @Description("Unique id of the analyzed image, shared with its image load event")
+    long imageId;
+    
+    @Label("File Name")
+    @Description("The file the image was loaded from, if it was loaded by ImageLoader")
+    String fileName;
+    
+    @Label("Width")
+    int width;
+    
+    @Label("Height")
+    int height;
+    
+    @Label("Image Type")
+    String imageType;
+    
+    @Label("Pixel Count")
+    long pixelCount;
+    
+    @Label("Samosa Pixel Count")
+    long samosaPixelCount;
+    
+    @Label("Parallelism")
+    int parallelism;
+    
+    @Label("Cancelled")
+    @Description("Whether the pass was cancelled before every row was scanned")
+    boolean cancelled;
+    
+    /**
+     * Fills in the image fields of an event.
+     * 
+     * @param image The analyzed image
+     */
+    void setImage(BufferedImage image) {
+        SamosaImageIds.Origin origin = SamosaImageIds.get(image);
+        imageId = origin.id;
+        fileName = origin.fileName;
+        width = image.getWidth();
+        height = image.getHeight();
+        imageType = typeName(image.getType());
+        pixelCount = (long) width * height;
+    }
+    
+    /**
+     * Gets the name of a {@link BufferedImage} type constant as shown in recordings.
+     * 
+     * @param type The image type
+     * @return The constant name without its TYPE_ prefix, such as INT_RGB
+     */
+    static String typeName(int type) {
+        switch (type) {
+            case BufferedImage.TYPE_INT_RGB:
+                return "INT_RGB";
+            case BufferedImage.TYPE_INT_ARGB:
+                return "INT_ARGB";
+            case BufferedImage.TYPE_INT_ARGB_PRE:
+                return "INT_ARGB_PRE";
+            case BufferedImage.TYPE_INT_BGR:
+                return "INT_BGR";
+            case BufferedImage.TYPE_3BYTE_BGR:
+                return "3BYTE_BGR";
+            case BufferedImage.TYPE_4BYTE_ABGR:
+                return "4BYTE_ABGR";
+            case BufferedImage.TYPE_4BYTE_ABGR_PRE:
+                return "4BYTE_ABGR_PRE";
+            case BufferedImage.TYPE_USHORT_565_RGB:
+                return "USHORT_565_RGB";
+            case BufferedImage.TYPE_USHORT_555_RGB:
+                return "USHORT_555_RGB";
+            case BufferedImage.TYPE_BYTE_GRAY:
+                return "BYTE_GRAY";
+            case BufferedImage.TYPE_USHORT_GRAY:
+                return "USHORT_GRAY";
+            case BufferedImage.TYPE_BYTE_BINARY:
+                return "BYTE_BINARY";
+            case BufferedImage.TYPE_BYTE_INDEXED:
+                return "BYTE_INDEXED";
+            default:
+                return "CUSTOM";
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+/**
+ * Immutable result of a single samosa analysis pass over an image.
+ * Holds the detection mask together with the pixel statistics derived from it.
+ */
+public final class SamosaAnalysisResult {
+    
+    private final SamosaMask mask;
+    private final SamosaIntegralImage integralImage;
+    private final long samosaPixelCount;
+    private final long totalPixels;
+    private final double coveragePercentage;
+    
+    /**
+     * Creates a new analysis result.
+     * 
+     * @param mask The bit-packed samosa detection mask, or null if it was not collected
+     * @param samosaPixelCount The number of samosa pixels found
+     * @param totalPixels The total number of pixels in the analyzed image
+     * @param coveragePercentage The percentage of samosa pixels (0.0 to 100.0)
+     */
+    SamosaAnalysisResult(SamosaMask mask, long samosaPixelCount, long totalPixels, double coveragePercentage) {
+        this(mask, null, samosaPixelCount, totalPixels, coveragePercentage);
+    }
+    
+    /**
+     * Creates a new analysis result carrying the mask's summed-area table.
+     * 
+     * @param mask The bit-packed samosa detection mask, or null if it was not collected
+     * @param integralImage The summed-area table of the mask, or null if it was not built
+     * @param samosaPixelCount The number of samosa pixels found
+     * @param totalPixels The total number of pixels in the analyzed image
+     * @param coveragePercentage The percentage of samosa pixels (0.0 to 100.0)
+     */
+    SamosaAnalysisResult(SamosaMask mask, SamosaIntegralImage integralImage, long samosaPixelCount, long totalPixels,
+                         double coveragePercentage) {
+        this.mask = mask;
+        this.integralImage = integralImage;
+        this.samosaPixelCount = samosaPixelCount;
+        this.totalPixels = totalPixels;
+        this.coveragePercentage = coveragePercentage;
+    }
+    
+    /**
+     * Gets the samosa detection mask. Use {@link SamosaMask#createHighlightedImage(java.awt.image.BufferedImage)}
+     * to render it only when a highlighted view is actually displayed.
+     * 
+     * @return The detection mask, or null if the analysis did not collect one
+     */
+    public SamosaMask getMask() {
+        return mask;
+    }
+    
+    /**
+     * Gets the summed-area table of the mask, for constant-time counts over rectangular regions.
+     * 
+     * @return The integral image, or null if the analysis was not asked to build one
+     */
+    public SamosaIntegralImage getIntegralImage() {
+        return integralImage;
+    }
+    
+    /**
+     * Gets the number of samosa pixels found.
+     * 
+     * @return The samosa pixel count
+     * @throws ArithmeticException if the count does not fit in an int; use
+     *         {@link #getSamosaPixelCountAsLong()} for images of more than 2^31 pixels
+     */
+    public int getSamosaPixelCount() throws ArithmeticException {
+        return Math.toIntExact(samosaPixelCount);
+    }
+    
+    /**
+     * Gets the number of samosa pixels found.
+     * 
+     * @return The samosa pixel count, which may exceed {@link Integer#MAX_VALUE}
+     */
+    public long getSamosaPixelCountAsLong() {
+        return samosaPixelCount;
+    }
+    
+    /**
+     * Gets the total number of pixels in the analyzed image.
+     * 
+     * @return The total pixel count (width * height)
+     */
+    public long getTotalPixels() {
+        return totalPixels;
+    }
+    
+    /**
+     * Gets the percentage of the image covered by samosa pixels.
+     * 
+     * @return The coverage percentage (0.0 to 100.0)
+     */
+    public double getCoveragePercentage() {
+        return coveragePercentage;
+    }
+    
+    @Override
+    public String toString() {
+        return "SamosaAnalysisResult[samosaPixels=" + samosaPixelCount +
+               ", totalPixels=" + totalPixels +
+               ", coverage=" + AreaCalculator.formatPercentage(coveragePercentage) + "]";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,710 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+
+/**
+ * Embedded HTTP service exposing samosa analysis to other devices, built on the JDK's own HTTP server.
+ * 
+ * Each request is handled on its own thread: a virtual thread when the runtime supports them
+ * (Java 21 and later), otherwise a pooled platform thread. Request threads only do I/O. Decoding
+ * and classification run on a fixed pool of platform threads, one per core by default, so the
+ * CPU is never oversubscribed and at most one decoded image per pool thread is held in memory.
+ * 
+ * Requests are admitted up front, by count and by size. At most workers + queue requests are in
+ * flight at any time, which bounds the worst-case wait. The bodies held in memory are bounded too:
+ * each request reserves its Content-Length (or the body limit if it sends none) from a byte
+ * budget, a quarter of the heap by default, before its body is read. A request that would exceed
+ * either limit gets an immediate 503 with a Retry-After header instead of joining an ever-growing
+ * queue. Decoded images are bounded separately: only pool threads decode, and each upload's
+ * header is read first, so an image declaring more pixels than the pixel limit is refused with
+ * 413 before any pixel memory is allocated.
+ * 
+ * Endpoints:
+ * POST /analyze with the encoded image as the body returns the samosa pixel count and coverage as JSON.
+ * Results without a mask come from the shared {@link SamosaResultCache}, so re-submitted photos skip decoding.
+ * Add ?mask=true to include the samosa mask as a base64 PNG, and ?pixelsPerCm=n for the area in cm².
+ * GET /health returns the number of active and waiting analyses.
+ * 
+ * Usage: java SamosaAnalysisServer [--host address] [--port n] [--workers n] [--queue n] [--max-body megabytes]
+ *        [--body-budget megabytes] [--max-pixels megapixels] [--profile file]
+ */
+public class SamosaAnalysisServer {
+    
+    /** Default TCP port. */
+    public static final int DEFAULT_PORT = 8080;
+    
+    /** Default number of requests that may wait for a worker, uploading or queued, before new ones are refused. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+    
+    /** Default largest accepted request body. */
+    public static final long DEFAULT_MAX_BODY_BYTES = 16L * 1024 * 1024;
+    
+    /** Default largest accepted image, in pixels; decoded, such an image takes 256 MB as 32-bit pixels. */
+    public static final long DEFAULT_MAX_IMAGE_PIXELS = 64L * 1024 * 1024;
+    
+    /** Share of the maximum heap that request bodies held at once may use by default. */
+    private static final int DEFAULT_BODY_BUDGET_HEAP_DIVISOR = 4;
+    
+    /** The body budget is counted in permits of this many bytes, so budgets above 2 GB fit a Semaphore. */
+    private static final int BUDGET_UNIT_BYTES = 1024;
+    
+    /** Seconds a request waits for its analysis before it is cancelled and answered with 503. */
+    private static final long ANALYSIS_TIMEOUT_SECONDS = 120;
+    
+    /** Seconds a refused client is asked to wait before retrying. */
+    private static final String RETRY_AFTER_SECONDS = "1";
+    
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final ThreadPoolExecutor analysisPool;
+    private final Semaphore admissions;
+    private final Semaphore bodyBudget;
+    private final long maxBodyBytes;
+    private final long maxImagePixels;
+    private final SamosaColorLut lut;
+    private final SamosaResultCache resultCache;
+    private final String classifierName;
+    private final boolean virtualThreads;
+    
+    /**
+     * Creates a server that classifies with the active classifier profile. It does not accept
+     * connections until {@link #start()} is called.
+     * 
+     * @param address The address and port to listen on; port 0 picks a free port
+     * @param workers The number of platform threads decoding and classifying images
+     * @param queueCapacity The number of requests that may wait for a worker before new ones are refused
+     * @param maxBodyBytes The largest accepted request body in bytes
+     * @throws IllegalArgumentException if the address is null or a limit is less than 1
+     * @throws IOException if the server cannot bind to the address
+     */
+    public SamosaAnalysisServer(InetSocketAddress address, int workers, int queueCapacity, long maxBodyBytes)
+            throws IllegalArgumentException, IOException {
+        this(address, workers, queueCapacity, maxBodyBytes, SamosaClassifierProfile.getActive());
+    }
+    
+    /**
+     * Creates a server that classifies with a specific classifier profile. It does not accept
+     * connections until {@link #start()} is called.
+     * 
+     * @param address The address and port to listen on; port 0 picks a free port
+     * @param workers The number of platform threads decoding and classifying images
+     * @param queueCapacity The number of requests that may wait for a worker before new ones are refused
+     * @param maxBodyBytes The largest accepted request body in bytes
+     * @param profile The classifier profile, compiled once and shared by all workers
+     * @throws IllegalArgumentException if the address or profile is null or a limit is less than 1
+     * @throws IOException if the server cannot bind to the address
+     */
+    public SamosaAnalysisServer(InetSocketAddress address, int workers, int queueCapacity, long maxBodyBytes,
+                                SamosaClassifierProfile profile) throws IllegalArgumentException, IOException {
+        this(address, workers, queueCapacity, maxBodyBytes, getDefaultBodyBudget(maxBodyBytes), profile);
+    }
+    
+    /**
+     * Creates a server with an explicit limit on the request bodies held in memory at once.
+     * It does not accept connections until {@link #start()} is called.
+     * 
+     * @param address The address and port to listen on; port 0 picks a free port
+     * @param workers The number of platform threads decoding and classifying images
+     * @param queueCapacity The number of requests that may wait for a worker before new ones are refused
+     * @param maxBodyBytes The largest accepted request body in bytes
+     * @param bodyBudgetBytes The most bytes of request bodies held at once, at least maxBodyBytes
+     * @param profile The classifier profile, compiled once and shared by all workers
+     * @throws IllegalArgumentException if the address or profile is null, a limit is less than 1
+     *         or the body budget is smaller than the body limit
+     * @throws IOException if the server cannot bind to the address
+     */
+    public SamosaAnalysisServer(InetSocketAddress address, int workers, int queueCapacity, long maxBodyBytes,
+                                long bodyBudgetBytes, SamosaClassifierProfile profile) throws IllegalArgumentException, IOException {
+        this(address, workers, queueCapacity, maxBodyBytes, bodyBudgetBytes, DEFAULT_MAX_IMAGE_PIXELS, profile);
+    }
+    
+    /**
+     * Creates a server with explicit limits on the request bodies held in memory at once and on
+     * the pixel dimensions of the images it decodes. It does not accept connections until
+     * {@link #start()} is called.
+     * 
+     * @param address The address and port to listen on; port 0 picks a free port
+     * @param workers The number of platform threads decoding and classifying images
+     * @param queueCapacity The number of requests that may wait for a worker before new ones are refused
+     * @param maxBodyBytes The largest accepted request body in bytes
+     * @param bodyBudgetBytes The most bytes of request bodies held at once, at least maxBodyBytes
+     * @param maxImagePixels The most pixels (width * height) an uploaded image may declare
+     * @param profile The classifier profile, compiled once and shared by all workers
+     * @throws IllegalArgumentException if the address or profile is null, a limit is less than 1
+     *         or the body budget is smaller than the body limit
+     * @throws IOException if the server cannot bind to the address
+     */
+    public SamosaAnalysisServer(InetSocketAddress address, int workers, int queueCapacity, long maxBodyBytes,
+                                long bodyBudgetBytes, long maxImagePixels, SamosaClassifierProfile profile)
+            throws IllegalArgumentException, IOException {
+        if (address == null) {
+            throw new IllegalArgumentException("Address cannot be null");
+        }
+        if (workers < 1 || queueCapacity < 1 || maxBodyBytes < 1 || maxBodyBytes > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Invalid workers, queue capacity or body limit: " +
+                                               workers + ", " + queueCapacity + ", " + maxBodyBytes);
+        }
+        if (bodyBudgetBytes < maxBodyBytes) {
+            throw new IllegalArgumentException("Body budget " + bodyBudgetBytes + " is smaller than the body limit " + maxBodyBytes);
+        }
+        if (maxImagePixels < 1) {
+            throw new IllegalArgumentException("Pixel limit must be at least 1: " + maxImagePixels);
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Classifier profile cannot be null");
+        }
+        
+        this.lut = profile.compile();
+        this.resultCache = SamosaResultCache.getShared();
+        this.classifierName = profile.getName();
+        this.maxBodyBytes = maxBodyBytes;
+        this.maxImagePixels = maxImagePixels;
+        this.admissions = new Semaphore(workers + queueCapacity);
+        // Rounded up like each reservation, so a budget of one maximum body always admits that body
+        this.bodyBudget = new Semaphore((int) Math.min(Integer.MAX_VALUE, toBudgetPermits(bodyBudgetBytes)));
+        
+        // Admission control bounds the queue, so it never has to reject work itself
+        this.analysisPool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                                                   new LinkedBlockingQueue<Runnable>(), newThreadFactory("samosa-analysis-"));
+        
+        ExecutorService virtualExecutor = newVirtualThreadExecutor();
+        this.virtualThreads = virtualExecutor != null;
+        this.requestExecutor = virtualThreads ? virtualExecutor : Executors.newCachedThreadPool(newThreadFactory("samosa-http-"));
+        
+        this.server = HttpServer.create(address, workers + queueCapacity);
+        this.server.setExecutor(requestExecutor);
+        this.server.createContext("/analyze", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleAnalyze(exchange);
+            }
+        });
+        this.server.createContext("/health", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleHealth(exchange);
+            }
+        });
+    }
+    
+    /**
+     * Gets the default limit on request bodies held at once: a quarter of the maximum heap,
+     * but never less than one body of the largest accepted size.
+     * 
+     * @param maxBodyBytes The largest accepted request body in bytes
+     * @return The default body budget in bytes
+     */
+    public static long getDefaultBodyBudget(long maxBodyBytes) {
+        return Math.max(maxBodyBytes, Runtime.getRuntime().maxMemory() / DEFAULT_BODY_BUDGET_HEAP_DIVISOR);
+    }
+    
+    /**
+     * Starts accepting connections.
+     */
+    public void start() {
+        server.start();
+    }
+    
+    /**
+     * Stops accepting connections, waits up to a delay for requests in progress, then shuts down the threads.
+     * 
+     * @param delaySeconds The longest time to wait for requests in progress
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        analysisPool.shutdownNow();
+        requestExecutor.shutdownNow();
+    }
+    
+    /**
+     * Gets the port the server listens on, which is useful after binding to port 0.
+     * 
+     * @return The local port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    /**
+     * Checks whether requests are handled on virtual threads.
+     * 
+     * @return true on runtimes with virtual threads, false when pooled platform threads are used instead
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+    
+    private void handleAnalyze(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendError(exchange, 405, "Use POST with the image as the request body");
+                return;
+            }
+            
+            Map<String, String> query;
+            boolean includeMask;
+            double pixelsPerCm;
+            try {
+                query = parseQuery(exchange.getRequestURI().getRawQuery());
+                includeMask = Boolean.parseBoolean(query.get("mask"));
+                pixelsPerCm = query.containsKey("pixelsPerCm") ? Double.parseDouble(query.get("pixelsPerCm")) : 0;
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, "Invalid query: " + e.getMessage());
+                return;
+            }
+            
+            // A body without a declared length may be as large as the limit, so it reserves that much
+            long declaredLength = getDeclaredLength(exchange);
+            if (declaredLength > maxBodyBytes) {
+                sendError(exchange, 413, "Request body exceeds " + maxBodyBytes + " bytes");
+                return;
+            }
+            long reservedBytes = declaredLength >= 0 ? declaredLength : maxBodyBytes;
+            int budgetPermits = (int) Math.max(1, toBudgetPermits(reservedBytes));
+            
+            if (!admissions.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+                sendError(exchange, 503, "Server busy, retry later");
+                return;
+            }
+            if (!bodyBudget.tryAcquire(budgetPermits)) {
+                admissions.release();
+                exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+                sendError(exchange, 503, "Server busy, retry later");
+                return;
+            }
+            try {
+                byte[] body = readBody(exchange, reservedBytes);
+                if (body == null) {
+                    sendError(exchange, 413, declaredLength >= 0 ? "Request body longer than its Content-Length"
+                                                                 : "Request body exceeds " + maxBodyBytes + " bytes");
+                    return;
+                }
+                if (body.length == 0) {
+                    sendError(exchange, 400, "Request body must contain an image");
+                    return;
+                }
+                analyze(exchange, body, includeMask, pixelsPerCm);
+            } finally {
+                bodyBudget.release(budgetPermits);
+                admissions.release();
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    /**
+     * Hands one upload to the analysis pool and waits for its result on the request thread.
+     * An analysis that takes longer than {@link #ANALYSIS_TIMEOUT_SECONDS} is cancelled, so a
+     * pathological image cannot hold a request thread indefinitely.
+     */
+    private void analyze(HttpExchange exchange, final byte[] body, final boolean includeMask, final double pixelsPerCm)
+            throws IOException {
+        final long queuedAt = System.nanoTime();
+        Future<AnalysisResponse> future = analysisPool.submit(new Callable<AnalysisResponse>() {
+            @Override
+            public AnalysisResponse call() throws IOException {
+                return analyzeBody(body, includeMask, pixelsPerCm, queuedAt);
+            }
+        });
+        
+        AnalysisResponse response;
+        try {
+            response = future.get(ANALYSIS_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            System.err.println("Error: Analysis timed out after " + ANALYSIS_TIMEOUT_SECONDS + " s");
+            sendError(exchange, 503, "Analysis timed out");
+            return;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Server shutting down");
+            return;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // Headers are checked against the pixel limit before decoding, so this is only a last resort
+            if (cause instanceof OutOfMemoryError) {
+                sendError(exchange, 413, "Image too large to decode");
+            } else {
+                System.err.println("Error: Analysis failed: " + cause);
+                sendError(exchange, 500, "Analysis failed: " + cause.getMessage());
+            }
+            return;
+        }
+        sendJson(exchange, response.status, response.json);
+    }
+    
+    /**
+     * Decodes and classifies one upload. Runs on the analysis pool, so each image is scanned
+     * sequentially: the pool already keeps every core busy with separate requests.
+     */
+    private AnalysisResponse analyzeBody(byte[] body, boolean includeMask, double pixelsPerCm, long queuedAt)
+            throws IOException {
+        long start = System.nanoTime();
+        
+        // A small file can declare a huge image, so the header is checked before either path decodes
+        ImageMetadata metadata;
+        try {
+            metadata = ImageMetadataReader.read(body);
+        } catch (IOException e) {
+            return new AnalysisResponse(415, errorJson("Could not decode image: " + e.getMessage()));
+        }
+        if (metadata.getPixelArea() > maxImagePixels) {
+            return new AnalysisResponse(413, errorJson("Image of " + metadata.getWidth() + "x" + metadata.getHeight() +
+                                                       " pixels exceeds the limit of " + maxImagePixels + " pixels"));
+        }
+        
+        int width;
+        int height;
+        int samosaPixels;
+        SamosaMask mask = null;
+        if (includeMask) {
+            BufferedImage image;
+            try {
+                SamosaMetrics.Sample sample = SamosaMetrics.start();
+                image = ImageIO.read(new ByteArrayInputStream(body));
+                SamosaMetrics.stop(sample, SamosaMetrics.STAGE_DECODE, body.length);
+            } catch (IOException e) {
+                return new AnalysisResponse(415, errorJson("Could not decode image: " + e.getMessage()));
+            }
+            if (image == null) {
+                return new AnalysisResponse(415, errorJson("Unsupported image format"));
+            }
+            SamosaAnalysisResult result = SamosaAnalyzer.analyze(image, lut, 1, false);
+            width = image.getWidth();
+            height = image.getHeight();
+            samosaPixels = result.getSamosaPixelCount();
+            mask = result.getMask();
+        } else {
+            // Re-submitted photos are answered from the cache without decoding
+            SamosaAreaResult result;
+            try {
+                result = resultCache.analyze(body, lut, 1);
+            } catch (IOException e) {
+                return new AnalysisResponse(415, errorJson("Could not decode image: " + e.getMessage()));
+            }
+            width = result.getWidth();
+            height = result.getHeight();
+            samosaPixels = result.getSamosaPixelCount();
+        }
+        
+        long totalPixels = (long) width * height;
+        double coverage = AreaCalculator.calculateSamosaCoveragePercentage(samosaPixels, totalPixels);
+        
+        StringBuilder json = new StringBuilder(128);
+        json.append("{\"width\":").append(width);
+        json.append(",\"height\":").append(height);
+        json.append(",\"totalPixels\":").append(totalPixels);
+        json.append(",\"samosaPixels\":").append(samosaPixels);
+        json.append(",\"coveragePercent\":").append(String.format(Locale.ROOT, "%.4f", coverage));
+        if (pixelsPerCm > 0) {
+            double areaCm2 = AreaCalculator.calculateEstimatedPhysicalArea(samosaPixels, width, height, pixelsPerCm);
+            json.append(",\"areaCm2\":").append(String.format(Locale.ROOT, "%.4f", Math.max(0, areaCm2)));
+        }
+        json.append(",\"classifier\":").append(jsonString(classifierName));
+        if (mask != null) {
+            json.append(",\"maskPng\":\"").append(Base64.getEncoder().encodeToString(encodeMaskPng(mask))).append('"');
+        }
+        long end = System.nanoTime();
+        json.append(",\"queueMillis\":").append(String.format(Locale.ROOT, "%.1f", (start - queuedAt) / 1e6));
+        json.append(",\"analysisMillis\":").append(String.format(Locale.ROOT, "%.1f", (end - start) / 1e6));
+        json.append('}');
+        return new AnalysisResponse(200, json.toString());
+    }
+    
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Use GET");
+                return;
+            }
+            String json = "{\"status\":\"ok\"" +
+                          ",\"activeAnalyses\":" + analysisPool.getActiveCount() +
+                          ",\"queuedAnalyses\":" + analysisPool.getQueue().size() +
+                          ",\"freeAdmissions\":" + admissions.availablePermits() +
+                          ",\"freeBodyBudgetBytes\":" + (long) bodyBudget.availablePermits() * BUDGET_UNIT_BYTES +
+                          ",\"virtualThreads\":" + virtualThreads +
+                          ",\"classifier\":" + jsonString(classifierName) + "}";
+            sendJson(exchange, 200, json);
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    /**
+     * Converts bytes to body budget permits, rounding up.
+     */
+    private static long toBudgetPermits(long bytes) {
+        return (bytes + BUDGET_UNIT_BYTES - 1) / BUDGET_UNIT_BYTES;
+    }
+    
+    /**
+     * Gets the body length a request declares.
+     * 
+     * @return The Content-Length, or -1 if it is missing or invalid
+     */
+    private static long getDeclaredLength(HttpExchange exchange) {
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength == null) {
+            return -1;
+        }
+        try {
+            long declaredLength = Long.parseLong(contentLength.trim());
+            return declaredLength >= 0 ? declaredLength : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * Reads the whole request body, refusing it as soon as it grows past the bytes reserved for it.
+     * 
+     * @param limit The bytes reserved for the body from the budget
+     * @return The body, or null if it is larger than the limit
+     */
+    private static byte[] readBody(HttpExchange exchange, long limit) throws IOException {
+        InputStream input = exchange.getRequestBody();
+        ByteArrayOutputStream body = new ByteArrayOutputStream((int) Math.min(limit, 64 * 1024));
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            if (body.size() + read > limit) {
+                return null;
+            }
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+    
+    /**
+     * Encodes a mask as a 1-bit PNG with samosa pixels in white.
+     */
+    private static byte[] encodeMaskPng(SamosaMask mask) throws IOException {
+        int width = mask.getWidth();
+        int height = mask.getHeight();
+        BufferedImage maskImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        byte[] bits = ((DataBufferByte) maskImage.getRaster().getDataBuffer()).getData();
+        int stride = (width + 7) / 8;
+        
+        // Packed rows with the leftmost pixel in the high bit; set each run of samosa pixels
+        for (int y = 0; y < height; y++) {
+            int rowStart = y * stride;
+            int x = mask.nextSetBit(0, y);
+            while (x >= 0) {
+                int end = mask.nextClearBit(x, y);
+                for (int i = x; i < end; i++) {
+                    bits[rowStart + (i >> 3)] |= (byte) (0x80 >>> (i & 7));
+                }
+                x = mask.nextSetBit(end, y);
+            }
+        }
+        
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(maskImage, "png", png);
+        return png.toByteArray();
+    }
+    
+    private static Map<String, String> parseQuery(String rawQuery) throws IllegalArgumentException {
+        Map<String, String> parameters = new HashMap<String, String>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "true" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            parameters.put(name, value);
+        }
+        return parameters;
+    }
+    
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJson(exchange, status, errorJson(message));
+    }
+    
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream output = exchange.getResponseBody();
+        output.write(bytes);
+        output.flush();
+    }
+    
+    private static String errorJson(String message) {
+        return "{\"error\":" + jsonString(message) + "}";
+    }
+    
+    /**
+     * Quotes a string as a JSON string literal.
+     */
+    private static String jsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2);
+        quoted.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+    
+    /**
+     * Creates a virtual-thread-per-task executor when the runtime has one. The build targets
+     * Java 17, so the factory is looked up reflectively.
+     * 
+     * @return The executor, or null on runtimes without (non-preview) virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+    
+    private static ThreadFactory newThreadFactory(final String namePrefix) {
+        final AtomicInteger counter = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, namePrefix + counter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+    
+    /**
+     * The status and JSON body produced for one upload.
+     */
+    private static final class AnalysisResponse {
+        
+        final int status;
+        final String json;
+        
+        AnalysisResponse(int status, String json) {
+            this.status = status;
+            this.json = json;
+        }
+    }
+    
+    /**
+     * Runs the analysis service from the command line until the process is stopped.
+     * 
+     * @param args Optional --host, --port, --workers, --queue, --max-body and --body-budget (in megabytes),
+     *             --max-pixels (in megapixels) and --profile options
+     */
+    public static void main(String[] args) {
+        String host = "127.0.0.1";
+        int port = DEFAULT_PORT;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        long maxBodyBytes = DEFAULT_MAX_BODY_BYTES;
+        long bodyBudgetBytes = -1;
+        long maxImagePixels = DEFAULT_MAX_IMAGE_PIXELS;
+        SamosaClassifierProfile profile = SamosaClassifierProfile.getActive();
+        
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                }
+                String option = args[i];
+                String value = args[i + 1];
+                if (option.equals("--host")) {
+                    host = value;
+                } else if (option.equals("--port")) {
+                    port = Integer.parseInt(value);
+                } else if (option.equals("--workers")) {
+                    workers = Integer.parseInt(value);
+                } else if (option.equals("--queue")) {
+                    queueCapacity = Integer.parseInt(value);
+                } else if (option.equals("--max-body")) {
+                    maxBodyBytes = Long.parseLong(value) * 1024 * 1024;
+                } else if (option.equals("--body-budget")) {
+                    bodyBudgetBytes = Long.parseLong(value) * 1024 * 1024;
+                } else if (option.equals("--max-pixels")) {
+                    maxImagePixels = Long.parseLong(value) * 1024 * 1024;
+                } else if (option.equals("--profile")) {
+                    profile = SamosaClassifierProfile.load(new File(value));
+                } else {
+                    throw new IllegalArgumentException("Unknown option: " + option);
+                }
+            }
+            
+            if (bodyBudgetBytes < 0) {
+                bodyBudgetBytes = getDefaultBodyBudget(maxBodyBytes);
+            }
+            final SamosaAnalysisServer server = new SamosaAnalysisServer(new InetSocketAddress(host, port), workers,
+                                                                         queueCapacity, maxBodyBytes, bodyBudgetBytes, maxImagePixels, profile);
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    server.stop(1);
+                }
+            }, "samosa-http-shutdown"));
+            server.start();
+            
+            System.err.println("Listening on http://" + host + ":" + server.getPort() + "/analyze with " + workers +
+                               " workers, queue " + queueCapacity + ", " + bodyBudgetBytes / (1024 * 1024) + " MB body budget, " +
+                               (server.usesVirtualThreads() ? "virtual" : "pooled platform") + " request threads");
+        } catch (NumberFormatException e) {
+            System.err.println("Error: Invalid number: " + e.getMessage());
+            System.exit(2);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(2);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
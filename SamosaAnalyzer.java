@@ -0,0 +1,122 @@
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Single-pass samosa analysis engine.
+ * Classifies every pixel exactly once and derives the detection mask, the samosa pixel count
+ * and the coverage percentage from that one traversal.
+ */
+public class SamosaAnalyzer {
+    
+    /**
+     * Receives progress reports from a long-running analysis and decides whether it goes on.
+     */
+    public interface ProgressListener {
+        
+        /**
+         * Called on the analyzing thread after each chunk of rows has been classified.
+         * 
+         * @param rowsDone The number of rows classified so far
+         * @param totalRows The number of rows in the image
+         * @param samosaPixelsSoFar The number of samosa pixels found in the rows classified so far
+         * @return true to continue, false to cancel the analysis
+         */
+        boolean progress(int rowsDone, int totalRows, long samosaPixelsSoFar);
+    }
+    
+    /**
+     * Analyzes an image for samosa regions in a single traversal.
+     * Large images are scanned in parallel using {@link ImageProcessor#DEFAULT_PARALLELISM} threads.
+     * 
+     * @param image The image to analyze
+     * @return An immutable result holding the mask, pixel count, coverage and total pixels
+     * @throws IllegalArgumentException if the image parameter is null
+     */
+    public static SamosaAnalysisResult analyze(BufferedImage image) throws IllegalArgumentException {
+        return analyze(image, ImageProcessor.DEFAULT_PARALLELISM);
+    }
+    
+    /**
+     * Analyzes an image for samosa regions in a single traversal, splitting the rows into
+     * bands on a ForkJoinPool when the image is large enough.
+     * 
+     * @param image The image to analyze
+     * @param parallelism The maximum number of threads to use; 1 forces a sequential scan
+     * @return An immutable result holding the mask, pixel count, coverage and total pixels
+     * @throws IllegalArgumentException if the image parameter is null or parallelism is less than 1
+     */
+    public static SamosaAnalysisResult analyze(BufferedImage image, int parallelism) throws IllegalArgumentException {
+        return analyze(image, parallelism, false);
+    }
+    
+    /**
+     * Analyzes an image for samosa regions in a single traversal, optionally building the
+     * mask's summed-area table in the same pass so that any number of rectangular regions
+     * can later be counted in constant time through {@link SamosaAnalysisResult#getIntegralImage()}.
+     * 
+     * @param image The image to analyze
+     * @param parallelism The maximum number of threads to use; 1 forces a sequential scan
+     * @param buildIntegral true to build a {@link SamosaIntegralImage} alongside the mask
+     * @return An immutable result holding the mask, pixel count, coverage, total pixels and
+     *         the integral image if one was requested
+     * @throws IllegalArgumentException if the image parameter is null, parallelism is less than 1
+     *         or the image is too large for an integral image
+     */
+    public static SamosaAnalysisResult analyze(BufferedImage image, int parallelism, boolean buildIntegral) throws IllegalArgumentException {
+        return analyze(image, SamosaColorLut.getDefault(), parallelism, buildIntegral);
+    }
+    
+    /**
+     * Analyzes an image for samosa regions in a single traversal, classifying pixels with
+     * a lookup table built from custom color ranges instead of the default ones.
+     * 
+     * @param image The image to analyze
+     * @param lut The color lookup table to classify with
+     * @param parallelism The maximum number of threads to use; 1 forces a sequential scan
+     * @param buildIntegral true to build a {@link SamosaIntegralImage} alongside the mask
+     * @return An immutable result holding the mask, pixel count, coverage, total pixels and
+     *         the integral image if one was requested
+     * @throws IllegalArgumentException if the image or lut parameter is null, parallelism is less
+     *         than 1 or the image is too large for an integral image
+     */
+    public static SamosaAnalysisResult analyze(BufferedImage image, SamosaColorLut lut, int parallelism, boolean buildIntegral)
+            throws IllegalArgumentException {
+        return analyze(image, lut, parallelism, buildIntegral, null);
+    }
+    
+    /**
+     * Analyzes an image for samosa regions in a single traversal, reporting progress after each
+     * chunk of rows so that callers such as the viewer can show partial counts and cancel between chunks.
+     * 
+     * @param image The image to analyze
+     * @param lut The color lookup table to classify with
+     * @param parallelism The maximum number of threads to use; 1 forces a sequential scan
+     * @param buildIntegral true to build a {@link SamosaIntegralImage} alongside the mask
+     * @param listener Told about each finished chunk of rows, or null for no progress reports
+     * @return An immutable result holding the mask, pixel count, coverage, total pixels and
+     *         the integral image if one was requested
+     * @throws IllegalArgumentException if the image or lut parameter is null, parallelism is less
+     *         than 1 or the image is too large for an integral image
+     * @throws CancellationException if the listener cancels the analysis
+     */
+    public static SamosaAnalysisResult analyze(BufferedImage image, SamosaColorLut lut, int parallelism, boolean buildIntegral,
+                                               ProgressListener listener) throws IllegalArgumentException, CancellationException {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null");
+        }
+        if (lut == null) {
+            throw new IllegalArgumentException("Color lookup table cannot be null");
+        }
+        
+        int width = image.getWidth();
+        int height = image.getHeight();
+        SamosaMask mask = new SamosaMask(width, height);
+        SamosaIntegralImage integral = buildIntegral ? new SamosaIntegralImage(width, height) : null;
+        int samosaPixelCount = ImageProcessor.detectSamosaPixels(image, mask, integral, lut, parallelism, listener);
+        
+        long totalPixels = (long) width * height;
+        double coveragePercentage = AreaCalculator.calculateSamosaCoveragePercentage(samosaPixelCount, totalPixels);
+        
+        return new SamosaAnalysisResult(mask, integral, samosaPixelCount, totalPixels, coveragePercentage);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+/**
+ * Immutable samosa area of one encoded image, as stored by {@link SamosaResultCache}.
+ * Unlike {@link SamosaAnalysisResult} it holds no mask, so it is small enough to cache and persist.
+ */
+public final class SamosaAreaResult {
+    
+    private final int width;
+    private final int height;
+    private final int samosaPixelCount;
+    
+    /**
+     * Creates a new area result.
+     * 
+     * @param width The image width in pixels
+     * @param height The image height in pixels
+     * @param samosaPixelCount The number of samosa pixels in the image
+     */
+    SamosaAreaResult(int width, int height, int samosaPixelCount) {
+        this.width = width;
+        this.height = height;
+        this.samosaPixelCount = samosaPixelCount;
+    }
+    
+    /**
+     * Gets the image width.
+     * 
+     * @return The width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+    
+    /**
+     * Gets the image height.
+     * 
+     * @return The height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+    
+    /**
+     * Gets the number of samosa pixels in the image.
+     * 
+     * @return The samosa pixel count
+     */
+    public int getSamosaPixelCount() {
+        return samosaPixelCount;
+    }
+    
+    /**
+     * Gets the total number of pixels in the image.
+     * 
+     * @return The total pixel count (width * height)
+     */
+    public long getTotalPixels() {
+        return (long) width * height;
+    }
+    
+    /**
+     * Gets the percentage of the image covered by samosa pixels.
+     * 
+     * @return The coverage percentage (0.0 to 100.0)
+     */
+    public double getCoveragePercentage() {
+        return AreaCalculator.calculateSamosaCoveragePercentage(samosaPixelCount, getTotalPixels());
+    }
+    
+    @Override
+    public String toString() {
+        return "SamosaAreaResult[" + width + "x" + height +
+               ", samosaPixels=" + samosaPixelCount +
+               ", coverage=" + AreaCalculator.formatPercentage(getCoveragePercentage()) + "]";
+    }
+}
\ No newline at end of file
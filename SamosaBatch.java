@@ -0,0 +1,507 @@
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+
+/**
+ * Headless batch analysis of whole directory trees.
+ * Images flow through a four-stage pipeline connected by bounded queues:
+ * a directory walker, I/O-bound decoder threads, CPU-bound classifier threads and a single
+ * CSV writer. The bounded queues keep at most a few decoded images in memory no matter how
+ * many files are found, and each stage's thread count can be tuned independently.
+ * 
+ * Usage: java SamosaBatch &lt;directory&gt; [--output file.csv] [--decoders n] [--workers n] [--queue n] [--profile file]
+ */
+public class SamosaBatch {
+    
+    /** File extensions picked up by the walker, matching the viewer's file chooser. */
+    private static final String[] IMAGE_EXTENSIONS = {"jpg", "jpeg", "png", "gif", "bmp", "tiff", "tif"};
+    
+    /** Header row of the CSV output. */
+    private static final String CSV_HEADER = "path,width,height,total_pixels,samosa_pixels,coverage_percent,status";
+    
+    /** Marks the end of a queue; one is sent per consuming thread. */
+    private static final BatchItem END_OF_QUEUE = new BatchItem(null);
+    
+    private final int decoderCount;
+    private final int workerCount;
+    private final SamosaColorLut lut;
+    private final BlockingQueue<BatchItem> pathQueue;
+    private final BlockingQueue<BatchItem> decodedQueue;
+    private final BlockingQueue<BatchItem> resultQueue;
+    private final List<Thread> stageThreads = new CopyOnWriteArrayList<Thread>();
+    
+    private volatile Throwable failure;
+    
+    /**
+     * Creates a batch pipeline.
+     * 
+     * @param decoderCount The number of threads decoding images
+     * @param workerCount The number of threads classifying decoded images
+     * @param queueCapacity The capacity of the queue between decoders and workers, which bounds
+     *                      the number of decoded images held in memory
+     * @throws IllegalArgumentException if any argument is less than 1
+     */
+    public SamosaBatch(int decoderCount, int workerCount, int queueCapacity) throws IllegalArgumentException {
+        this(decoderCount, workerCount, queueCapacity, SamosaClassifierProfile.getActive());
+    }
+    
+    /**
+     * Creates a batch pipeline that classifies with a specific classifier profile.
+     * 
+     * @param decoderCount The number of threads decoding images
+     * @param workerCount The number of threads classifying decoded images
+     * @param queueCapacity The capacity of the queue between decoders and workers, which bounds
+     *                      the number of decoded images held in memory
+     * @param profile The classifier profile, compiled once and shared by all workers
+     * @throws IllegalArgumentException if any count is less than 1 or the profile is null
+     */
+    public SamosaBatch(int decoderCount, int workerCount, int queueCapacity, SamosaClassifierProfile profile)
+            throws IllegalArgumentException {
+        if (decoderCount < 1 || workerCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Decoders, workers and queue capacity must all be at least 1: " +
+                                               decoderCount + ", " + workerCount + ", " + queueCapacity);
+        }
+        if (profile == null) {
+            throw new IllegalArgumentException("Classifier profile cannot be null");
+        }
+        
+        this.lut = profile.compile();
+        this.decoderCount = decoderCount;
+        this.workerCount = workerCount;
+        this.pathQueue = new ArrayBlockingQueue<BatchItem>(Math.max(64, decoderCount * 4));
+        this.decodedQueue = new ArrayBlockingQueue<BatchItem>(queueCapacity);
+        this.resultQueue = new ArrayBlockingQueue<BatchItem>(Math.max(64, workerCount * 4));
+    }
+    
+    /**
+     * Analyzes every image below a directory and writes one CSV row per image.
+     * Images that cannot be decoded still get a row, with the error in the status column.
+     * 
+     * @param root The directory to walk
+     * @param output Receives the CSV rows; it is flushed but not closed
+     * @return The number of images processed, including failed ones
+     * @throws IllegalArgumentException if root is not a directory or output is null
+     * @throws IOException if walking the directory or writing the output fails
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public long run(final Path root, final Writer output) throws IllegalArgumentException, IOException, InterruptedException {
+        if (root == null || !Files.isDirectory(root)) {
+            throw new IllegalArgumentException("Not a directory: " + root);
+        }
+        if (output == null) {
+            throw new IllegalArgumentException("Output cannot be null");
+        }
+        
+        final long[] written = new long[1];
+        startThread("samosa-batch-writer", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    written[0] = writeResults(output);
+                } catch (IOException e) {
+                    fail(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        
+        final AtomicInteger activeWorkers = new AtomicInteger(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            startThread("samosa-batch-worker-" + i, new Runnable() {
+                @Override
+                public void run() {
+                    classifyImages(activeWorkers);
+                }
+            });
+        }
+        
+        final AtomicInteger activeDecoders = new AtomicInteger(decoderCount);
+        for (int i = 0; i < decoderCount; i++) {
+            startThread("samosa-batch-decoder-" + i, new Runnable() {
+                @Override
+                public void run() {
+                    decodeImages(activeDecoders);
+                }
+            });
+        }
+        
+        try {
+            walkDirectory(root);
+            for (int i = 0; i < decoderCount; i++) {
+                offerPath(END_OF_QUEUE);
+            }
+        } catch (Throwable t) {
+            // Nothing more will be fed in, so stop every stage rather than wait for end markers
+            fail(t);
+            throw t;
+        } finally {
+            // Always wait for the stages, so none of them can still write to the output once this returns
+            awaitStages();
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException("Interrupted while waiting for the batch pipeline");
+        }
+        
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure != null) {
+            throw new IOException("Batch pipeline failed: " + failure.getMessage(), failure);
+        }
+        return written[0];
+    }
+    
+    /**
+     * Waits for every stage thread to finish. An interrupt while waiting stops the pipeline
+     * instead of abandoning it, and the wait goes on until the stages have exited. The
+     * calling thread's interrupt status is restored afterwards.
+     */
+    private void awaitStages() {
+        boolean interrupted = false;
+        for (Thread thread : stageThreads) {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    fail(e);
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Feeds every image file below the root into the path queue.
+     */
+    private void walkDirectory(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if (failure != null) {
+                    return FileVisitResult.TERMINATE;
+                }
+                if (attributes.isRegularFile() && isImageFile(file)) {
+                    try {
+                        offerPath(new BatchItem(file));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while walking " + root, e);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+            
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                System.err.println("Error: Could not visit " + file + ": " + e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+    
+    /**
+     * Puts an item on the path queue, giving up once another stage has failed so the
+     * walker never blocks on a queue nobody is draining.
+     */
+    private void offerPath(BatchItem item) throws InterruptedException {
+        while (!pathQueue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+            if (failure != null) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Decoder stage: reads images from disk until the end marker arrives. The last decoder
+     * to finish passes one end marker to each worker.
+     */
+    private void decodeImages(AtomicInteger activeDecoders) {
+        try {
+            while (true) {
+                BatchItem item = pathQueue.take();
+                if (item == END_OF_QUEUE) {
+                    break;
+                }
+                
+                try {
+                    // File.length() reports 0 instead of throwing, so metrics cannot change the item's outcome
+                    File file = item.path.toFile();
+                    long fileSize = file.length();
+                    SamosaMetrics.Sample sample = SamosaMetrics.start();
+                    item.image = ImageIO.read(file);
+                    SamosaMetrics.stop(sample, SamosaMetrics.STAGE_DECODE, fileSize);
+                    if (item.image == null) {
+                        item.status = "unsupported format";
+                    } else {
+                        SamosaImageIds.register(item.image, item.path.getFileName().toString());
+                    }
+                } catch (IOException e) {
+                    item.status = "read error: " + e.getMessage();
+                } catch (RuntimeException e) {
+                    item.status = "decode error: " + e.getMessage();
+                } catch (OutOfMemoryError e) {
+                    item.status = "image too large to decode";
+                }
+                decodedQueue.put(item);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            fail(t);
+        } finally {
+            if (activeDecoders.decrementAndGet() == 0) {
+                putEndMarkers(decodedQueue, workerCount);
+            }
+        }
+    }
+    
+    /**
+     * Classifier stage: counts samosa pixels in decoded images until the end marker arrives.
+     * Each image is scanned on its own thread, since the pipeline already runs images in parallel.
+     * The last worker to finish passes the end marker to the writer.
+     */
+    private void classifyImages(AtomicInteger activeWorkers) {
+        try {
+            while (true) {
+                BatchItem item = decodedQueue.take();
+                if (item == END_OF_QUEUE) {
+                    break;
+                }
+                
+                if (item.image != null) {
+                    BufferedImage image = item.image;
+                    item.image = null;
+                    item.width = image.getWidth();
+                    item.height = image.getHeight();
+                    try {
+                        item.samosaPixels = ImageProcessor.calculateSamosaPixelArea(image, lut, 1);
+                        item.status = "ok";
+                    } catch (RuntimeException e) {
+                        item.status = "analysis error: " + e.getMessage();
+                    }
+                }
+                resultQueue.put(item);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            fail(t);
+        } finally {
+            if (activeWorkers.decrementAndGet() == 0) {
+                putEndMarkers(resultQueue, 1);
+            }
+        }
+    }
+    
+    /**
+     * Writer stage: writes one CSV row per result until the end marker arrives.
+     */
+    private long writeResults(Writer output) throws IOException, InterruptedException {
+        long count = 0;
+        output.write(CSV_HEADER);
+        output.write('\n');
+        
+        while (true) {
+            BatchItem item = resultQueue.take();
+            if (item == END_OF_QUEUE) {
+                break;
+            }
+            output.write(toCsvRow(item));
+            output.write('\n');
+            count++;
+        }
+        
+        output.flush();
+        return count;
+    }
+    
+    /**
+     * Formats one result as a CSV row. Dimensions and counts are left empty for failed images.
+     */
+    private static String toCsvRow(BatchItem item) {
+        StringBuilder row = new StringBuilder();
+        row.append(csvField(item.path.toString())).append(',');
+        if ("ok".equals(item.status)) {
+            long totalPixels = (long) item.width * item.height;
+            double coverage = AreaCalculator.calculateSamosaCoveragePercentage(item.samosaPixels, totalPixels);
+            row.append(item.width).append(',').append(item.height).append(',');
+            row.append(totalPixels).append(',').append(item.samosaPixels).append(',');
+            row.append(String.format(Locale.ROOT, "%.4f", coverage)).append(',');
+        } else {
+            row.append(",,,,,");
+        }
+        row.append(csvField(item.status));
+        return row.toString();
+    }
+    
+    /**
+     * Quotes a CSV field when it contains a separator, quote or line break.
+     */
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+    
+    /**
+     * Checks whether a file name has one of the supported image extensions.
+     */
+    private static boolean isImageFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (String extension : IMAGE_EXTENSIONS) {
+            if (name.endsWith("." + extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Records the first failure and stops every stage by interrupting its thread.
+     */
+    private synchronized void fail(Throwable t) {
+        if (failure != null) {
+            return;
+        }
+        failure = t;
+        System.err.println("Error: Batch pipeline failed: " + t.getMessage());
+        for (Thread thread : stageThreads) {
+            thread.interrupt();
+        }
+    }
+    
+    private static void putEndMarkers(BlockingQueue<BatchItem> queue, int count) {
+        try {
+            for (int i = 0; i < count; i++) {
+                queue.put(END_OF_QUEUE);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void startThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        stageThreads.add(thread);
+        thread.start();
+    }
+    
+    /**
+     * One image as it moves through the pipeline.
+     */
+    private static final class BatchItem {
+        
+        final Path path;
+        BufferedImage image;
+        int width;
+        int height;
+        int samosaPixels;
+        String status;
+        
+        BatchItem(Path path) {
+            this.path = path;
+        }
+    }
+    
+    /**
+     * Runs a batch analysis from the command line.
+     * 
+     * @param args The directory to analyze followed by optional --output, --decoders, --workers, --queue and --profile options
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: java SamosaBatch <directory> [--output file.csv] [--decoders n] [--workers n] [--queue n] [--profile file]");
+            System.exit(2);
+        }
+        
+        int processors = Runtime.getRuntime().availableProcessors();
+        Path root = Paths.get(args[0]);
+        String outputPath = null;
+        int decoders = Math.max(2, processors / 2);
+        int workers = processors;
+        int queueCapacity = processors * 2;
+        SamosaClassifierProfile profile = SamosaClassifierProfile.getActive();
+        
+        try {
+            for (int i = 1; i < args.length; i += 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                }
+                String option = args[i];
+                String value = args[i + 1];
+                if (option.equals("--output")) {
+                    outputPath = value;
+                } else if (option.equals("--decoders")) {
+                    decoders = Integer.parseInt(value);
+                } else if (option.equals("--workers")) {
+                    workers = Integer.parseInt(value);
+                } else if (option.equals("--queue")) {
+                    queueCapacity = Integer.parseInt(value);
+                } else if (option.equals("--profile")) {
+                    profile = SamosaClassifierProfile.load(new File(value));
+                } else {
+                    throw new IllegalArgumentException("Unknown option: " + option);
+                }
+            }
+            
+            SamosaBatch batch = new SamosaBatch(decoders, workers, queueCapacity, profile);
+            Writer output = outputPath == null
+                    ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                    : Files.newBufferedWriter(new File(outputPath).toPath(), StandardCharsets.UTF_8);
+            
+            long start = System.nanoTime();
+            long count;
+            try {
+                count = batch.run(root, output);
+            } finally {
+                if (outputPath != null) {
+                    output.close();
+                }
+            }
+            
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.println(String.format(Locale.ROOT, "Processed %d images in %.1f s (%.1f images/s) with %d decoders and %d workers",
+                                             count, seconds, count / Math.max(seconds, 1e-9), decoders, workers));
+        } catch (NumberFormatException e) {
+            System.err.println("Error: Invalid number: " + e.getMessage());
+            System.exit(2);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(2);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Error: Interrupted");
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,441 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A named set of samosa color rules: RGB and HSV ranges that mark a color as samosa, and RGB
+ * and HSV ranges that veto it again. A color matches when it lies in any included range and
+ * in no excluded range.
+ * 
+ * Profiles are compiled once into a {@link SamosaColorLut}, so the per-pixel cost is the same
+ * table lookup whatever the rules are. Profiles made only of included RGB ranges keep the SIMD kernel.
+ * 
+ * Profiles are read from properties files, one rule per key with numbered suffixes:
+ * <pre>
+ * name=Site 12 - dark fry
+ * include.rgb.1=80,140,40,100,-1,60
+ * include.hsv.1=15,40,0.45,1.0,0.2,0.75
+ * exclude.rgb.1=150,256,150,256,150,256
+ * exclude.hsv.1=0,360,0.0,0.1,0.0,1.0
+ * </pre>
+ * RGB rules list redMin, redMax, greenMin, greenMax, blueMin, blueMax as exclusive bounds like
+ * {@link SamosaColorRange}; HSV rules list hueMin, hueMax, saturationMin, saturationMax,
+ * valueMin, valueMax as inclusive bounds like {@link SamosaHsvRange}.
+ * 
+ * Setting the {@value #PROFILE_PROPERTY} system property to a profile file makes that profile the
+ * default for every analysis, so each site can run the same build with its own file.
+ */
+public final class SamosaClassifierProfile {
+    
+    /** System property naming the profile file used by {@link #getActive()}. */
+    public static final String PROFILE_PROPERTY = "samosa.profile";
+    
+    /** The built-in profile: the three brown ranges of {@link ImageProcessor#DEFAULT_SAMOSA_RANGES}. */
+    public static final SamosaClassifierProfile BUILT_IN = new SamosaClassifierProfile("Built-in",
+        ImageProcessor.DEFAULT_SAMOSA_RANGES, Collections.<SamosaHsvRange>emptyList(),
+        Collections.<SamosaColorRange>emptyList(), Collections.<SamosaHsvRange>emptyList());
+    
+    private static final String INCLUDE_RGB = "include.rgb.";
+    private static final String INCLUDE_HSV = "include.hsv.";
+    private static final String EXCLUDE_RGB = "exclude.rgb.";
+    private static final String EXCLUDE_HSV = "exclude.hsv.";
+    
+    private final String name;
+    private final List<SamosaColorRange> includedRanges;
+    private final List<SamosaHsvRange> includedHsvRanges;
+    private final List<SamosaColorRange> excludedRanges;
+    private final List<SamosaHsvRange> excludedHsvRanges;
+    private final SamosaColorRange[] includedArray;
+    private final SamosaHsvRange[] includedHsvArray;
+    private final SamosaColorRange[] excludedArray;
+    private final SamosaHsvRange[] excludedHsvArray;
+    
+    /**
+     * Creates a new profile.
+     * 
+     * @param name The profile name shown to users
+     * @param includedRanges RGB ranges that mark a color as samosa
+     * @param includedHsvRanges HSV ranges that mark a color as samosa
+     * @param excludedRanges RGB ranges that veto a matching color
+     * @param excludedHsvRanges HSV ranges that veto a matching color
+     * @throws IllegalArgumentException if the name or a list is null, a list holds null,
+     *         or there is no included range at all
+     */
+    public SamosaClassifierProfile(String name, List<SamosaColorRange> includedRanges, List<SamosaHsvRange> includedHsvRanges,
+                                   List<SamosaColorRange> excludedRanges, List<SamosaHsvRange> excludedHsvRanges)
+            throws IllegalArgumentException {
+        if (name == null) {
+            throw new IllegalArgumentException("Profile name cannot be null");
+        }
+        if (includedRanges == null || includedHsvRanges == null || excludedRanges == null || excludedHsvRanges == null) {
+            throw new IllegalArgumentException("Profile range lists cannot be null");
+        }
+        if (includedRanges.isEmpty() && includedHsvRanges.isEmpty()) {
+            throw new IllegalArgumentException("Profile '" + name + "' has no included ranges");
+        }
+        if (includedRanges.contains(null) || includedHsvRanges.contains(null)
+                || excludedRanges.contains(null) || excludedHsvRanges.contains(null)) {
+            throw new IllegalArgumentException("Profile '" + name + "' contains a null range");
+        }
+        
+        this.name = name;
+        this.includedRanges = Collections.unmodifiableList(new ArrayList<SamosaColorRange>(includedRanges));
+        this.includedHsvRanges = Collections.unmodifiableList(new ArrayList<SamosaHsvRange>(includedHsvRanges));
+        this.excludedRanges = Collections.unmodifiableList(new ArrayList<SamosaColorRange>(excludedRanges));
+        this.excludedHsvRanges = Collections.unmodifiableList(new ArrayList<SamosaHsvRange>(excludedHsvRanges));
+        this.includedArray = includedRanges.toArray(new SamosaColorRange[0]);
+        this.includedHsvArray = includedHsvRanges.toArray(new SamosaHsvRange[0]);
+        this.excludedArray = excludedRanges.toArray(new SamosaColorRange[0]);
+        this.excludedHsvArray = excludedHsvRanges.toArray(new SamosaHsvRange[0]);
+    }
+    
+    /**
+     * Reads a profile from a properties file. The profile is named after the file unless the
+     * file sets a name.
+     * 
+     * @param file The profile file
+     * @return The profile described by the file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file parameter is null or the file holds an invalid rule
+     */
+    public static SamosaClassifierProfile load(File file) throws IOException, IllegalArgumentException {
+        if (file == null) {
+            throw new IllegalArgumentException("Profile file cannot be null");
+        }
+        
+        Properties properties = new Properties();
+        InputStream input = new FileInputStream(file);
+        try {
+            properties.load(new InputStreamReader(input, StandardCharsets.UTF_8));
+        } finally {
+            input.close();
+        }
+        
+        String fileName = file.getName();
+        int dot = fileName.lastIndexOf('.');
+        return fromProperties(properties, dot > 0 ? fileName.substring(0, dot) : fileName);
+    }
+    
+    /**
+     * Builds a profile from properties in the profile file format.
+     * 
+     * @param properties The rule properties
+     * @param defaultName The name to use when the properties do not set one
+     * @return The profile described by the properties
+     * @throws IllegalArgumentException if a parameter is null, a key is unknown or a rule is invalid
+     */
+    public static SamosaClassifierProfile fromProperties(Properties properties, String defaultName)
+            throws IllegalArgumentException {
+        if (properties == null) {
+            throw new IllegalArgumentException("Properties cannot be null");
+        }
+        
+        List<String> keys = new ArrayList<String>(properties.stringPropertyNames());
+        for (String key : keys) {
+            if (!key.equals("name") && !key.startsWith(INCLUDE_RGB) && !key.startsWith(INCLUDE_HSV)
+                    && !key.startsWith(EXCLUDE_RGB) && !key.startsWith(EXCLUDE_HSV)) {
+                throw new IllegalArgumentException("Unknown profile key: " + key);
+            }
+        }
+        
+        String name = properties.getProperty("name", defaultName);
+        return new SamosaClassifierProfile(name == null ? null : name.trim(),
+                                           parseRgbRanges(properties, keys, INCLUDE_RGB),
+                                           parseHsvRanges(properties, keys, INCLUDE_HSV),
+                                           parseRgbRanges(properties, keys, EXCLUDE_RGB),
+                                           parseHsvRanges(properties, keys, EXCLUDE_HSV));
+    }
+    
+    /**
+     * Gets the profile used by default for every analysis: the file named by the
+     * {@value #PROFILE_PROPERTY} system property, or {@link #BUILT_IN} when it is not set.
+     * A profile file that cannot be loaded is reported once and the built-in profile is used instead.
+     * 
+     * @return The active profile
+     */
+    public static SamosaClassifierProfile getActive() {
+        return ActiveProfile.PROFILE;
+    }
+    
+    /**
+     * Checks whether a color is samosa under this profile. This evaluates the rules directly;
+     * pixel loops go through {@link #compile()} instead.
+     * 
+     * @param red The red component (0-255)
+     * @param green The green component (0-255)
+     * @param blue The blue component (0-255)
+     * @return true if the color lies in an included range and in no excluded range
+     */
+    public boolean matches(int red, int green, int blue) {
+        boolean included = false;
+        for (SamosaColorRange range : includedArray) {
+            if (range.contains(red, green, blue)) {
+                included = true;
+                break;
+            }
+        }
+        if (!included) {
+            for (SamosaHsvRange range : includedHsvArray) {
+                if (range.contains(red, green, blue)) {
+                    included = true;
+                    break;
+                }
+            }
+        }
+        if (!included) {
+            return false;
+        }
+        
+        for (SamosaColorRange range : excludedArray) {
+            if (range.contains(red, green, blue)) {
+                return false;
+            }
+        }
+        for (SamosaHsvRange range : excludedHsvArray) {
+            if (range.contains(red, green, blue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Compiles the profile into a lookup table, building it on first use and sharing it afterwards.
+     * 
+     * @return The lookup table for this profile
+     */
+    public SamosaColorLut compile() {
+        return SamosaColorLut.forProfile(this);
+    }
+    
+    /**
+     * Checks whether the profile consists of included RGB ranges only, which the SIMD kernel
+     * can evaluate directly.
+     * 
+     * @return true if there are no HSV ranges and no exclusions
+     */
+    public boolean isRgbRangesOnly() {
+        return includedHsvRanges.isEmpty() && excludedRanges.isEmpty() && excludedHsvRanges.isEmpty();
+    }
+    
+    /**
+     * Gets the profile name.
+     * 
+     * @return The name shown to users
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Gets the RGB ranges that mark a color as samosa.
+     * 
+     * @return An unmodifiable list of ranges
+     */
+    public List<SamosaColorRange> getIncludedRanges() {
+        return includedRanges;
+    }
+    
+    /**
+     * Gets the HSV ranges that mark a color as samosa.
+     * 
+     * @return An unmodifiable list of ranges
+     */
+    public List<SamosaHsvRange> getIncludedHsvRanges() {
+        return includedHsvRanges;
+    }
+    
+    /**
+     * Gets the RGB ranges that veto a matching color.
+     * 
+     * @return An unmodifiable list of ranges
+     */
+    public List<SamosaColorRange> getExcludedRanges() {
+        return excludedRanges;
+    }
+    
+    /**
+     * Gets the HSV ranges that veto a matching color.
+     * 
+     * @return An unmodifiable list of ranges
+     */
+    public List<SamosaHsvRange> getExcludedHsvRanges() {
+        return excludedHsvRanges;
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof SamosaClassifierProfile)) {
+            return false;
+        }
+        SamosaClassifierProfile profile = (SamosaClassifierProfile) other;
+        return name.equals(profile.name) &&
+               includedRanges.equals(profile.includedRanges) && includedHsvRanges.equals(profile.includedHsvRanges) &&
+               excludedRanges.equals(profile.excludedRanges) && excludedHsvRanges.equals(profile.excludedHsvRanges);
+    }
+    
+    @Override
+    public int hashCode() {
+        int result = name.hashCode();
+        result = 31 * result + includedRanges.hashCode();
+        result = 31 * result + includedHsvRanges.hashCode();
+        result = 31 * result + excludedRanges.hashCode();
+        result = 31 * result + excludedHsvRanges.hashCode();
+        return result;
+    }
+    
+    @Override
+    public String toString() {
+        return "SamosaClassifierProfile[" + name + ", include " + includedRanges.size() + " RGB + "
+               + includedHsvRanges.size() + " HSV, exclude " + excludedRanges.size() + " RGB + "
+               + excludedHsvRanges.size() + " HSV]";
+    }
+    
+    private static List<SamosaColorRange> parseRgbRanges(Properties properties, List<String> keys, String prefix)
+            throws IllegalArgumentException {
+        List<SamosaColorRange> ranges = new ArrayList<SamosaColorRange>();
+        for (String key : sortedKeys(keys, prefix)) {
+            double[] bounds = parseBounds(properties, key);
+            int[] values = new int[6];
+            for (int i = 0; i < 6; i++) {
+                values[i] = (int) bounds[i];
+                if (values[i] != bounds[i]) {
+                    throw new IllegalArgumentException("RGB bounds must be whole numbers in " + key);
+                }
+            }
+            try {
+                ranges.add(new SamosaColorRange(values[0], values[1], values[2], values[3], values[4], values[5]));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(key + ": " + e.getMessage(), e);
+            }
+        }
+        return ranges;
+    }
+    
+    private static List<SamosaHsvRange> parseHsvRanges(Properties properties, List<String> keys, String prefix)
+            throws IllegalArgumentException {
+        List<SamosaHsvRange> ranges = new ArrayList<SamosaHsvRange>();
+        for (String key : sortedKeys(keys, prefix)) {
+            double[] bounds = parseBounds(properties, key);
+            try {
+                ranges.add(new SamosaHsvRange((float) bounds[0], (float) bounds[1], (float) bounds[2],
+                                              (float) bounds[3], (float) bounds[4], (float) bounds[5]));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(key + ": " + e.getMessage(), e);
+            }
+        }
+        return ranges;
+    }
+    
+    /**
+     * Collects the keys with a prefix, ordered by their numeric suffix so that rule 10 follows rule 9.
+     */
+    private static List<String> sortedKeys(List<String> keys, final String prefix) throws IllegalArgumentException {
+        List<String> matching = new ArrayList<String>();
+        for (String key : keys) {
+            if (key.startsWith(prefix)) {
+                try {
+                    Integer.parseInt(key.substring(prefix.length()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Profile key must end in a rule number: " + key);
+                }
+                matching.add(key);
+            }
+        }
+        Collections.sort(matching, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                return Integer.compare(Integer.parseInt(a.substring(prefix.length())),
+                                       Integer.parseInt(b.substring(prefix.length())));
+            }
+        });
+        return matching;
+    }
+    
+    private static double[] parseBounds(Properties properties, String key) throws IllegalArgumentException {
+        String[] parts = properties.getProperty(key).split(",");
+        if (parts.length != 6) {
+            throw new IllegalArgumentException("Expected 6 comma-separated bounds in " + key + ", found " + parts.length);
+        }
+        double[] bounds = new double[6];
+        for (int i = 0; i < 6; i++) {
+            try {
+                bounds[i] = Double.parseDouble(parts[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid bound '" + parts[i].trim() + "' in " + key, e);
+            }
+        }
+        return bounds;
+    }
+    
+    /**
+     * Loads the profile named by the system property on first use.
+     */
+    private static final class ActiveProfile {
+        
+        static final SamosaClassifierProfile PROFILE = loadActiveProfile();
+        
+        private ActiveProfile() {
+        }
+        
+        private static SamosaClassifierProfile loadActiveProfile() {
+            String path = System.getProperty(PROFILE_PROPERTY);
+            if (path == null || path.trim().isEmpty()) {
+                return BUILT_IN;
+            }
+            try {
+                return load(new File(path.trim()));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Error loading classifier profile " + path + ", using the built-in profile: " + e.getMessage());
+                return BUILT_IN;
+            }
+        }
+    }
+    
+    /**
+     * Main method for testing a profile file against its compiled lookup table.
+     * 
+     * @param args The profile file to check (defaults to the active profile)
+     */
+    public static void main(String[] args) {
+        SamosaClassifierProfile profile = getActive();
+        if (args.length > 0) {
+            try {
+                profile = load(new File(args[0]));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Error loading profile: " + e.getMessage());
+                return;
+            }
+        }
+        System.out.println(profile);
+        
+        long start = System.nanoTime();
+        SamosaColorLut lut = profile.compile();
+        System.out.printf("Compiled in %.1f ms (%s kernel)%n", (System.nanoTime() - start) / 1e6,
+                          lut.getRanges().isEmpty() || !SamosaRowKernel.isVectorAvailable() ? "lookup table" : "SIMD");
+        
+        int matching = 0;
+        int mismatches = 0;
+        for (int rgb = 0; rgb < (1 << 24); rgb++) {
+            boolean expected = profile.matches((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+            if (expected) {
+                matching++;
+            }
+            if (lut.matches(rgb) != expected) {
+                mismatches++;
+            }
+        }
+        System.out.println("Samosa colors: " + matching + " of " + (1 << 24) + ", table mismatches: " + mismatches);
+    }
+}
\ No newline at end of file
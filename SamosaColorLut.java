@@ -0,0 +1,311 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Precomputed lookup table answering "is this a samosa color?" for packed RGB values.
+ * 
+ * The full table stores one bit for each of the 2^24 RGB colors (2 MB), so classifying
+ * a pixel is one shift and one load. The quantized table splits the color cube into
+ * 2^15 cells of 8x8x8 colors and stores two bits per cell (8 KB, small enough for L1/L2):
+ * cells that are entirely inside or entirely outside the color ranges are answered
+ * directly and only cells straddling a range boundary fall back to the range checks,
+ * so both variants produce exactly the same masks as the predicate.
+ * 
+ * Tables are built either from a list of RGB ranges or from a {@link SamosaClassifierProfile}
+ * with HSV ranges and exclusions; either way classifying a pixel costs the same lookup.
+ * 
+ * Tables are built lazily, once per set of color ranges or profile, and are safe to share across threads.
+ */
+public final class SamosaColorLut {
+    
+    private static final int COLOR_COUNT = 1 << 24;
+    private static final int CELL_COUNT = 1 << 15;
+    
+    private static final int CELL_NONE = 0;
+    private static final int CELL_ALL = 1;
+    private static final int CELL_MIXED = 2;
+    
+    /** Bump whenever the way rules are evaluated changes, so persisted results keyed by fingerprint are not reused. */
+    private static final String CLASSIFIER_VERSION = "samosa-classifier-1";
+    
+    private static final ConcurrentHashMap<List<SamosaColorRange>, SamosaColorLut> FULL_TABLES =
+        new ConcurrentHashMap<List<SamosaColorRange>, SamosaColorLut>();
+    private static final ConcurrentHashMap<List<SamosaColorRange>, SamosaColorLut> QUANTIZED_TABLES =
+        new ConcurrentHashMap<List<SamosaColorRange>, SamosaColorLut>();
+    private static final ConcurrentHashMap<SamosaClassifierProfile, SamosaColorLut> FULL_PROFILE_TABLES =
+        new ConcurrentHashMap<SamosaClassifierProfile, SamosaColorLut>();
+    private static final ConcurrentHashMap<SamosaClassifierProfile, SamosaColorLut> QUANTIZED_PROFILE_TABLES =
+        new ConcurrentHashMap<SamosaClassifierProfile, SamosaColorLut>();
+    
+    private final List<SamosaColorRange> ranges;
+    private final SamosaColorRange[] rangeArray;
+    private final SamosaClassifierProfile profile;
+    private final boolean quantized;
+    private final long[] colorBits;
+    private final long[] cellStates;
+    private volatile String fingerprint;
+    
+    private SamosaColorLut(List<SamosaColorRange> ranges, SamosaClassifierProfile profile, boolean quantized) {
+        this.ranges = ranges;
+        this.rangeArray = ranges.toArray(new SamosaColorRange[0]);
+        this.profile = profile;
+        this.quantized = quantized;
+        this.colorBits = quantized ? null : buildColorBits();
+        this.cellStates = quantized ? buildCellStates() : null;
+    }
+    
+    /**
+     * Gets the full lookup table for the active classifier profile: the built-in samosa color
+     * ranges unless a profile file is set through {@value SamosaClassifierProfile#PROFILE_PROPERTY}.
+     * 
+     * @return The shared default lookup table
+     */
+    public static SamosaColorLut getDefault() {
+        return forProfile(SamosaClassifierProfile.getActive());
+    }
+    
+    /**
+     * Gets the full (2 MB) lookup table for a set of color ranges, building it on first use.
+     * 
+     * @param ranges The color ranges; a pixel matches if it lies in any of them
+     * @return The shared lookup table for these ranges
+     * @throws IllegalArgumentException if the ranges parameter is null or empty
+     */
+    public static SamosaColorLut forRanges(List<SamosaColorRange> ranges) throws IllegalArgumentException {
+        return forRanges(ranges, false);
+    }
+    
+    /**
+     * Gets the full or quantized lookup table for a set of color ranges, building it on first use.
+     * 
+     * @param ranges The color ranges; a pixel matches if it lies in any of them
+     * @param quantized true for the compact 15-bit table, false for the full 24-bit table
+     * @return The shared lookup table for these ranges
+     * @throws IllegalArgumentException if the ranges parameter is null or empty
+     */
+    public static SamosaColorLut forRanges(List<SamosaColorRange> ranges, final boolean quantized)
+            throws IllegalArgumentException {
+        if (ranges == null || ranges.isEmpty()) {
+            throw new IllegalArgumentException("Color ranges cannot be null or empty");
+        }
+        
+        List<SamosaColorRange> key = Collections.unmodifiableList(new ArrayList<SamosaColorRange>(ranges));
+        ConcurrentHashMap<List<SamosaColorRange>, SamosaColorLut> tables = quantized ? QUANTIZED_TABLES : FULL_TABLES;
+        
+        SamosaColorLut lut = tables.get(key);
+        if (lut == null) {
+            lut = tables.computeIfAbsent(key, new Function<List<SamosaColorRange>, SamosaColorLut>() {
+                @Override
+                public SamosaColorLut apply(List<SamosaColorRange> colorRanges) {
+                    return new SamosaColorLut(colorRanges, null, quantized);
+                }
+            });
+        }
+        return lut;
+    }
+    
+    /**
+     * Builds a new full (2 MB) lookup table for a set of color ranges without keeping it.
+     * The shared tables are never evicted, so ranges that change often - such as interactively
+     * tuned ones - should use this instead of {@link #forRanges(List)}; the table is freed
+     * once the caller drops it.
+     * 
+     * @param ranges The color ranges; a pixel matches if it lies in any of them
+     * @return A new, unshared lookup table for these ranges
+     * @throws IllegalArgumentException if the ranges parameter is null or empty
+     */
+    public static SamosaColorLut createForRanges(List<SamosaColorRange> ranges) throws IllegalArgumentException {
+        if (ranges == null || ranges.isEmpty()) {
+            throw new IllegalArgumentException("Color ranges cannot be null or empty");
+        }
+        
+        return new SamosaColorLut(Collections.unmodifiableList(new ArrayList<SamosaColorRange>(ranges)), null, false);
+    }
+    
+    /**
+     * Gets the full (2 MB) lookup table for a classifier profile, building it on first use.
+     * 
+     * @param profile The classifier profile
+     * @return The shared lookup table for this profile
+     * @throws IllegalArgumentException if the profile parameter is null
+     */
+    public static SamosaColorLut forProfile(SamosaClassifierProfile profile) throws IllegalArgumentException {
+        return forProfile(profile, false);
+    }
+    
+    /**
+     * Gets the full or quantized lookup table for a classifier profile, building it on first use.
+     * A profile made only of included RGB ranges shares the table of those ranges, which keeps
+     * the SIMD kernel available; any other profile is evaluated color by color while the table is built.
+     * 
+     * @param profile The classifier profile
+     * @param quantized true for the compact 15-bit table, false for the full 24-bit table
+     * @return The shared lookup table for this profile
+     * @throws IllegalArgumentException if the profile parameter is null
+     */
+    public static SamosaColorLut forProfile(SamosaClassifierProfile profile, final boolean quantized)
+            throws IllegalArgumentException {
+        if (profile == null) {
+            throw new IllegalArgumentException("Classifier profile cannot be null");
+        }
+        if (profile.isRgbRangesOnly()) {
+            return forRanges(profile.getIncludedRanges(), quantized);
+        }
+        
+        ConcurrentHashMap<SamosaClassifierProfile, SamosaColorLut> tables = quantized ? QUANTIZED_PROFILE_TABLES : FULL_PROFILE_TABLES;
+        SamosaColorLut lut = tables.get(profile);
+        if (lut == null) {
+            lut = tables.computeIfAbsent(profile, new Function<SamosaClassifierProfile, SamosaColorLut>() {
+                @Override
+                public SamosaColorLut apply(SamosaClassifierProfile classifierProfile) {
+                    return new SamosaColorLut(Collections.<SamosaColorRange>emptyList(), classifierProfile, quantized);
+                }
+            });
+        }
+        return lut;
+    }
+    
+    /**
+     * Checks whether a packed RGB value is a samosa color. Bits above the low 24 are ignored.
+     * 
+     * @param rgb The packed 0xRRGGBB value
+     * @return true if the color lies in any of the table's ranges
+     */
+    public boolean matches(int rgb) {
+        if (colorBits != null) {
+            return (colorBits[(rgb & 0xFFFFFF) >>> 6] & (1L << rgb)) != 0;
+        }
+        
+        int cell = ((rgb >>> 9) & 0x7C00) | ((rgb >>> 6) & 0x3E0) | ((rgb >>> 3) & 0x1F);
+        int state = (int) (cellStates[cell >>> 5] >>> ((cell & 31) << 1)) & 3;
+        if (state == CELL_MIXED) {
+            return evaluate((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+        }
+        return state == CELL_ALL;
+    }
+    
+    /**
+     * Checks whether an RGB triple is a samosa color.
+     * 
+     * @param red The red component (0-255)
+     * @param green The green component (0-255)
+     * @param blue The blue component (0-255)
+     * @return true if the color lies in any of the table's ranges
+     */
+    public boolean matches(int red, int green, int blue) {
+        return matches((red << 16) | (green << 8) | blue);
+    }
+    
+    /**
+     * Gets the color ranges this table was built from. The SIMD kernel evaluates these ranges
+     * directly, so a table compiled from a profile with HSV ranges or exclusions has none.
+     * 
+     * @return An unmodifiable list of color ranges, empty for a table compiled from such a profile
+     */
+    public List<SamosaColorRange> getRanges() {
+        return ranges;
+    }
+    
+    /**
+     * Checks whether this is the compact 15-bit quantized table.
+     * 
+     * @return true for the quantized table, false for the full table
+     */
+    public boolean isQuantized() {
+        return quantized;
+    }
+    
+    /**
+     * Gets a fingerprint of the classification rules behind this table. Tables that classify
+     * every color the same way from the same rules share a fingerprint, whether they are full or
+     * quantized and whatever the profile is called, so it can key persisted analysis results.
+     * 
+     * @return 16 hex digits identifying the rules and the classifier version
+     */
+    public String getFingerprint() {
+        String result = fingerprint;
+        if (result == null) {
+            StringBuilder rules = new StringBuilder(CLASSIFIER_VERSION);
+            if (profile != null) {
+                rules.append(";include.rgb=").append(profile.getIncludedRanges());
+                rules.append(";include.hsv=").append(profile.getIncludedHsvRanges());
+                rules.append(";exclude.rgb=").append(profile.getExcludedRanges());
+                rules.append(";exclude.hsv=").append(profile.getExcludedHsvRanges());
+            } else {
+                rules.append(";include.rgb=").append(ranges);
+            }
+            
+            result = SamosaResultCache.contentHash(rules.toString().getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+            fingerprint = result;
+        }
+        return result;
+    }
+    
+    /**
+     * Evaluates the rules behind the table for one color.
+     */
+    private boolean evaluate(int red, int green, int blue) {
+        if (profile != null) {
+            return profile.matches(red, green, blue);
+        }
+        for (SamosaColorRange range : rangeArray) {
+            if (range.contains(red, green, blue)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Evaluates the ranges for every 24-bit color, 64 colors (one word) at a time.
+     */
+    private long[] buildColorBits() {
+        long[] bits = new long[COLOR_COUNT >>> 6];
+        for (int word = 0; word < bits.length; word++) {
+            int base = word << 6;
+            int red = (base >> 16) & 0xFF;
+            int green = (base >> 8) & 0xFF;
+            int blueStart = base & 0xFF;
+            long value = 0;
+            for (int i = 0; i < 64; i++) {
+                if (evaluate(red, green, blueStart + i)) {
+                    value |= 1L << i;
+                }
+            }
+            bits[word] = value;
+        }
+        return bits;
+    }
+    
+    /**
+     * Classifies every 8x8x8 cell of the color cube as entirely outside, entirely inside
+     * or straddling the ranges.
+     */
+    private long[] buildCellStates() {
+        long[] states = new long[CELL_COUNT >>> 5];
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            int redBase = ((cell >> 10) & 0x1F) << 3;
+            int greenBase = ((cell >> 5) & 0x1F) << 3;
+            int blueBase = (cell & 0x1F) << 3;
+            
+            int matching = 0;
+            for (int red = redBase; red < redBase + 8; red++) {
+                for (int green = greenBase; green < greenBase + 8; green++) {
+                    for (int blue = blueBase; blue < blueBase + 8; blue++) {
+                        if (evaluate(red, green, blue)) {
+                            matching++;
+                        }
+                    }
+                }
+            }
+            
+            long state = matching == 0 ? CELL_NONE : (matching == 512 ? CELL_ALL : CELL_MIXED);
+            states[cell >>> 5] |= state << ((cell & 31) << 1);
+        }
+        return states;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,145 @@
+/**
+ * An axis-aligned RGB color range used by the samosa color classifier.
+ * All bounds are exclusive, so a pixel matches when
+ * {@code redMin < red < redMax}, {@code greenMin < green < greenMax} and {@code blueMin < blue < blueMax}.
+ */
+public final class SamosaColorRange {
+    
+    private final int redMin;
+    private final int redMax;
+    private final int greenMin;
+    private final int greenMax;
+    private final int blueMin;
+    private final int blueMax;
+    
+    /**
+     * Creates a new color range with exclusive bounds.
+     * Use -1 as a minimum or 256 as a maximum to leave a channel unbounded on that side.
+     * 
+     * @param redMin The exclusive lower bound for red
+     * @param redMax The exclusive upper bound for red
+     * @param greenMin The exclusive lower bound for green
+     * @param greenMax The exclusive upper bound for green
+     * @param blueMin The exclusive lower bound for blue
+     * @param blueMax The exclusive upper bound for blue
+     * @throws IllegalArgumentException if a bound lies outside -1 to 256
+     */
+    public SamosaColorRange(int redMin, int redMax, int greenMin, int greenMax, int blueMin, int blueMax)
+            throws IllegalArgumentException {
+        checkBounds("red", redMin, redMax);
+        checkBounds("green", greenMin, greenMax);
+        checkBounds("blue", blueMin, blueMax);
+        
+        this.redMin = redMin;
+        this.redMax = redMax;
+        this.greenMin = greenMin;
+        this.greenMax = greenMax;
+        this.blueMin = blueMin;
+        this.blueMax = blueMax;
+    }
+    
+    /**
+     * Checks whether an RGB triple lies inside this range.
+     * 
+     * @param red The red component (0-255)
+     * @param green The green component (0-255)
+     * @param blue The blue component (0-255)
+     * @return true if every channel lies strictly between its bounds
+     */
+    public boolean contains(int red, int green, int blue) {
+        return (red > redMin && red < redMax) &&
+               (green > greenMin && green < greenMax) &&
+               (blue > blueMin && blue < blueMax);
+    }
+    
+    /**
+     * Gets the exclusive lower bound for red.
+     * 
+     * @return The bound value
+     */
+    public int getRedMin() {
+        return redMin;
+    }
+    
+    /**
+     * Gets the exclusive upper bound for red.
+     * 
+     * @return The bound value
+     */
+    public int getRedMax() {
+        return redMax;
+    }
+    
+    /**
+     * Gets the exclusive lower bound for green.
+     * 
+     * @return The bound value
+     */
+    public int getGreenMin() {
+        return greenMin;
+    }
+    
+    /**
+     * Gets the exclusive upper bound for green.
+     * 
+     * @return The bound value
+     */
+    public int getGreenMax() {
+        return greenMax;
+    }
+    
+    /**
+     * Gets the exclusive lower bound for blue.
+     * 
+     * @return The bound value
+     */
+    public int getBlueMin() {
+        return blueMin;
+    }
+    
+    /**
+     * Gets the exclusive upper bound for blue.
+     * 
+     * @return The bound value
+     */
+    public int getBlueMax() {
+        return blueMax;
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof SamosaColorRange)) {
+            return false;
+        }
+        SamosaColorRange range = (SamosaColorRange) other;
+        return redMin == range.redMin && redMax == range.redMax &&
+               greenMin == range.greenMin && greenMax == range.greenMax &&
+               blueMin == range.blueMin && blueMax == range.blueMax;
+    }
+    
+    @Override
+    public int hashCode() {
+        int result = redMin;
+        result = 31 * result + redMax;
+        result = 31 * result + greenMin;
+        result = 31 * result + greenMax;
+        result = 31 * result + blueMin;
+        result = 31 * result + blueMax;
+        return result;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("SamosaColorRange[R(%d,%d) G(%d,%d) B(%d,%d)]",
+                             redMin, redMax, greenMin, greenMax, blueMin, blueMax);
+    }
+    
+    private static void checkBounds(String channel, int min, int max) throws IllegalArgumentException {
+        if (min < -1 || max > 256 || min >= max) {
+            throw new IllegalArgumentException("Invalid " + channel + " bounds: (" + min + ", " + max + ")");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,228 @@
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSlider;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.FlowLayout;
+import java.awt.Font;
+import java.awt.Frame;
+import java.awt.GridLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dialog for tuning the samosa color ranges against the loaded image.
+ * Each slider move is evaluated on a {@link SamosaColorHistogram} of the image, so the estimated
+ * area and coverage follow the sliders instantly however large the image is. The image is only
+ * rescanned after the user applies the new ranges.
+ */
+public class SamosaColorTuningDialog extends JDialog {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private static final String[] BOUND_NAMES = {"Red min", "Red max", "Green min", "Green max", "Blue min", "Blue max"};
+    
+    private final transient SamosaColorHistogram histogram;
+    private final ArrayList<SamosaColorRange> ranges;
+    private final JComboBox<String> rangeBox;
+    private final JSlider[] boundSliders = new JSlider[BOUND_NAMES.length];
+    private final JLabel[] boundLabels = new JLabel[BOUND_NAMES.length];
+    private final JLabel estimateLabel;
+    private final JButton applyButton;
+    private boolean loadingSliders = false;
+    private List<SamosaColorRange> appliedRanges;
+    
+    /**
+     * Creates a modal tuning dialog.
+     * 
+     * @param owner The frame the dialog belongs to
+     * @param histogram The color histogram of the image being tuned
+     * @param initialRanges The color ranges to start from
+     * @throws IllegalArgumentException if the histogram is null or the ranges are null or empty
+     */
+    public SamosaColorTuningDialog(Frame owner, SamosaColorHistogram histogram, List<SamosaColorRange> initialRanges)
+            throws IllegalArgumentException {
+        super(owner, "Tune Samosa Colors", true);
+        if (histogram == null) {
+            throw new IllegalArgumentException("Histogram cannot be null");
+        }
+        if (initialRanges == null || initialRanges.isEmpty()) {
+            throw new IllegalArgumentException("Color ranges cannot be null or empty");
+        }
+        
+        this.histogram = histogram;
+        this.ranges = new ArrayList<SamosaColorRange>(initialRanges);
+        
+        rangeBox = new JComboBox<String>();
+        rangeBox.setFont(new Font("Arial", Font.PLAIN, 12));
+        
+        JPanel sliderPanel = new JPanel(new GridLayout(BOUND_NAMES.length, 2, 10, 4));
+        sliderPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        ChangeListener boundListener = new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                if (!loadingSliders) {
+                    updateSelectedRange();
+                }
+            }
+        };
+        for (int i = 0; i < BOUND_NAMES.length; i++) {
+            // Bounds are exclusive: minimums run from -1 and maximums up to 256 to leave a channel open
+            boolean isMin = i % 2 == 0;
+            boundSliders[i] = new JSlider(isMin ? -1 : 0, isMin ? 255 : 256, 0);
+            boundSliders[i].addChangeListener(boundListener);
+            boundLabels[i] = new JLabel();
+            boundLabels[i].setFont(new Font("Arial", Font.PLAIN, 12));
+            sliderPanel.add(boundLabels[i]);
+            sliderPanel.add(boundSliders[i]);
+        }
+        
+        estimateLabel = new JLabel(" ");
+        estimateLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        estimateLabel.setForeground(new Color(139, 69, 19));
+        
+        applyButton = new JButton("Apply");
+        JButton resetButton = new JButton("Reset to Defaults");
+        JButton cancelButton = new JButton("Cancel");
+        
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        topPanel.add(new JLabel("Color range:"));
+        topPanel.add(rangeBox);
+        
+        JPanel estimatePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        estimatePanel.add(estimateLabel);
+        
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(resetButton);
+        buttonPanel.add(cancelButton);
+        buttonPanel.add(applyButton);
+        
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(estimatePanel, BorderLayout.CENTER);
+        bottomPanel.add(buttonPanel, BorderLayout.SOUTH);
+        
+        setLayout(new BorderLayout());
+        add(topPanel, BorderLayout.NORTH);
+        add(sliderPanel, BorderLayout.CENTER);
+        add(bottomPanel, BorderLayout.SOUTH);
+        
+        rangeBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                loadSliders();
+            }
+        });
+        
+        applyButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                appliedRanges = new ArrayList<SamosaColorRange>(ranges);
+                dispose();
+            }
+        });
+        
+        resetButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                ranges.clear();
+                ranges.addAll(ImageProcessor.DEFAULT_SAMOSA_RANGES);
+                loadRangeNames();
+            }
+        });
+        
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                dispose();
+            }
+        });
+        
+        loadRangeNames();
+        pack();
+        setLocationRelativeTo(owner);
+    }
+    
+    /**
+     * Shows the dialog and waits until it is closed.
+     * 
+     * @return The applied color ranges, or null if the dialog was cancelled
+     */
+    public List<SamosaColorRange> showDialog() {
+        setVisible(true);
+        return appliedRanges;
+    }
+    
+    private void loadRangeNames() {
+        loadingSliders = true;
+        rangeBox.removeAllItems();
+        for (int i = 0; i < ranges.size(); i++) {
+            rangeBox.addItem("Range " + (i + 1));
+        }
+        loadingSliders = false;
+        rangeBox.setSelectedIndex(0);
+        loadSliders();
+    }
+    
+    /**
+     * Moves the sliders to the bounds of the selected range without re-evaluating each one.
+     */
+    private void loadSliders() {
+        int index = rangeBox.getSelectedIndex();
+        if (loadingSliders || index < 0) {
+            return;
+        }
+        
+        SamosaColorRange range = ranges.get(index);
+        int[] bounds = {range.getRedMin(), range.getRedMax(), range.getGreenMin(), range.getGreenMax(),
+                        range.getBlueMin(), range.getBlueMax()};
+        loadingSliders = true;
+        for (int i = 0; i < bounds.length; i++) {
+            boundSliders[i].setValue(bounds[i]);
+            boundLabels[i].setText(BOUND_NAMES[i] + ": " + bounds[i]);
+        }
+        loadingSliders = false;
+        updateEstimate();
+    }
+    
+    /**
+     * Rebuilds the selected range from the sliders and re-evaluates all ranges on the histogram.
+     */
+    private void updateSelectedRange() {
+        int[] bounds = new int[boundSliders.length];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = boundSliders[i].getValue();
+            boundLabels[i].setText(BOUND_NAMES[i] + ": " + bounds[i]);
+        }
+        
+        for (int i = 0; i < bounds.length; i += 2) {
+            if (bounds[i] >= bounds[i + 1]) {
+                estimateLabel.setText("Invalid range: " + BOUND_NAMES[i] + " must be below " + BOUND_NAMES[i + 1]);
+                applyButton.setEnabled(false);
+                return;
+            }
+        }
+        
+        ranges.set(rangeBox.getSelectedIndex(),
+                   new SamosaColorRange(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]));
+        updateEstimate();
+    }
+    
+    private void updateEstimate() {
+        long start = System.nanoTime();
+        long samosaPixels = histogram.countMatching(ranges);
+        double coverage = AreaCalculator.calculateSamosaCoveragePercentage(samosaPixels, histogram.getTotalPixels());
+        long elapsedMicros = (System.nanoTime() - start) / 1000;
+        
+        estimateLabel.setText("Estimated Samosa Area: " + samosaPixels + " pixels ("
+                              + AreaCalculator.formatPercentage(coverage) + ") in " + elapsedMicros + " µs");
+        applyButton.setEnabled(true);
+    }
+}
\ No newline at end of file
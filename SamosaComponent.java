@@ -0,0 +1,137 @@
+import java.awt.Rectangle;
+
+/**
+ * One connected region of samosa pixels - normally one samosa on the plate.
+ * Produced by {@link SamosaComponentLabeler}; coordinates are pixel indices in the mask.
+ */
+public final class SamosaComponent {
+    
+    private final int label;
+    private final long area;
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+    private final double centroidX;
+    private final double centroidY;
+    private final int[] rowLeft;
+    private final int[] rowRight;
+    
+    /**
+     * Creates a new component.
+     * 
+     * @param label The component's index in raster order of its first pixel, starting at 0
+     * @param area The number of pixels in the component
+     * @param minX The leftmost column
+     * @param minY The topmost row
+     * @param maxX The rightmost column
+     * @param maxY The bottom row
+     * @param centroidX The mean column of the component's pixels
+     * @param centroidY The mean row of the component's pixels
+     * @param rowLeft The leftmost column of every row from minY to maxY
+     * @param rowRight The rightmost column of every row from minY to maxY
+     */
+    SamosaComponent(int label, long area, int minX, int minY, int maxX, int maxY, double centroidX, double centroidY,
+                    int[] rowLeft, int[] rowRight) {
+        this.label = label;
+        this.area = area;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.centroidX = centroidX;
+        this.centroidY = centroidY;
+        this.rowLeft = rowLeft;
+        this.rowRight = rowRight;
+    }
+    
+    /**
+     * Gets the component's label.
+     * 
+     * @return The index of the component in raster order of its first pixel
+     */
+    public int getLabel() {
+        return label;
+    }
+    
+    /**
+     * Gets the pixel area of the component.
+     * 
+     * @return The number of samosa pixels in the component
+     */
+    public long getArea() {
+        return area;
+    }
+    
+    /**
+     * Gets the smallest rectangle containing the component.
+     * 
+     * @return A new bounding rectangle
+     */
+    public Rectangle getBoundingBox() {
+        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+    
+    /**
+     * Gets the column of the component's center of mass.
+     * 
+     * @return The mean column of the component's pixels
+     */
+    public double getCentroidX() {
+        return centroidX;
+    }
+    
+    /**
+     * Gets the row of the component's center of mass.
+     * 
+     * @return The mean row of the component's pixels
+     */
+    public double getCentroidY() {
+        return centroidY;
+    }
+    
+    /**
+     * Gets the topmost row of the component.
+     * 
+     * @return The first row containing a pixel of the component
+     */
+    int getMinY() {
+        return minY;
+    }
+    
+    /**
+     * Gets the bottom row of the component.
+     * 
+     * @return The last row containing a pixel of the component
+     */
+    int getMaxY() {
+        return maxY;
+    }
+    
+    /**
+     * Gets the leftmost column of the component in one of its rows. A connected component
+     * covers every row between its top and bottom, so each row has an extent.
+     * 
+     * @param y The row, from {@link #getMinY()} to {@link #getMaxY()}
+     * @return The leftmost column in that row
+     */
+    int getRowLeft(int y) {
+        return rowLeft[y - minY];
+    }
+    
+    /**
+     * Gets the rightmost column of the component in one of its rows.
+     * 
+     * @param y The row, from {@link #getMinY()} to {@link #getMaxY()}
+     * @return The rightmost column in that row
+     */
+    int getRowRight(int y) {
+        return rowRight[y - minY];
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("SamosaComponent[#%d, area=%d, bounds=%d,%d %dx%d, centroid=%.1f,%.1f]",
+                             label, area, minX, minY, maxX - minX + 1, maxY - minY + 1, centroidX, centroidY);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,357 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+
+/**
+ * Splits a samosa mask into connected components so each samosa on a plate can be measured
+ * on its own.
+ * 
+ * Labeling works on runs of set bits rather than single pixels: each row's runs are found
+ * with word-level bit scans, runs that touch a run in the row above (8-connectivity) are
+ * joined in a union-find forest over primitive int arrays, and a second pass resolves every
+ * run to its component and accumulates area, bounds and centroid. Large masks are labeled
+ * in horizontal bands on a ForkJoinPool; the bands' forests are then concatenated and joined
+ * across the band boundaries, so the result is identical to a sequential pass.
+ */
+public class SamosaComponentLabeler {
+    
+    /** Components smaller than this many pixels are treated as speckle by default. */
+    public static final int DEFAULT_MIN_AREA = 64;
+    
+    /**
+     * Labels a mask with the default speckle filter and parallelism.
+     * 
+     * @param mask The samosa mask to label
+     * @return The components in raster order of their first pixel
+     * @throws IllegalArgumentException if the mask parameter is null
+     */
+    public static List<SamosaComponent> label(SamosaMask mask) throws IllegalArgumentException {
+        return label(mask, DEFAULT_MIN_AREA, ImageProcessor.DEFAULT_PARALLELISM);
+    }
+    
+    /**
+     * Labels a mask, dropping components below a minimum size.
+     * 
+     * @param mask The samosa mask to label
+     * @param minArea The smallest component, in pixels, to report
+     * @return The components in raster order of their first pixel
+     * @throws IllegalArgumentException if the mask parameter is null
+     */
+    public static List<SamosaComponent> label(SamosaMask mask, long minArea) throws IllegalArgumentException {
+        return label(mask, minArea, ImageProcessor.DEFAULT_PARALLELISM);
+    }
+    
+    /**
+     * Labels a mask, dropping components below a minimum size.
+     * 
+     * @param mask The samosa mask to label
+     * @param minArea The smallest component, in pixels, to report
+     * @param parallelism The maximum number of threads to use; 1 forces a sequential pass
+     * @return The components in raster order of their first pixel
+     * @throws IllegalArgumentException if the mask parameter is null or parallelism is less than 1
+     */
+    public static List<SamosaComponent> label(SamosaMask mask, long minArea, int parallelism) throws IllegalArgumentException {
+        if (mask == null) {
+            throw new IllegalArgumentException("Mask cannot be null");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        
+        RunTable runs = findRuns(mask, parallelism);
+        return collectComponents(runs, minArea);
+    }
+    
+    /**
+     * Extracts and locally joins the runs of every row, in parallel bands when the mask is large.
+     */
+    static RunTable findRuns(final SamosaMask mask, int parallelism) {
+        int width = mask.getWidth();
+        int height = mask.getHeight();
+        int bandRows = SamosaParallelScan.getBandRows(width, height, parallelism);
+        if (bandRows >= height) {
+            return labelBand(mask, 0, height);
+        }
+        
+        List<Callable<RunTable>> tasks = new ArrayList<Callable<RunTable>>();
+        for (int startRow = 0; startRow < height; startRow += bandRows) {
+            final int bandStart = startRow;
+            final int bandEnd = Math.min(height, startRow + bandRows);
+            tasks.add(new Callable<RunTable>() {
+                @Override
+                public RunTable call() {
+                    return labelBand(mask, bandStart, bandEnd);
+                }
+            });
+        }
+        
+        List<RunTable> bands = new ArrayList<RunTable>(tasks.size());
+        try {
+            for (Future<RunTable> future : SamosaParallelScan.getPool(parallelism).invokeAll(tasks)) {
+                bands.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while labeling components", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Component labeling failed: " + e.getCause(), e.getCause());
+        }
+        
+        return mergeBands(bands, height);
+    }
+    
+    /**
+     * First pass over one band: records every run and joins runs that touch the run above.
+     */
+    private static RunTable labelBand(SamosaMask mask, int startRow, int endRow) {
+        int width = mask.getWidth();
+        RunTable table = new RunTable(startRow, endRow, Math.max(16, (endRow - startRow) * 4));
+        
+        for (int y = startRow; y < endRow; y++) {
+            table.rowFirstRun[y - startRow] = table.count;
+            int x = mask.nextSetBit(0, y);
+            while (x >= 0) {
+                int end = mask.nextClearBit(x, y);
+                table.add(x, end, y);
+                x = end < width ? mask.nextSetBit(end, y) : -1;
+            }
+            if (y > startRow) {
+                joinRows(table, table.rowFirstRun[y - startRow - 1], table.rowFirstRun[y - startRow],
+                         table.rowFirstRun[y - startRow], table.count);
+            }
+        }
+        table.rowFirstRun[endRow - startRow] = table.count;
+        
+        return table;
+    }
+    
+    /**
+     * Concatenates band tables into one and joins runs across every band boundary.
+     */
+    private static RunTable mergeBands(List<RunTable> bands, int height) {
+        int total = 0;
+        for (RunTable band : bands) {
+            total += band.count;
+        }
+        
+        RunTable merged = new RunTable(0, height, total);
+        for (RunTable band : bands) {
+            int offset = merged.count;
+            System.arraycopy(band.startX, 0, merged.startX, offset, band.count);
+            System.arraycopy(band.endX, 0, merged.endX, offset, band.count);
+            System.arraycopy(band.row, 0, merged.row, offset, band.count);
+            for (int i = 0; i < band.count; i++) {
+                merged.parent[offset + i] = band.parent[i] + offset;
+            }
+            for (int y = band.startRow; y < band.endRow; y++) {
+                merged.rowFirstRun[y] = band.rowFirstRun[y - band.startRow] + offset;
+            }
+            merged.count += band.count;
+        }
+        merged.rowFirstRun[height] = merged.count;
+        
+        for (int i = 1; i < bands.size(); i++) {
+            int boundary = bands.get(i).startRow;
+            joinRows(merged, merged.rowFirstRun[boundary - 1], merged.rowFirstRun[boundary],
+                     merged.rowFirstRun[boundary], merged.rowFirstRun[boundary + 1]);
+        }
+        
+        return merged;
+    }
+    
+    /**
+     * Joins every run of one row with the runs of the row above that it touches, walking
+     * both rows' sorted runs together.
+     */
+    private static void joinRows(RunTable table, int aboveStart, int aboveEnd, int rowStart, int rowEnd) {
+        int above = aboveStart;
+        int current = rowStart;
+        while (above < aboveEnd && current < rowEnd) {
+            // Runs are half-open, so this also accepts runs that only touch diagonally
+            if (table.startX[above] <= table.endX[current] && table.startX[current] <= table.endX[above]) {
+                union(table.parent, above, current);
+            }
+            if (table.endX[above] < table.endX[current]) {
+                above++;
+            } else {
+                current++;
+            }
+        }
+    }
+    
+    /**
+     * Second pass: resolves each run to its root and accumulates per-component statistics.
+     * Roots are always the smallest run index of their set, so every root is visited before
+     * the runs that point to it and labels come out in raster order.
+     */
+    static List<SamosaComponent> collectComponents(RunTable table, long minArea) {
+        int[] parent = table.parent;
+        int[] labels = new int[table.count];
+        int labelCount = 0;
+        for (int i = 0; i < table.count; i++) {
+            int root = find(parent, i);
+            parent[i] = root;
+            labels[i] = root == i ? labelCount++ : labels[root];
+        }
+        
+        long[] area = new long[labelCount];
+        long[] sumX = new long[labelCount];
+        long[] sumY = new long[labelCount];
+        int[] minX = new int[labelCount];
+        int[] minY = new int[labelCount];
+        int[] maxX = new int[labelCount];
+        int[] maxY = new int[labelCount];
+        Arrays.fill(minX, Integer.MAX_VALUE);
+        Arrays.fill(minY, Integer.MAX_VALUE);
+        
+        for (int i = 0; i < table.count; i++) {
+            int label = labels[i];
+            int start = table.startX[i];
+            int end = table.endX[i];
+            int y = table.row[i];
+            long length = end - start;
+            
+            area[label] += length;
+            sumX[label] += (long) (start + end - 1) * length / 2;
+            sumY[label] += y * length;
+            minX[label] = Math.min(minX[label], start);
+            maxX[label] = Math.max(maxX[label], end - 1);
+            minY[label] = Math.min(minY[label], y);
+            maxY[label] = Math.max(maxY[label], y);
+        }
+        
+        // Per-row extents feed the shape analysis; they are only kept for components that pass the filter
+        int[][] rowLeft = new int[labelCount][];
+        int[][] rowRight = new int[labelCount][];
+        for (int label = 0; label < labelCount; label++) {
+            if (area[label] >= minArea) {
+                rowLeft[label] = new int[maxY[label] - minY[label] + 1];
+                rowRight[label] = new int[maxY[label] - minY[label] + 1];
+                Arrays.fill(rowLeft[label], Integer.MAX_VALUE);
+                Arrays.fill(rowRight[label], -1);
+            }
+        }
+        for (int i = 0; i < table.count; i++) {
+            int label = labels[i];
+            if (rowLeft[label] != null) {
+                int rowIndex = table.row[i] - minY[label];
+                rowLeft[label][rowIndex] = Math.min(rowLeft[label][rowIndex], table.startX[i]);
+                rowRight[label][rowIndex] = Math.max(rowRight[label][rowIndex], table.endX[i] - 1);
+            }
+        }
+        
+        List<SamosaComponent> components = new ArrayList<SamosaComponent>();
+        for (int label = 0; label < labelCount; label++) {
+            if (rowLeft[label] == null) {
+                continue;
+            }
+            components.add(new SamosaComponent(components.size(), area[label],
+                                               minX[label], minY[label], maxX[label], maxY[label],
+                                               (double) sumX[label] / area[label], (double) sumY[label] / area[label],
+                                               rowLeft[label], rowRight[label]));
+        }
+        return Collections.unmodifiableList(components);
+    }
+    
+    /**
+     * Finds the root of a run, halving the path as it goes.
+     */
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+    
+    /**
+     * Joins two sets, keeping the smaller root so roots stay the first run of their component.
+     */
+    private static void union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+    
+    /**
+     * Runs of one band of rows, in raster order, with their union-find parents.
+     */
+    static final class RunTable {
+        
+        final int startRow;
+        final int endRow;
+        final int[] rowFirstRun;
+        int[] startX;
+        int[] endX;
+        int[] row;
+        int[] parent;
+        int count;
+        
+        RunTable(int startRow, int endRow, int capacity) {
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.rowFirstRun = new int[endRow - startRow + 1];
+            this.startX = new int[capacity];
+            this.endX = new int[capacity];
+            this.row = new int[capacity];
+            this.parent = new int[capacity];
+        }
+        
+        void add(int start, int end, int y) {
+            if (count == startX.length) {
+                int capacity = count + (count >> 1) + 16;
+                startX = Arrays.copyOf(startX, capacity);
+                endX = Arrays.copyOf(endX, capacity);
+                row = Arrays.copyOf(row, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+            }
+            startX[count] = start;
+            endX[count] = end;
+            row[count] = y;
+            parent[count] = count;
+            count++;
+        }
+    }
+    
+    /**
+     * Main method for testing the SamosaComponentLabeler functionality.
+     * 
+     * @param args Paths of image files to label
+     */
+    public static void main(String[] args) {
+        System.out.println("SamosaComponentLabeler Test");
+        System.out.println("===========================");
+        
+        for (String path : args) {
+            try {
+                BufferedImage image = ImageIO.read(new File(path));
+                if (image == null) {
+                    System.out.println(path + ": Error - unsupported format");
+                    continue;
+                }
+                SamosaMask mask = ImageProcessor.detectSamosaMask(image);
+                long start = System.nanoTime();
+                List<SamosaComponent> components = label(mask);
+                long elapsedMillis = (System.nanoTime() - start) / 1000000;
+                
+                System.out.println(path + ": " + components.size() + " samosas labeled in " + elapsedMillis + " ms");
+                for (SamosaComponent component : components) {
+                    System.out.println("  " + component);
+                }
+            } catch (Exception e) {
+                System.out.println(path + ": Error - " + e.getMessage());
+            }
+        }
+    }
+}
\ No newline at end of file
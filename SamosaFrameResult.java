@@ -0,0 +1,106 @@
+/**
+ * Immutable result of analyzing one frame of an image sequence.
+ * Holds the frame's samosa statistics together with how much of the frame had to be reclassified.
+ */
+public final class SamosaFrameResult {
+    
+    private final long frameIndex;
+    private final long samosaPixelCount;
+    private final long totalPixels;
+    private final double coveragePercentage;
+    private final int changedTiles;
+    private final int totalTiles;
+    
+    /**
+     * Creates a new frame result.
+     * 
+     * @param frameIndex The position of the frame in the sequence, starting at 0
+     * @param samosaPixelCount The number of samosa pixels in the frame
+     * @param totalPixels The total number of pixels in the frame
+     * @param coveragePercentage The percentage of samosa pixels (0.0 to 100.0)
+     * @param changedTiles The number of tiles that were reclassified for this frame
+     * @param totalTiles The number of tiles the frame is split into
+     */
+    SamosaFrameResult(long frameIndex, long samosaPixelCount, long totalPixels, double coveragePercentage,
+                      int changedTiles, int totalTiles) {
+        this.frameIndex = frameIndex;
+        this.samosaPixelCount = samosaPixelCount;
+        this.totalPixels = totalPixels;
+        this.coveragePercentage = coveragePercentage;
+        this.changedTiles = changedTiles;
+        this.totalTiles = totalTiles;
+    }
+    
+    /**
+     * Gets the position of the frame in its sequence.
+     * 
+     * @return The frame index, starting at 0
+     */
+    public long getFrameIndex() {
+        return frameIndex;
+    }
+    
+    /**
+     * Gets the number of samosa pixels in the frame.
+     * 
+     * @return The samosa pixel count
+     * @throws ArithmeticException if the count does not fit in an int; use
+     *         {@link #getSamosaPixelCountAsLong()} for frames of more than 2^31 pixels
+     */
+    public int getSamosaPixelCount() throws ArithmeticException {
+        return Math.toIntExact(samosaPixelCount);
+    }
+    
+    /**
+     * Gets the number of samosa pixels in the frame.
+     * 
+     * @return The samosa pixel count, which may exceed {@link Integer#MAX_VALUE}
+     */
+    public long getSamosaPixelCountAsLong() {
+        return samosaPixelCount;
+    }
+    
+    /**
+     * Gets the total number of pixels in the frame.
+     * 
+     * @return The total pixel count (width * height)
+     */
+    public long getTotalPixels() {
+        return totalPixels;
+    }
+    
+    /**
+     * Gets the percentage of the frame covered by samosa pixels.
+     * 
+     * @return The coverage percentage (0.0 to 100.0)
+     */
+    public double getCoveragePercentage() {
+        return coveragePercentage;
+    }
+    
+    /**
+     * Gets the number of tiles that were reclassified for this frame.
+     * 
+     * @return The changed tile count; every tile for the first frame of a sequence
+     */
+    public int getChangedTiles() {
+        return changedTiles;
+    }
+    
+    /**
+     * Gets the number of tiles the frame is split into.
+     * 
+     * @return The total tile count
+     */
+    public int getTotalTiles() {
+        return totalTiles;
+    }
+    
+    @Override
+    public String toString() {
+        return "SamosaFrameResult[frame=" + frameIndex +
+               ", samosaPixels=" + samosaPixelCount +
+               ", coverage=" + AreaCalculator.formatPercentage(coveragePercentage) +
+               ", changedTiles=" + changedTiles + "/" + totalTiles + "]";
+    }
+}
\ No newline at end of file
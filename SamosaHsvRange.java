@@ -0,0 +1,176 @@
+/**
+ * A hue, saturation and value range used by samosa classifier profiles.
+ * Unlike {@link SamosaColorRange} all bounds are inclusive. Hue is in degrees and may wrap
+ * through red: a range from 340 to 20 covers 340-360 and 0-20. Saturation and value run
+ * from 0.0 to 1.0. HSV ranges are only evaluated while a lookup table is built, never per pixel.
+ */
+public final class SamosaHsvRange {
+    
+    private final float hueMin;
+    private final float hueMax;
+    private final float saturationMin;
+    private final float saturationMax;
+    private final float valueMin;
+    private final float valueMax;
+    
+    /**
+     * Creates a new HSV range with inclusive bounds.
+     * 
+     * @param hueMin The lower hue bound in degrees (0-360)
+     * @param hueMax The upper hue bound in degrees (0-360); below hueMin to wrap through red
+     * @param saturationMin The lower saturation bound (0.0-1.0)
+     * @param saturationMax The upper saturation bound (0.0-1.0)
+     * @param valueMin The lower value bound (0.0-1.0)
+     * @param valueMax The upper value bound (0.0-1.0)
+     * @throws IllegalArgumentException if a bound is out of range or a minimum exceeds its maximum
+     */
+    public SamosaHsvRange(float hueMin, float hueMax, float saturationMin, float saturationMax,
+                          float valueMin, float valueMax) throws IllegalArgumentException {
+        if (!(hueMin >= 0 && hueMin <= 360 && hueMax >= 0 && hueMax <= 360)) {
+            throw new IllegalArgumentException("Invalid hue bounds: [" + hueMin + ", " + hueMax + "]");
+        }
+        checkBounds("saturation", saturationMin, saturationMax);
+        checkBounds("value", valueMin, valueMax);
+        
+        this.hueMin = hueMin;
+        this.hueMax = hueMax;
+        this.saturationMin = saturationMin;
+        this.saturationMax = saturationMax;
+        this.valueMin = valueMin;
+        this.valueMax = valueMax;
+    }
+    
+    /**
+     * Checks whether an RGB triple lies inside this range.
+     * 
+     * @param red The red component (0-255)
+     * @param green The green component (0-255)
+     * @param blue The blue component (0-255)
+     * @return true if the color's hue, saturation and value all lie within the bounds
+     */
+    public boolean contains(int red, int green, int blue) {
+        int max = Math.max(red, Math.max(green, blue));
+        int min = Math.min(red, Math.min(green, blue));
+        float value = max / 255f;
+        if (value < valueMin || value > valueMax) {
+            return false;
+        }
+        
+        int chroma = max - min;
+        float saturation = max == 0 ? 0f : (float) chroma / max;
+        if (saturation < saturationMin || saturation > saturationMax) {
+            return false;
+        }
+        
+        // Grays have no hue; treat it as 0 like java.awt.Color.RGBtoHSB
+        float hue;
+        if (chroma == 0) {
+            hue = 0f;
+        } else if (max == red) {
+            hue = 60f * (green - blue) / chroma;
+            if (hue < 0) {
+                hue += 360f;
+            }
+        } else if (max == green) {
+            hue = 60f * (blue - red) / chroma + 120f;
+        } else {
+            hue = 60f * (red - green) / chroma + 240f;
+        }
+        
+        if (hueMin <= hueMax) {
+            return hue >= hueMin && hue <= hueMax;
+        }
+        return hue >= hueMin || hue <= hueMax;
+    }
+    
+    /**
+     * Gets the lower hue bound.
+     * 
+     * @return The bound in degrees
+     */
+    public float getHueMin() {
+        return hueMin;
+    }
+    
+    /**
+     * Gets the upper hue bound.
+     * 
+     * @return The bound in degrees
+     */
+    public float getHueMax() {
+        return hueMax;
+    }
+    
+    /**
+     * Gets the lower saturation bound.
+     * 
+     * @return The bound value
+     */
+    public float getSaturationMin() {
+        return saturationMin;
+    }
+    
+    /**
+     * Gets the upper saturation bound.
+     * 
+     * @return The bound value
+     */
+    public float getSaturationMax() {
+        return saturationMax;
+    }
+    
+    /**
+     * Gets the lower value bound.
+     * 
+     * @return The bound value
+     */
+    public float getValueMin() {
+        return valueMin;
+    }
+    
+    /**
+     * Gets the upper value bound.
+     * 
+     * @return The bound value
+     */
+    public float getValueMax() {
+        return valueMax;
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof SamosaHsvRange)) {
+            return false;
+        }
+        SamosaHsvRange range = (SamosaHsvRange) other;
+        return Float.compare(hueMin, range.hueMin) == 0 && Float.compare(hueMax, range.hueMax) == 0 &&
+               Float.compare(saturationMin, range.saturationMin) == 0 && Float.compare(saturationMax, range.saturationMax) == 0 &&
+               Float.compare(valueMin, range.valueMin) == 0 && Float.compare(valueMax, range.valueMax) == 0;
+    }
+    
+    @Override
+    public int hashCode() {
+        int result = Float.floatToIntBits(hueMin);
+        result = 31 * result + Float.floatToIntBits(hueMax);
+        result = 31 * result + Float.floatToIntBits(saturationMin);
+        result = 31 * result + Float.floatToIntBits(saturationMax);
+        result = 31 * result + Float.floatToIntBits(valueMin);
+        result = 31 * result + Float.floatToIntBits(valueMax);
+        return result;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("SamosaHsvRange[H[%s,%s] S[%s,%s] V[%s,%s]]",
+                             hueMin, hueMax, saturationMin, saturationMax, valueMin, valueMax);
+    }
+    
+    private static void checkBounds(String channel, float min, float max) throws IllegalArgumentException {
+        if (!(min >= 0 && max <= 1 && min <= max)) {
+            throw new IllegalArgumentException("Invalid " + channel + " bounds: [" + min + ", " + max + "]");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unique ids for images named in flight recordings, so that {@link SamosaImageLoadEvent} and
+ * {@link SamosaAnalysisEvent} can be matched up even when images come and go.
+ * 
+ * Ids come from a counter and are never reused, unlike identity hash codes. Images loaded from
+ * a file are registered with the file name; any other image is given an id the first time it is
+ * asked about. Images are held weakly, so registering one never keeps it alive.
+ */
+final class SamosaImageIds {
+    
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+    private static final Map<BufferedImage, Origin> ORIGINS =
+            Collections.synchronizedMap(new WeakHashMap<BufferedImage, Origin>());
+    
+    private SamosaImageIds() {
+    }
+    
+    /**
+     * Where an image came from: its id and, for images read from disk, the file name.
+     */
+    static final class Origin {
+        
+        final long id;
+        final String fileName;
+        
+        Origin(long id, String fileName) {
+            this.id = id;
+            this.fileName = fileName;
+        }
+    }
+    
+    /**
+     * Assigns a new id to an image that was just decoded from a file.
+     * 
+     * @param image The decoded image
+     * @param fileName The name of the file it was decoded from
+     * @return The image's new id
+     */
+    static long register(BufferedImage image, String fileName) {
+        Origin origin = new Origin(NEXT_ID.getAndIncrement(), fileName);
+        ORIGINS.put(image, origin);
+        return origin.id;
+    }
+    
+    /**
+     * Gets the origin of an image, assigning it a new id without a file name if it was
+     * never registered.
+     * 
+     * @param image The image
+     * @return The image's origin
+     */
+    static Origin get(BufferedImage image) {
+        synchronized (ORIGINS) {
+            Origin origin = ORIGINS.get(image);
+            if (origin == null) {
+                origin = new Origin(NEXT_ID.getAndIncrement(), null);
+                ORIGINS.put(image, origin);
+            }
+            return origin;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,47 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event covering one image file being decoded by {@link ImageLoader}.
+ * The image id matches {@link SamosaAnalysisEvent#imageId}, so analyses in a recording can be
+ * traced back to the file they came from.
+ * 
+ * Stack traces are off, and fields are only filled in when the event will be committed,
+ * so the event is cheap enough to leave enabled in production recordings.
+ */
+@Name("samosascope.ImageLoad")
+@Label("Image Load")
+@Category({"SamosaScope", "Images"})
+@Description("An image file decoded, or failed to decode, by ImageLoader")
+@StackTrace(false)
+class SamosaImageLoadEvent extends Event {
+    
+    @Label("File Name")
+    String fileName;
+    
+    @Label("File Size")
+    @DataAmount
+    long fileSize;
+    
+    @Label("Image Id")
+    @Description("Unique id of the decoded image, shared with the analysis events for it")
+    long imageId;
+    
+    @Label("Width")
+    int width;
+    
+    @Label("Height")
+    int height;
+    
+    @Label("Image Type")
+    String imageType;
+    
+    @Label("Loaded")
+    @Description("Whether the file was decoded into an image")
+    boolean loaded;
+}
\ No newline at end of file
@@ -0,0 +1,998 @@
+import javax.swing.BorderFactory;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Image display component for the Samosa Viewer.
+ * Shows the loaded image scaled to fit the panel, and composites the samosa detection mask over it
+ * at paint time. Scaling goes through {@link SamosaImageScaler}, which caches the result per image
+ * and size, and runs on a background thread: after a resize the previous fitted image is drawn
+ * stretched to the new size, and rescaled once the size has stopped changing. The overlay is kept at display
+ * resolution, so toggling it or changing its opacity is just a repaint, and changing its color only
+ * rebuilds the small display-sized overlay - the full-resolution image is never reprocessed.
+ * 
+ * The mouse wheel zooms in around the cursor, up to {@link #MAX_ZOOM} display pixels per image
+ * pixel, and dragging with the middle button - or the left button when no region is being
+ * drawn - pans. Zoomed views, and fitted views of very large images, are drawn from a
+ * {@link SamosaImagePyramid}: only the visible tiles of the level matching the zoom are drawn,
+ * and tiles not rendered yet are filled in from coarser cached ones while a
+ * {@link SamosaTileCache} renders them in the background. Painting never waits for pixels, so
+ * panning and zooming cost the same whatever the image size. The overlay is tiled the same way.
+ * 
+ * A rectangular or polygonal region can be drawn over the image with the mouse. The region is
+ * kept in full-resolution image coordinates, mapped through the same scale the display uses,
+ * and reported to a {@link RegionListener} on every mouse event so it can be measured live.
+ */
+public class SamosaImagePanel extends JPanel {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /** Size the image is fitted into when the panel reports its preferred size. */
+    private static final int MAX_DISPLAY_WIDTH = 700;
+    private static final int MAX_DISPLAY_HEIGHT = 500;
+    
+    /** Selection mode in which mouse input is ignored. */
+    public static final int SELECT_NONE = 0;
+    
+    /** Selection mode in which dragging draws a rectangle. */
+    public static final int SELECT_RECTANGLE = 1;
+    
+    /** Selection mode in which clicks add polygon vertices; a double-click or a click on the first vertex closes it. */
+    public static final int SELECT_POLYGON = 2;
+    
+    /** Largest zoom, in display pixels per image pixel. */
+    public static final double MAX_ZOOM = 32.0;
+    
+    /** Zoom factor of one mouse wheel notch. */
+    private static final double WHEEL_ZOOM_STEP = 1.25;
+    
+    /** Time after the last pan or zoom step before tiles are redrawn with smooth interpolation. */
+    private static final int SETTLE_DELAY_MILLIS = 150;
+    
+    /** Time after the last change of the fitted size before the image is rescaled to it. */
+    private static final int RESCALE_DELAY_MILLIS = 100;
+    
+    /** Images up to this many pixels are fitted through one scaled image; larger ones always through tiles. */
+    private static final long DIRECT_SCALE_MAX_PIXELS = 48L << 20;
+    
+    /** Distance in display pixels within which a click snaps to the first polygon vertex. */
+    private static final int CLOSE_DISTANCE = 6;
+    
+    private static final Color REGION_COLOR = new Color(30, 144, 255);
+    private static final Color REGION_FILL = new Color(30, 144, 255, 50);
+    
+    /**
+     * Receives the selected region whenever it changes, including every step of a drag.
+     */
+    public interface RegionListener {
+        
+        /**
+         * Called when the region changes. At most one of the arguments is non-null;
+         * both are null once the region is cleared.
+         * 
+         * @param rectangle The selected rectangle in image coordinates, or null
+         * @param polygon The selected polygon in image coordinates, or null
+         */
+        void regionChanged(Rectangle rectangle, Polygon polygon);
+    }
+    
+    private transient BufferedImage sourceImage;
+    private transient BufferedImage displayImage;
+    
+    /** Size of the fitted view, which displayImage is stretched to until it is rescaled to match. */
+    private int displayWidth;
+    private int displayHeight;
+    private final Timer rescaleTimer;
+    private transient SwingWorker<BufferedImage, Void> rescaleWorker;
+    private transient SamosaMask mask;
+    private transient BufferedImage overlayImage;
+    private boolean overlayVisible = false;
+    private Color overlayColor = Color.RED;
+    private float overlayOpacity = 0.6f;
+    private String placeholderText = "No image loaded";
+    
+    private int imageWidth;
+    private int imageHeight;
+    private int selectionMode = SELECT_NONE;
+    private Point dragStart;
+    private Rectangle selectedRectangle;
+    private Polygon selectedPolygon;
+    private boolean polygonOpen = false;
+    private transient RegionListener regionListener;
+    
+    private final transient SamosaTileCache tileCache;
+    private transient SamosaImagePyramid pyramid;
+    private transient SamosaTileCache.TileRenderer overlayRenderer;
+    
+    /** While set, the image is fitted to the panel; otherwise zoom and viewX/viewY are kept across resizes. */
+    private boolean fitToWindow = true;
+    private double zoom = 1.0;
+    private double viewX;
+    private double viewY;
+    
+    /** Mapping from image to panel coordinates, refreshed by updateView before each use. */
+    private double viewScaleX = 1.0;
+    private double viewScaleY = 1.0;
+    
+    /** Set while panning or zooming, when tiles are drawn with the much cheaper nearest-neighbor interpolation. */
+    private boolean interacting = false;
+    private final Timer settleTimer;
+    
+    private Point panStart;
+    private double panViewX;
+    private double panViewY;
+    
+    /**
+     * Creates an empty image panel showing a placeholder message.
+     */
+    public SamosaImagePanel() {
+        setBackground(Color.WHITE);
+        setBorder(BorderFactory.createEtchedBorder());
+        setFont(new Font("Arial", Font.PLAIN, 16));
+        setForeground(Color.GRAY);
+        
+        // Tiles arrive on rendering threads; repaint requests made meanwhile are coalesced
+        tileCache = new SamosaTileCache(new SamosaTileCache.TileListener() {
+            @Override
+            public void tileReady(SamosaTileCache.TileRenderer renderer, int level, int tileX, int tileY) {
+                repaint();
+            }
+        });
+        
+        settleTimer = new Timer(SETTLE_DELAY_MILLIS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                interacting = false;
+                repaint();
+            }
+        });
+        settleTimer.setRepeats(false);
+        
+        // A live resize produces a new size on every step; only the size it ends at is scaled to
+        rescaleTimer = new Timer(RESCALE_DELAY_MILLIS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                startRescale();
+            }
+        });
+        rescaleTimer.setRepeats(false);
+        
+        MouseAdapter selectionHandler = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (isPanTrigger(e)) {
+                    startPan(e);
+                } else {
+                    handlePress(e);
+                }
+            }
+            
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (panStart != null) {
+                    pan(e);
+                } else if (selectionMode == SELECT_RECTANGLE && dragStart != null) {
+                    updateRectangle(e);
+                }
+            }
+            
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                if (panStart != null) {
+                    panStart = null;
+                } else if (selectionMode == SELECT_RECTANGLE && dragStart != null) {
+                    updateRectangle(e);
+                    dragStart = null;
+                    if (selectedRectangle.isEmpty()) {
+                        clearSelection();
+                    }
+                }
+            }
+            
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                if (selectionMode == SELECT_POLYGON && polygonOpen) {
+                    Point point = toImagePoint(e.getX(), e.getY());
+                    int last = selectedPolygon.npoints - 1;
+                    selectedPolygon.xpoints[last] = point.x;
+                    selectedPolygon.ypoints[last] = point.y;
+                    selectedPolygon.invalidate();
+                    fireRegionChanged();
+                }
+            }
+            
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if (sourceImage != null) {
+                    zoomAround(Math.pow(WHEEL_ZOOM_STEP, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+                }
+            }
+        };
+        addMouseListener(selectionHandler);
+        addMouseMotionListener(selectionHandler);
+        addMouseWheelListener(selectionHandler);
+    }
+    
+    /**
+     * Sets the image to display, fitted to the panel. It is scaled in the background when first
+     * painted, and again only when the panel changes size. Any previous mask is cleared.
+     * 
+     * @param image The full-resolution image, or null to show the placeholder
+     */
+    public void setImage(BufferedImage image) {
+        mask = null;
+        overlayImage = null;
+        overlayVisible = false;
+        clearSelection();
+        
+        // Tiles of the previous image are dropped, including those still queued
+        tileCache.clear();
+        overlayRenderer = null;
+        panStart = null;
+        fitToWindow = true;
+        
+        sourceImage = image;
+        displayImage = null;
+        displayWidth = 0;
+        displayHeight = 0;
+        rescaleTimer.stop();
+        rescaleWorker = null;
+        pyramid = image == null ? null : new SamosaImagePyramid(image);
+        imageWidth = image == null ? 0 : image.getWidth();
+        imageHeight = image == null ? 0 : image.getHeight();
+        
+        revalidate();
+        repaint();
+    }
+    
+    /**
+     * Sets the samosa mask to overlay. The mask must have the size of the displayed image.
+     * 
+     * @param mask The detection mask, or null to remove the overlay
+     */
+    public void setMask(SamosaMask mask) {
+        this.mask = mask;
+        this.overlayImage = null;
+        dropOverlayTiles();
+        if (mask == null) {
+            overlayVisible = false;
+        }
+        repaint();
+    }
+    
+    /**
+     * Shows or hides the mask overlay.
+     * 
+     * @param visible true to composite the mask over the image
+     */
+    public void setOverlayVisible(boolean visible) {
+        this.overlayVisible = visible;
+        repaint();
+    }
+    
+    /**
+     * Checks whether the mask overlay is currently shown.
+     * 
+     * @return true if the overlay is shown and a mask is available
+     */
+    public boolean isOverlayVisible() {
+        return overlayVisible && mask != null;
+    }
+    
+    /**
+     * Sets the color used to paint samosa pixels in the overlay.
+     * 
+     * @param color The overlay color
+     * @throws IllegalArgumentException if the color parameter is null
+     */
+    public void setOverlayColor(Color color) throws IllegalArgumentException {
+        if (color == null) {
+            throw new IllegalArgumentException("Overlay color cannot be null");
+        }
+        this.overlayColor = color;
+        this.overlayImage = null;
+        dropOverlayTiles();
+        repaint();
+    }
+    
+    /**
+     * Gets the color used to paint samosa pixels in the overlay.
+     * 
+     * @return The overlay color
+     */
+    public Color getOverlayColor() {
+        return overlayColor;
+    }
+    
+    /**
+     * Sets the opacity of the overlay.
+     * 
+     * @param opacity The opacity from 0.0 (invisible) to 1.0 (opaque)
+     * @throws IllegalArgumentException if the opacity is outside 0.0 to 1.0
+     */
+    public void setOverlayOpacity(float opacity) throws IllegalArgumentException {
+        if (opacity < 0.0f || opacity > 1.0f) {
+            throw new IllegalArgumentException("Overlay opacity must be between 0.0 and 1.0: " + opacity);
+        }
+        this.overlayOpacity = opacity;
+        repaint();
+    }
+    
+    /**
+     * Gets the opacity of the overlay.
+     * 
+     * @return The opacity from 0.0 to 1.0
+     */
+    public float getOverlayOpacity() {
+        return overlayOpacity;
+    }
+    
+    /**
+     * Fits the whole image to the panel again, undoing any zoom and pan.
+     */
+    public void fitToWindow() {
+        fitToWindow = true;
+        repaint();
+    }
+    
+    /**
+     * Checks whether the image is currently fitted to the panel.
+     * 
+     * @return true if the image is fitted, false if it has been zoomed or panned
+     */
+    public boolean isFitToWindow() {
+        return fitToWindow;
+    }
+    
+    /**
+     * Gets the current zoom.
+     * 
+     * @return Display pixels per image pixel, or 0 if no image is loaded
+     */
+    public double getZoom() {
+        if (sourceImage == null) {
+            return 0;
+        }
+        updateView();
+        return viewScaleX;
+    }
+    
+    /**
+     * Zooms in or out around the center of the panel. Zooming out past the fitted size fits the image.
+     * 
+     * @param factor The zoom multiplier; above 1 zooms in
+     * @throws IllegalArgumentException if the factor is not positive
+     */
+    public void zoomBy(double factor) throws IllegalArgumentException {
+        if (!(factor > 0)) {
+            throw new IllegalArgumentException("Zoom factor must be positive: " + factor);
+        }
+        if (sourceImage != null) {
+            zoomAround(factor, getWidth() / 2, getHeight() / 2);
+        }
+    }
+    
+    /**
+     * Sets how mouse input draws a region. Changing the mode clears the current region.
+     * 
+     * @param mode One of {@link #SELECT_NONE}, {@link #SELECT_RECTANGLE} or {@link #SELECT_POLYGON}
+     * @throws IllegalArgumentException if the mode is not one of the selection modes
+     */
+    public void setSelectionMode(int mode) throws IllegalArgumentException {
+        if (mode != SELECT_NONE && mode != SELECT_RECTANGLE && mode != SELECT_POLYGON) {
+            throw new IllegalArgumentException("Unknown selection mode: " + mode);
+        }
+        this.selectionMode = mode;
+        clearSelection();
+    }
+    
+    /**
+     * Gets how mouse input draws a region.
+     * 
+     * @return The current selection mode
+     */
+    public int getSelectionMode() {
+        return selectionMode;
+    }
+    
+    /**
+     * Sets the listener told about every change of the selected region.
+     * 
+     * @param listener The listener, or null to stop reporting
+     */
+    public void setRegionListener(RegionListener listener) {
+        this.regionListener = listener;
+    }
+    
+    /**
+     * Gets the selected rectangle.
+     * 
+     * @return A copy of the rectangle in image coordinates, or null if no rectangle is selected
+     */
+    public Rectangle getSelectedRectangle() {
+        return selectedRectangle == null ? null : new Rectangle(selectedRectangle);
+    }
+    
+    /**
+     * Gets the selected polygon. While the polygon is still being drawn its last vertex
+     * follows the mouse.
+     * 
+     * @return A copy of the polygon in image coordinates, or null if no polygon is selected
+     */
+    public Polygon getSelectedPolygon() {
+        if (selectedPolygon == null) {
+            return null;
+        }
+        return new Polygon(selectedPolygon.xpoints, selectedPolygon.ypoints, selectedPolygon.npoints);
+    }
+    
+    /**
+     * Removes the selected region and reports the change.
+     */
+    public void clearSelection() {
+        boolean hadSelection = selectedRectangle != null || selectedPolygon != null;
+        dragStart = null;
+        selectedRectangle = null;
+        selectedPolygon = null;
+        polygonOpen = false;
+        if (hadSelection) {
+            fireRegionChanged();
+        }
+    }
+    
+    /**
+     * Sets the message shown while no image is loaded.
+     * 
+     * @param text The placeholder text
+     */
+    public void setPlaceholderText(String text) {
+        this.placeholderText = text;
+        repaint();
+    }
+    
+    @Override
+    public Dimension getPreferredSize() {
+        if (sourceImage == null) {
+            return super.getPreferredSize();
+        }
+        Dimension fitted = fitSize(MAX_DISPLAY_WIDTH, MAX_DISPLAY_HEIGHT);
+        return new Dimension(fitted.width + 4, fitted.height + 4);
+    }
+    
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2d = (Graphics2D) g;
+        
+        if (sourceImage == null) {
+            paintPlaceholder(g2d);
+            return;
+        }
+        
+        updateView();
+        boolean tiled = !fitToWindow || !isDirectlyScaled() || displayImage == null;
+        if (tiled) {
+            paintTiles(g2d, pyramid, true);
+        } else {
+            g2d.drawImage(displayImage, (int) viewX, (int) viewY, displayWidth, displayHeight, null);
+        }
+        
+        if (isOverlayVisible()) {
+            Composite previous = g2d.getComposite();
+            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, overlayOpacity));
+            if (tiled) {
+                if (overlayRenderer == null) {
+                    overlayRenderer = createOverlayRenderer(mask, 0xFF000000 | overlayColor.getRGB());
+                }
+                paintTiles(g2d, overlayRenderer, false);
+            } else {
+                if (overlayImage == null) {
+                    overlayImage = buildOverlay();
+                }
+                g2d.drawImage(overlayImage, (int) viewX, (int) viewY, displayWidth, displayHeight, null);
+            }
+            g2d.setComposite(previous);
+        }
+        
+        Shape region = selectedRectangle != null ? selectedRectangle : selectedPolygon;
+        if (region != null) {
+            AffineTransform toDisplay = new AffineTransform();
+            toDisplay.translate(viewX, viewY);
+            toDisplay.scale(viewScaleX, viewScaleY);
+            Shape displayRegion = toDisplay.createTransformedShape(region);
+            g2d.setColor(REGION_FILL);
+            g2d.fill(displayRegion);
+            g2d.setColor(REGION_COLOR);
+            g2d.setStroke(new BasicStroke(2f));
+            g2d.draw(displayRegion);
+        }
+    }
+    
+    /**
+     * Starts a rectangle, or adds, closes or restarts a polygon. A right click clears the region.
+     */
+    private void handlePress(MouseEvent e) {
+        if (sourceImage == null || selectionMode == SELECT_NONE) {
+            return;
+        }
+        if (SwingUtilities.isRightMouseButton(e)) {
+            clearSelection();
+            return;
+        }
+        if (!SwingUtilities.isLeftMouseButton(e)) {
+            return;
+        }
+        
+        Point point = toImagePoint(e.getX(), e.getY());
+        if (selectionMode == SELECT_RECTANGLE) {
+            selectedPolygon = null;
+            dragStart = point;
+            selectedRectangle = new Rectangle(point.x, point.y, 0, 0);
+            fireRegionChanged();
+            return;
+        }
+        
+        if (!polygonOpen) {
+            // The second vertex is the rubber band that follows the mouse
+            selectedRectangle = null;
+            selectedPolygon = new Polygon();
+            selectedPolygon.addPoint(point.x, point.y);
+            selectedPolygon.addPoint(point.x, point.y);
+            polygonOpen = true;
+        } else if (selectedPolygon.npoints > 3 && (e.getClickCount() >= 2 || isNearFirstVertex(e.getX(), e.getY()))) {
+            // Drop the rubber band vertex, which sits on the closing click
+            selectedPolygon = new Polygon(selectedPolygon.xpoints, selectedPolygon.ypoints, selectedPolygon.npoints - 1);
+            polygonOpen = false;
+        } else {
+            selectedPolygon.addPoint(point.x, point.y);
+        }
+        fireRegionChanged();
+    }
+    
+    private void updateRectangle(MouseEvent e) {
+        Point point = toImagePoint(e.getX(), e.getY());
+        int left = Math.min(dragStart.x, point.x);
+        int top = Math.min(dragStart.y, point.y);
+        selectedRectangle = new Rectangle(left, top, Math.abs(point.x - dragStart.x), Math.abs(point.y - dragStart.y));
+        fireRegionChanged();
+    }
+    
+    private boolean isNearFirstVertex(int displayX, int displayY) {
+        updateView();
+        double firstX = viewX + selectedPolygon.xpoints[0] * viewScaleX;
+        double firstY = viewY + selectedPolygon.ypoints[0] * viewScaleY;
+        return Math.abs(displayX - firstX) <= CLOSE_DISTANCE && Math.abs(displayY - firstY) <= CLOSE_DISTANCE;
+    }
+    
+    /**
+     * Maps a point on the panel to the nearest pixel corner of the full-resolution image,
+     * undoing the view offset and the display scale. Points off the image are clamped to its edge.
+     */
+    private Point toImagePoint(int displayX, int displayY) {
+        updateView();
+        long x = Math.round((displayX - viewX) / viewScaleX);
+        long y = Math.round((displayY - viewY) / viewScaleY);
+        return new Point((int) Math.max(0, Math.min(imageWidth, x)), (int) Math.max(0, Math.min(imageHeight, y)));
+    }
+    
+    private void fireRegionChanged() {
+        repaint();
+        if (regionListener != null) {
+            regionListener.regionChanged(getSelectedRectangle(), getSelectedPolygon());
+        }
+    }
+    
+    private void paintPlaceholder(Graphics2D g2d) {
+        if (placeholderText == null) {
+            return;
+        }
+        g2d.setColor(getForeground());
+        g2d.setFont(getFont());
+        FontMetrics metrics = g2d.getFontMetrics();
+        int textX = (getWidth() - metrics.stringWidth(placeholderText)) / 2;
+        int textY = (getHeight() - metrics.getHeight()) / 2 + metrics.getAscent();
+        g2d.drawString(placeholderText, textX, textY);
+    }
+    
+    /**
+     * Samples the mask at display resolution into a transparent image where samosa pixels
+     * carry the overlay color.
+     */
+    private BufferedImage buildOverlay() {
+        int overlayWidth = displayImage.getWidth();
+        int overlayHeight = displayImage.getHeight();
+        BufferedImage overlay = new BufferedImage(overlayWidth, overlayHeight, BufferedImage.TYPE_INT_ARGB);
+        int argb = 0xFF000000 | overlayColor.getRGB();
+        int[] row = new int[overlayWidth];
+        
+        // Map each display pixel to the mask pixel under its center
+        int[] maskColumns = new int[overlayWidth];
+        for (int dx = 0; dx < overlayWidth; dx++) {
+            maskColumns[dx] = Math.min(mask.getWidth() - 1, (int) ((dx + 0.5) * mask.getWidth() / overlayWidth));
+        }
+        
+        for (int dy = 0; dy < overlayHeight; dy++) {
+            int maskRow = Math.min(mask.getHeight() - 1, (int) ((dy + 0.5) * mask.getHeight() / overlayHeight));
+            for (int dx = 0; dx < overlayWidth; dx++) {
+                row[dx] = mask.get(maskColumns[dx], maskRow) ? argb : 0;
+            }
+            overlay.setRGB(0, dy, overlayWidth, 1, row, 0, overlayWidth);
+        }
+        
+        return overlay;
+    }
+    
+    /**
+     * Checks whether the fitted view is drawn from one scaled image rather than from tiles.
+     * Scaling a very large image in one go would stall painting, so those are always tiled.
+     */
+    private boolean isDirectlyScaled() {
+        return (long) imageWidth * imageHeight <= DIRECT_SCALE_MAX_PIXELS;
+    }
+    
+    /**
+     * Refreshes the mapping from image to panel coordinates for the current panel size.
+     * A fitted view is centered; a zoomed view keeps its offset, limited so the image cannot be
+     * dragged off the panel, and is centered along any axis where it is smaller than the panel.
+     * Until the first fitted image has been scaled, the fitted view is drawn from tiles.
+     */
+    private void updateView() {
+        if (fitToWindow) {
+            if (isDirectlyScaled()) {
+                ensureDisplayImage();
+                if (displayImage != null) {
+                    viewScaleX = (double) displayWidth / imageWidth;
+                    viewScaleY = (double) displayHeight / imageHeight;
+                    viewX = (getWidth() - displayWidth) / 2;
+                    viewY = (getHeight() - displayHeight) / 2;
+                    return;
+                }
+            }
+            zoom = getFitScale();
+        }
+        
+        viewScaleX = zoom;
+        viewScaleY = zoom;
+        double contentWidth = imageWidth * zoom;
+        double contentHeight = imageHeight * zoom;
+        viewX = contentWidth <= getWidth() ? (getWidth() - contentWidth) / 2 : Math.max(getWidth() - contentWidth, Math.min(0, viewX));
+        viewY = contentHeight <= getHeight() ? (getHeight() - contentHeight) / 2 : Math.max(getHeight() - contentHeight, Math.min(0, viewY));
+        
+        // Whole-pixel offsets keep tile edges, the overlay and the selection on the same grid
+        viewX = Math.round(viewX);
+        viewY = Math.round(viewY);
+    }
+    
+    /**
+     * Gets the scale at which the whole image fits the panel, or the preferred size before layout.
+     */
+    private double getFitScale() {
+        boolean laidOut = getWidth() > 4 && getHeight() > 4;
+        int areaWidth = laidOut ? getWidth() - 4 : MAX_DISPLAY_WIDTH;
+        int areaHeight = laidOut ? getHeight() - 4 : MAX_DISPLAY_HEIGHT;
+        return Math.min((double) areaWidth / imageWidth, (double) areaHeight / imageHeight);
+    }
+    
+    /**
+     * Multiplies the zoom, keeping the image point under a panel point in place.
+     * Zooming out to the fitted size or beyond fits the image again.
+     */
+    private void zoomAround(double factor, int displayX, int displayY) {
+        updateView();
+        double fitScale = getFitScale();
+        double target = Math.min(Math.max(MAX_ZOOM, fitScale), viewScaleX * factor);
+        if (target <= fitScale) {
+            fitToWindow();
+            return;
+        }
+        
+        double imageX = (displayX - viewX) / viewScaleX;
+        double imageY = (displayY - viewY) / viewScaleY;
+        zoom = target;
+        viewX = displayX - imageX * target;
+        viewY = displayY - imageY * target;
+        fitToWindow = false;
+        markInteraction();
+        repaint();
+    }
+    
+    private boolean isPanTrigger(MouseEvent e) {
+        return SwingUtilities.isMiddleMouseButton(e) || (selectionMode == SELECT_NONE && SwingUtilities.isLeftMouseButton(e));
+    }
+    
+    /**
+     * Starts a pan. A left double-click instead toggles between the fitted view and one
+     * image pixel per display pixel around the click.
+     */
+    private void startPan(MouseEvent e) {
+        if (sourceImage == null) {
+            return;
+        }
+        updateView();
+        if (SwingUtilities.isLeftMouseButton(e) && e.getClickCount() == 2) {
+            if (fitToWindow) {
+                zoomAround(1.0 / viewScaleX, e.getX(), e.getY());
+            } else {
+                fitToWindow();
+            }
+            return;
+        }
+        
+        panStart = e.getPoint();
+        panViewX = viewX;
+        panViewY = viewY;
+    }
+    
+    private void pan(MouseEvent e) {
+        // A fitted image has nowhere to move
+        if (fitToWindow) {
+            return;
+        }
+        viewX = panViewX + e.getX() - panStart.x;
+        viewY = panViewY + e.getY() - panStart.y;
+        markInteraction();
+        repaint();
+    }
+    
+    /**
+     * Notes a pan or zoom step, postponing smooth redrawing until the view has settled.
+     */
+    private void markInteraction() {
+        interacting = true;
+        settleTimer.restart();
+    }
+    
+    /**
+     * Draws the tiles of one renderer that intersect the clip, at the pyramid level matching the
+     * zoom. Tiles still being rendered are requested and, for the image itself, stood in for by
+     * the best coarser picture already available.
+     */
+    private void paintTiles(Graphics2D g2d, SamosaTileCache.TileRenderer renderer, boolean fillMissing) {
+        int level = pyramid.getLevelForScale(viewScaleX);
+        double levelScale = viewScaleX * (1 << level);
+        double tileSpan = SamosaTileCache.TILE_SIZE * levelScale;
+        
+        Rectangle clip = g2d.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        int firstColumn = Math.max(0, (int) Math.floor((clip.x - viewX) / tileSpan));
+        int lastColumn = Math.min(pyramid.getTilesX(level) - 1, (int) Math.floor((clip.x + clip.width - viewX) / tileSpan));
+        int firstRow = Math.max(0, (int) Math.floor((clip.y - viewY) / tileSpan));
+        int lastRow = Math.min(pyramid.getTilesY(level) - 1, (int) Math.floor((clip.y + clip.height - viewY) / tileSpan));
+        
+        // Tiles are only scaled down between levels; scaled up they show the exact pixels that were classified.
+        // Smooth scaling costs several times more, so it waits until the view stops moving
+        Graphics2D tileGraphics = (Graphics2D) g2d.create();
+        tileGraphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, levelScale < 1.0 && !interacting
+            ? RenderingHints.VALUE_INTERPOLATION_BILINEAR
+            : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        
+        for (int row = firstRow; row <= lastRow; row++) {
+            int top = row * SamosaTileCache.TILE_SIZE;
+            int bottom = Math.min(top + SamosaTileCache.TILE_SIZE, pyramid.getLevelHeight(level));
+            int displayTop = (int) Math.round(viewY + top * levelScale);
+            int displayBottom = (int) Math.round(viewY + bottom * levelScale);
+            
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int left = column * SamosaTileCache.TILE_SIZE;
+                int right = Math.min(left + SamosaTileCache.TILE_SIZE, pyramid.getLevelWidth(level));
+                int displayLeft = (int) Math.round(viewX + left * levelScale);
+                int displayRight = (int) Math.round(viewX + right * levelScale);
+                
+                BufferedImage tile = tileCache.getTile(renderer, level, column, row);
+                if (tile != null) {
+                    tileGraphics.drawImage(tile, displayLeft, displayTop, displayRight, displayBottom,
+                                           0, 0, tile.getWidth(), tile.getHeight(), null);
+                } else if (fillMissing) {
+                    paintMissingTile(tileGraphics, renderer, level, left, top, right, bottom,
+                                     displayLeft, displayTop, displayRight, displayBottom);
+                }
+            }
+        }
+        tileGraphics.dispose();
+    }
+    
+    /**
+     * Fills the place of a tile that is not rendered yet from the nearest cached coarser tile,
+     * or from the fitted display image if there is none.
+     */
+    private void paintMissingTile(Graphics2D g2d, SamosaTileCache.TileRenderer renderer, int level, int left, int top,
+                                  int right, int bottom, int displayLeft, int displayTop, int displayRight, int displayBottom) {
+        for (int coarser = level + 1; coarser < pyramid.getLevelCount(); coarser++) {
+            int shift = coarser - level;
+            int parentColumn = (left >> shift) / SamosaTileCache.TILE_SIZE;
+            int parentRow = (top >> shift) / SamosaTileCache.TILE_SIZE;
+            BufferedImage parent = tileCache.peekTile(renderer, coarser, parentColumn, parentRow);
+            if (parent != null) {
+                double scale = 1.0 / (1 << shift);
+                int offsetX = parentColumn * SamosaTileCache.TILE_SIZE;
+                int offsetY = parentRow * SamosaTileCache.TILE_SIZE;
+                drawPart(g2d, parent, left * scale - offsetX, top * scale - offsetY, right * scale - offsetX, bottom * scale - offsetY,
+                         displayLeft, displayTop, displayRight, displayBottom);
+                return;
+            }
+        }
+        
+        if (displayImage != null) {
+            double scaleX = (double) (1 << level) * displayImage.getWidth() / imageWidth;
+            double scaleY = (double) (1 << level) * displayImage.getHeight() / imageHeight;
+            drawPart(g2d, displayImage, left * scaleX, top * scaleY, right * scaleX, bottom * scaleY,
+                     displayLeft, displayTop, displayRight, displayBottom);
+        }
+    }
+    
+    /**
+     * Draws part of an image given in fractional source coordinates, widened to whole pixels.
+     */
+    private static void drawPart(Graphics2D g2d, BufferedImage image, double sourceLeft, double sourceTop,
+                                 double sourceRight, double sourceBottom, int left, int top, int right, int bottom) {
+        int x1 = Math.max(0, (int) Math.floor(sourceLeft));
+        int y1 = Math.max(0, (int) Math.floor(sourceTop));
+        int x2 = Math.min(image.getWidth(), Math.max(x1 + 1, (int) Math.ceil(sourceRight)));
+        int y2 = Math.min(image.getHeight(), Math.max(y1 + 1, (int) Math.ceil(sourceBottom)));
+        g2d.drawImage(image, left, top, right, bottom, x1, y1, x2, y2, null);
+    }
+    
+    /**
+     * Creates a renderer for overlay tiles, in which samosa pixels carry the overlay color.
+     * Each tile pixel takes the mask pixel under its center, so fully zoomed in the overlay
+     * shows exactly which pixels were classified as samosa.
+     */
+    private SamosaTileCache.TileRenderer createOverlayRenderer(final SamosaMask overlayMask, final int argb) {
+        final SamosaImagePyramid levels = pyramid;
+        return new SamosaTileCache.TileRenderer() {
+            @Override
+            public BufferedImage renderTile(int level, int tileX, int tileY) {
+                int tileWidth = Math.min(SamosaTileCache.TILE_SIZE, levels.getLevelWidth(level) - tileX * SamosaTileCache.TILE_SIZE);
+                int tileHeight = Math.min(SamosaTileCache.TILE_SIZE, levels.getLevelHeight(level) - tileY * SamosaTileCache.TILE_SIZE);
+                int center = (1 << level) >> 1;
+                
+                int[] maskColumns = new int[tileWidth];
+                for (int x = 0; x < tileWidth; x++) {
+                    long imageX = ((long) tileX * SamosaTileCache.TILE_SIZE + x << level) + center;
+                    maskColumns[x] = (int) Math.min(overlayMask.getWidth() - 1, imageX);
+                }
+                
+                int[] pixels = new int[tileWidth * tileHeight];
+                for (int y = 0; y < tileHeight; y++) {
+                    long imageY = ((long) tileY * SamosaTileCache.TILE_SIZE + y << level) + center;
+                    int maskRow = (int) Math.min(overlayMask.getHeight() - 1, imageY);
+                    for (int x = 0; x < tileWidth; x++) {
+                        pixels[y * tileWidth + x] = overlayMask.get(maskColumns[x], maskRow) ? argb : 0;
+                    }
+                }
+                
+                BufferedImage tile = new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_INT_ARGB);
+                tile.getRaster().setDataElements(0, 0, tileWidth, tileHeight, pixels);
+                return tile;
+            }
+        };
+    }
+    
+    /**
+     * Drops the cached overlay tiles; they are rendered again for the new mask or color on the next paint.
+     */
+    private void dropOverlayTiles() {
+        if (overlayRenderer != null) {
+            tileCache.invalidate(overlayRenderer);
+            overlayRenderer = null;
+        }
+    }
+    
+    /**
+     * Updates the fitted size to the panel's current size, using the preferred size before the
+     * panel is laid out. Never scales on the calling thread: a size already in the scaler's cache
+     * is used at once, the first size is scaled in the background straight away, and later sizes
+     * once the panel has kept its size for {@link #RESCALE_DELAY_MILLIS}.
+     */
+    private void ensureDisplayImage() {
+        Dimension target = getWidth() > 4 && getHeight() > 4
+            ? fitSize(getWidth() - 4, getHeight() - 4)
+            : fitSize(MAX_DISPLAY_WIDTH, MAX_DISPLAY_HEIGHT);
+        if (target.width == displayWidth && target.height == displayHeight) {
+            return;
+        }
+        displayWidth = target.width;
+        displayHeight = target.height;
+        
+        BufferedImage cached = SamosaImageScaler.getCached(sourceImage, displayWidth, displayHeight);
+        if (cached != null) {
+            rescaleTimer.stop();
+            setDisplayImage(cached);
+        } else if (displayImage == null) {
+            startRescale();
+        } else {
+            rescaleTimer.restart();
+        }
+    }
+    
+    /**
+     * Scales the source image to the current fitted size on a background thread. Only one
+     * rescale runs at a time; if the size changes meanwhile, the next one starts when it ends.
+     */
+    private void startRescale() {
+        if (rescaleWorker != null || sourceImage == null || isDisplayImageCurrent()) {
+            return;
+        }
+        
+        final BufferedImage source = sourceImage;
+        final int width = displayWidth;
+        final int height = displayHeight;
+        rescaleWorker = new SwingWorker<BufferedImage, Void>() {
+            @Override
+            protected BufferedImage doInBackground() {
+                return SamosaImageScaler.getScaled(source, width, height);
+            }
+            
+            @Override
+            protected void done() {
+                // A new image has been set; its own rescale replaces this one
+                if (this != rescaleWorker) {
+                    return;
+                }
+                rescaleWorker = null;
+                try {
+                    setDisplayImage(get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    System.err.println("Error scaling image for display: " + e.getCause());
+                    return;
+                }
+                if (!rescaleTimer.isRunning()) {
+                    startRescale();
+                }
+            }
+        };
+        rescaleWorker.execute();
+    }
+    
+    private boolean isDisplayImageCurrent() {
+        return displayImage != null && displayImage.getWidth() == displayWidth && displayImage.getHeight() == displayHeight;
+    }
+    
+    private void setDisplayImage(BufferedImage image) {
+        displayImage = image;
+        overlayImage = null;
+        repaint();
+    }
+    
+    /**
+     * Computes the size of the source image scaled to fit within an area, keeping its aspect ratio.
+     */
+    private Dimension fitSize(int maxWidth, int maxHeight) {
+        double scaleX = (double) maxWidth / imageWidth;
+        double scaleY = (double) maxHeight / imageHeight;
+        double displayScale = Math.min(scaleX, scaleY);
+        
+        int scaledWidth = Math.max(1, (int) (imageWidth * displayScale));
+        int scaledHeight = Math.max(1, (int) (imageHeight * displayScale));
+        return new Dimension(scaledWidth, scaledHeight);
+    }
+}
\ No newline at end of file
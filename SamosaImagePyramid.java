@@ -0,0 +1,138 @@
+import java.awt.image.BufferedImage;
+
+/**
+ * Tile pyramid over a full-resolution image, for viewing images far larger than the screen.
+ * 
+ * Level 0 is the image itself and each further level halves it, until the whole image fits in
+ * a single {@link SamosaTileCache#TILE_SIZE} tile. Tiles are rendered on demand, straight from
+ * the matching region of the source image: a level n tile box-averages its 2^n x 2^n source
+ * blocks through {@link SamosaImageScaler}, so no full-size intermediate level is ever built
+ * and memory use is bounded by the tile cache rather than by the image size.
+ */
+public class SamosaImagePyramid implements SamosaTileCache.TileRenderer {
+    
+    private final BufferedImage source;
+    private final int levelCount;
+    
+    /**
+     * Creates a pyramid over an image. Nothing is rendered until tiles are requested.
+     * 
+     * @param source The full-resolution image
+     * @throws IllegalArgumentException if the source parameter is null
+     */
+    public SamosaImagePyramid(BufferedImage source) throws IllegalArgumentException {
+        if (source == null) {
+            throw new IllegalArgumentException("Source image cannot be null");
+        }
+        
+        this.source = source;
+        int levels = 1;
+        while ((source.getWidth() - 1 >> (levels - 1)) >= SamosaTileCache.TILE_SIZE
+               || (source.getHeight() - 1 >> (levels - 1)) >= SamosaTileCache.TILE_SIZE) {
+            levels++;
+        }
+        this.levelCount = levels;
+    }
+    
+    /**
+     * Gets the full-resolution image this pyramid was built over.
+     * 
+     * @return The source image
+     */
+    public BufferedImage getSource() {
+        return source;
+    }
+    
+    /**
+     * Gets the number of levels, the last of which fits in a single tile.
+     * 
+     * @return The level count, at least 1
+     */
+    public int getLevelCount() {
+        return levelCount;
+    }
+    
+    /**
+     * Chooses the level to draw at a display scale: the smallest level that still has at
+     * least one pixel per display pixel, so tiles are only ever scaled down when drawn.
+     * 
+     * @param scale Display pixels per full-resolution image pixel
+     * @return The level to draw
+     */
+    public int getLevelForScale(double scale) {
+        int level = 0;
+        while (level < levelCount - 1 && scale * (1 << (level + 1)) <= 1.0) {
+            level++;
+        }
+        return level;
+    }
+    
+    /**
+     * Gets the width of a level in pixels.
+     * 
+     * @param level The pyramid level
+     * @return The level width, rounded up
+     */
+    public int getLevelWidth(int level) {
+        return (int) (((long) source.getWidth() + (1 << level) - 1) >> level);
+    }
+    
+    /**
+     * Gets the height of a level in pixels.
+     * 
+     * @param level The pyramid level
+     * @return The level height, rounded up
+     */
+    public int getLevelHeight(int level) {
+        return (int) (((long) source.getHeight() + (1 << level) - 1) >> level);
+    }
+    
+    /**
+     * Gets the number of tile columns at a level.
+     * 
+     * @param level The pyramid level
+     * @return The tile column count
+     */
+    public int getTilesX(int level) {
+        return (getLevelWidth(level) + SamosaTileCache.TILE_SIZE - 1) / SamosaTileCache.TILE_SIZE;
+    }
+    
+    /**
+     * Gets the number of tile rows at a level.
+     * 
+     * @param level The pyramid level
+     * @return The tile row count
+     */
+    public int getTilesY(int level) {
+        return (getLevelHeight(level) + SamosaTileCache.TILE_SIZE - 1) / SamosaTileCache.TILE_SIZE;
+    }
+    
+    /**
+     * Renders one tile from its region of the source image. Runs single-threaded, since the
+     * tile cache already renders several tiles at once.
+     * 
+     * @param level The pyramid level
+     * @param tileX The tile column at that level
+     * @param tileY The tile row at that level
+     * @return An opaque TYPE_INT_RGB tile
+     * @throws IllegalArgumentException if the tile lies outside the level
+     */
+    @Override
+    public BufferedImage renderTile(int level, int tileX, int tileY) throws IllegalArgumentException {
+        if (level < 0 || level >= levelCount || tileX < 0 || tileX >= getTilesX(level) || tileY < 0 || tileY >= getTilesY(level)) {
+            throw new IllegalArgumentException("No tile " + level + "/" + tileX + "/" + tileY);
+        }
+        
+        int tileWidth = Math.min(SamosaTileCache.TILE_SIZE, getLevelWidth(level) - tileX * SamosaTileCache.TILE_SIZE);
+        int tileHeight = Math.min(SamosaTileCache.TILE_SIZE, getLevelHeight(level) - tileY * SamosaTileCache.TILE_SIZE);
+        
+        // The source region covered by this tile, cut short at the image edge
+        long regionX = (long) tileX * SamosaTileCache.TILE_SIZE << level;
+        long regionY = (long) tileY * SamosaTileCache.TILE_SIZE << level;
+        int regionWidth = (int) Math.min((long) tileWidth << level, source.getWidth() - regionX);
+        int regionHeight = (int) Math.min((long) tileHeight << level, source.getHeight() - regionY);
+        
+        BufferedImage region = source.getSubimage((int) regionX, (int) regionY, regionWidth, regionHeight);
+        return SamosaImageScaler.scale(region, tileWidth, tileHeight, 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,361 @@
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Fast, good-quality image scaling for display.
+ * 
+ * Downscaling halves the image with a 2x2 box filter until it is less than twice the target
+ * size, then resamples bilinearly to the exact size. Every pass works on packed int rows,
+ * averaging red and blue in one operation and green in another, and large passes are split
+ * across threads. Each halving step reads every pixel it covers, so fine detail is averaged
+ * rather than skipped, and the result is close to area averaging. A 40-megapixel photo scales
+ * to display size in tens of milliseconds, where {@link Image#SCALE_SMOOTH} takes seconds.
+ * 
+ * Scaled images are cached per source image and target size, so showing the same image again
+ * at the same size costs nothing. The cache holds its source images weakly and keeps only a few
+ * sizes per source. It assumes source pixels do not change after scaling; call
+ * {@link #invalidate(BufferedImage)} if they do.
+ */
+public class SamosaImageScaler {
+    
+    /** Number of target sizes cached per source image. */
+    private static final int SIZES_PER_SOURCE = 4;
+    
+    private static final Map<BufferedImage, LinkedHashMap<Long, BufferedImage>> CACHE =
+        new WeakHashMap<BufferedImage, LinkedHashMap<Long, BufferedImage>>();
+    
+    /**
+     * Gets an image scaled to a size, scaling it only if this source and size are not cached yet.
+     * The returned image is shared and must not be modified.
+     * 
+     * @param source The image to scale
+     * @param width The target width
+     * @param height The target height
+     * @return An opaque TYPE_INT_RGB image of the target size
+     * @throws IllegalArgumentException if the source is null or a target dimension is less than 1
+     */
+    public static BufferedImage getScaled(BufferedImage source, int width, int height) throws IllegalArgumentException {
+        if (source == null) {
+            throw new IllegalArgumentException("Source image cannot be null");
+        }
+        
+        BufferedImage cached = getCached(source, width, height);
+        if (cached != null) {
+            return cached;
+        }
+        
+        // Scale outside the lock so one large image does not hold up others
+        Long size = sizeKey(width, height);
+        BufferedImage scaled = scale(source, width, height);
+        synchronized (CACHE) {
+            LinkedHashMap<Long, BufferedImage> sizes = CACHE.get(source);
+            if (sizes == null) {
+                sizes = new LinkedHashMap<Long, BufferedImage>(8, 0.75f, true) {
+                    private static final long serialVersionUID = 1L;
+                    
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+                        return size() > SIZES_PER_SOURCE;
+                    }
+                };
+                CACHE.put(source, sizes);
+            }
+            sizes.put(size, scaled);
+        }
+        return scaled;
+    }
+    
+    /**
+     * Gets an image scaled to a size only if it is already cached, without ever scaling.
+     * This is cheap enough to call while painting. The returned image is shared and must not be modified.
+     * 
+     * @param source The scaled image's source
+     * @param width The target width
+     * @param height The target height
+     * @return The cached scaled image, or null if this source and size are not cached
+     */
+    public static BufferedImage getCached(BufferedImage source, int width, int height) {
+        synchronized (CACHE) {
+            LinkedHashMap<Long, BufferedImage> sizes = CACHE.get(source);
+            return sizes == null ? null : sizes.get(sizeKey(width, height));
+        }
+    }
+    
+    /**
+     * Drops every cached scaled version of a source image.
+     * 
+     * @param source The source image
+     */
+    public static void invalidate(BufferedImage source) {
+        synchronized (CACHE) {
+            CACHE.remove(source);
+        }
+    }
+    
+    /**
+     * Scales an image to a size without consulting the cache. Alpha is dropped.
+     * 
+     * @param source The image to scale
+     * @param width The target width
+     * @param height The target height
+     * @return A new opaque TYPE_INT_RGB image of the target size
+     * @throws IllegalArgumentException if the source is null or a target dimension is less than 1
+     */
+    public static BufferedImage scale(BufferedImage source, int width, int height) throws IllegalArgumentException {
+        return scale(source, width, height, ImageProcessor.DEFAULT_PARALLELISM);
+    }
+    
+    /**
+     * Scales an image to a size without consulting the cache, using at most the given number
+     * of threads. Callers that already scale several images concurrently, such as tile
+     * generators, pass 1. Alpha is dropped.
+     * 
+     * @param source The image to scale
+     * @param width The target width
+     * @param height The target height
+     * @param parallelism The maximum number of threads to use; 1 forces a sequential scale
+     * @return A new opaque TYPE_INT_RGB image of the target size
+     * @throws IllegalArgumentException if the source is null, a target dimension is less than 1
+     *         or parallelism is less than 1
+     */
+    public static BufferedImage scale(BufferedImage source, int width, int height, int parallelism) throws IllegalArgumentException {
+        if (source == null) {
+            throw new IllegalArgumentException("Source image cannot be null");
+        }
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Target size must be positive: " + width + " x " + height);
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        boolean halveX = currentWidth >= 2 * width;
+        boolean halveY = currentHeight >= 2 * height;
+        
+        // The first pass reads the source directly, so it is never copied at full resolution
+        int[] pixels;
+        if (halveX || halveY) {
+            int nextWidth = halveX ? (currentWidth + 1) / 2 : currentWidth;
+            int nextHeight = halveY ? (currentHeight + 1) / 2 : currentHeight;
+            pixels = halveSource(RgbRowReader.forImage(source), halveX, halveY, nextWidth, nextHeight, parallelism);
+            currentWidth = nextWidth;
+            currentHeight = nextHeight;
+        } else {
+            pixels = readSource(RgbRowReader.forImage(source), parallelism);
+        }
+        
+        while ((halveX = currentWidth >= 2 * width) | (halveY = currentHeight >= 2 * height)) {
+            int nextWidth = halveX ? (currentWidth + 1) / 2 : currentWidth;
+            int nextHeight = halveY ? (currentHeight + 1) / 2 : currentHeight;
+            pixels = halve(pixels, currentWidth, currentHeight, halveX, halveY, nextWidth, nextHeight, parallelism);
+            currentWidth = nextWidth;
+            currentHeight = nextHeight;
+        }
+        
+        if (currentWidth != width || currentHeight != height) {
+            pixels = resampleBilinear(pixels, currentWidth, currentHeight, width, height, parallelism);
+        }
+        
+        // setDataElements keeps the image eligible for accelerated drawing, unlike writing to its buffer
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        scaled.getRaster().setDataElements(0, 0, width, height, pixels);
+        return scaled;
+    }
+    
+    private static Long sizeKey(int width, int height) {
+        return ((long) width << 32) | (height & 0xFFFFFFFFL);
+    }
+    
+    private static int[] readSource(final RgbRowReader reader, int parallelism) {
+        final int width = reader.getWidth();
+        final int[] pixels = new int[width * reader.getHeight()];
+        SamosaParallelScan.scanRows(width, reader.getHeight(), parallelism, new SamosaParallelScan.BandScan() {
+            @Override
+            public long scan(int startRow, int endRow) {
+                int[] row = new int[width];
+                for (int y = startRow; y < endRow; y++) {
+                    reader.readRow(y, row);
+                    System.arraycopy(row, 0, pixels, y * width, width);
+                }
+                return 0;
+            }
+        });
+        return pixels;
+    }
+    
+    /**
+     * Halves the source image along one or both axes, reading two source rows per output row.
+     */
+    private static int[] halveSource(final RgbRowReader reader, final boolean halveX, final boolean halveY,
+                                     final int nextWidth, int nextHeight, int parallelism) {
+        final int sourceWidth = reader.getWidth();
+        final int sourceHeight = reader.getHeight();
+        final int[] pixels = new int[nextWidth * nextHeight];
+        SamosaParallelScan.scanRows(sourceWidth * (halveY ? 2 : 1), nextHeight, parallelism, new SamosaParallelScan.BandScan() {
+            @Override
+            public long scan(int startRow, int endRow) {
+                int[] top = new int[sourceWidth];
+                int[] bottom = new int[sourceWidth];
+                for (int y = startRow; y < endRow; y++) {
+                    int sourceY = halveY ? 2 * y : y;
+                    reader.readRow(sourceY, top);
+                    if (halveY && sourceY + 1 < sourceHeight) {
+                        reader.readRow(sourceY + 1, bottom);
+                        halveRow(top, 0, bottom, 0, sourceWidth, halveX, pixels, y * nextWidth, nextWidth);
+                    } else {
+                        halveRow(top, 0, top, 0, sourceWidth, halveX, pixels, y * nextWidth, nextWidth);
+                    }
+                }
+                return 0;
+            }
+        });
+        return pixels;
+    }
+    
+    private static int[] halve(final int[] source, final int sourceWidth, final int sourceHeight, final boolean halveX,
+                               final boolean halveY, final int nextWidth, int nextHeight, int parallelism) {
+        final int[] pixels = new int[nextWidth * nextHeight];
+        SamosaParallelScan.scanRows(sourceWidth * (halveY ? 2 : 1), nextHeight, parallelism, new SamosaParallelScan.BandScan() {
+            @Override
+            public long scan(int startRow, int endRow) {
+                for (int y = startRow; y < endRow; y++) {
+                    int sourceY = halveY ? 2 * y : y;
+                    int bottomY = halveY ? Math.min(sourceY + 1, sourceHeight - 1) : sourceY;
+                    halveRow(source, sourceY * sourceWidth, source, bottomY * sourceWidth, sourceWidth, halveX,
+                             pixels, y * nextWidth, nextWidth);
+                }
+                return 0;
+            }
+        });
+        return pixels;
+    }
+    
+    /**
+     * Averages two rows into one, and pairs of columns too when halveX is set. Red and blue are
+     * summed together in the 0xFF00FF lanes and green in the 0xFF00 lane; four 8-bit values
+     * cannot carry out of their lane. An odd last column is paired with itself.
+     */
+    private static void halveRow(int[] top, int topOffset, int[] bottom, int bottomOffset, int sourceWidth, boolean halveX,
+                                 int[] output, int outputOffset, int outputWidth) {
+        if (!halveX) {
+            for (int x = 0; x < outputWidth; x++) {
+                int a = top[topOffset + x];
+                int b = bottom[bottomOffset + x];
+                int redBlue = (a & 0xFF00FF) + (b & 0xFF00FF) + 0x010001;
+                int green = (a & 0xFF00) + (b & 0xFF00) + 0x0100;
+                output[outputOffset + x] = ((redBlue >>> 1) & 0xFF00FF) | ((green >>> 1) & 0xFF00);
+            }
+            return;
+        }
+        
+        for (int x = 0; x < outputWidth; x++) {
+            int left = 2 * x;
+            int right = Math.min(left + 1, sourceWidth - 1);
+            int a = top[topOffset + left];
+            int b = top[topOffset + right];
+            int c = bottom[bottomOffset + left];
+            int d = bottom[bottomOffset + right];
+            int redBlue = (a & 0xFF00FF) + (b & 0xFF00FF) + (c & 0xFF00FF) + (d & 0xFF00FF) + 0x020002;
+            int green = (a & 0xFF00) + (b & 0xFF00) + (c & 0xFF00) + (d & 0xFF00) + 0x0200;
+            output[outputOffset + x] = ((redBlue >>> 2) & 0xFF00FF) | ((green >>> 2) & 0xFF00);
+        }
+    }
+    
+    /**
+     * Resamples to the exact target size with pixel-center-aligned bilinear interpolation and 8-bit weights.
+     */
+    private static int[] resampleBilinear(final int[] source, final int sourceWidth, final int sourceHeight,
+                                          final int width, int height, int parallelism) {
+        final int[] leftColumns = new int[width];
+        final int[] rightColumns = new int[width];
+        final int[] columnWeights = new int[width];
+        for (int x = 0; x < width; x++) {
+            double sourceX = Math.max(0, (x + 0.5) * sourceWidth / width - 0.5);
+            int left = Math.min((int) sourceX, sourceWidth - 1);
+            leftColumns[x] = left;
+            rightColumns[x] = Math.min(left + 1, sourceWidth - 1);
+            columnWeights[x] = (int) ((sourceX - left) * 256);
+        }
+        
+        final int[] pixels = new int[width * height];
+        final double rowScale = (double) sourceHeight / height;
+        SamosaParallelScan.scanRows(width * 4, height, parallelism, new SamosaParallelScan.BandScan() {
+            @Override
+            public long scan(int startRow, int endRow) {
+                for (int y = startRow; y < endRow; y++) {
+                    double sourceY = Math.max(0, (y + 0.5) * rowScale - 0.5);
+                    int top = Math.min((int) sourceY, sourceHeight - 1);
+                    int topOffset = top * sourceWidth;
+                    int bottomOffset = Math.min(top + 1, sourceHeight - 1) * sourceWidth;
+                    int rowWeight = (int) ((sourceY - top) * 256);
+                    
+                    for (int x = 0; x < width; x++) {
+                        int weight = columnWeights[x];
+                        int upper = lerp(source[topOffset + leftColumns[x]], source[topOffset + rightColumns[x]], weight);
+                        int lower = lerp(source[bottomOffset + leftColumns[x]], source[bottomOffset + rightColumns[x]], weight);
+                        pixels[y * width + x] = lerp(upper, lower, rowWeight);
+                    }
+                }
+                return 0;
+            }
+        });
+        return pixels;
+    }
+    
+    /**
+     * Blends two packed RGB values, with weight 0 giving a and 256 giving b. The weighted lanes
+     * stay below 2^16 each, so red and blue can share one multiplication.
+     */
+    private static int lerp(int a, int b, int weight) {
+        int inverse = 256 - weight;
+        int redBlue = ((a & 0xFF00FF) * inverse + (b & 0xFF00FF) * weight) >>> 8;
+        int green = ((a & 0xFF00) * inverse + (b & 0xFF00) * weight) >>> 8;
+        return (redBlue & 0xFF00FF) | (green & 0xFF00);
+    }
+    
+    /**
+     * Main method timing this scaler against getScaledInstance with SCALE_SMOOTH.
+     * 
+     * @param args Optional source width and height (defaults to a 40-megapixel 7300 x 5480 image)
+     */
+    public static void main(String[] args) {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 7300;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 5480;
+        
+        BufferedImage source = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g2d = source.createGraphics();
+        for (int i = 0; i < 200; i++) {
+            g2d.setColor(new java.awt.Color((i * 73) % 256, (i * 151) % 256, (i * 37) % 256));
+            g2d.fillOval((i * 7919) % width, (i * 104729) % height, width / 8, height / 8);
+        }
+        g2d.dispose();
+        
+        int targetWidth = 700;
+        int targetHeight = (int) ((long) height * targetWidth / width);
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            scale(source, targetWidth, targetHeight);
+            System.out.printf("SamosaImageScaler: %d x %d -> %d x %d in %.1f ms%n", width, height, targetWidth, targetHeight,
+                              (System.nanoTime() - start) / 1e6);
+        }
+        
+        getScaled(source, targetWidth, targetHeight);
+        long start = System.nanoTime();
+        getScaled(source, targetWidth, targetHeight);
+        System.out.printf("Cached lookup: %.3f ms%n", (System.nanoTime() - start) / 1e6);
+        
+        start = System.nanoTime();
+        Image smooth = source.getScaledInstance(targetWidth, targetHeight, Image.SCALE_SMOOTH);
+        BufferedImage buffer = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D bufferGraphics = buffer.createGraphics();
+        bufferGraphics.drawImage(smooth, 0, 0, null);
+        bufferGraphics.dispose();
+        System.out.printf("getScaledInstance(SCALE_SMOOTH): %.1f ms%n", (System.nanoTime() - start) / 1e6);
+    }
+}
\ No newline at end of file
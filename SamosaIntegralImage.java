@@ -0,0 +1,407 @@
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Summed-area table of a samosa mask. Entry (x, y) holds the number of samosa pixels above
+ * and to the left of pixel corner (x, y), so the count inside any rectangle is four table
+ * lookups no matter how large the rectangle is. Built for per-slot tray queries, where the
+ * same image is asked about dozens of regions.
+ * 
+ * The table costs one int per pixel corner - about 48 MB for a 12-MP image - so it is only
+ * built when asked for; see {@link SamosaAnalyzer#analyze(java.awt.image.BufferedImage, int, boolean)}.
+ */
+public final class SamosaIntegralImage {
+    
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final int[] sums;
+    
+    /**
+     * Creates a table of zeros for a mask of the given size.
+     * 
+     * @param width The mask width in pixels
+     * @param height The mask height in pixels
+     * @throws IllegalArgumentException if a dimension is negative or the table is too large
+     */
+    SamosaIntegralImage(int width, int height) throws IllegalArgumentException {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Integral image dimensions cannot be negative: " + width + " x " + height);
+        }
+        
+        if (!isSupported(width, height)) {
+            throw new IllegalArgumentException("Integral image too large: " + width + " x " + height);
+        }
+        
+        this.width = width;
+        this.height = height;
+        this.stride = width + 1;
+        this.sums = new int[(width + 1) * (height + 1)];
+    }
+    
+    /**
+     * Checks whether a table can be built for a mask of the given size. The table is a single
+     * int array, so masks with more than about 2.1 billion pixel corners cannot be summed.
+     * 
+     * @param width The mask width in pixels
+     * @param height The mask height in pixels
+     * @return true if {@link #fromMask(SamosaMask)} accepts a mask of this size
+     */
+    public static boolean isSupported(int width, int height) {
+        return width >= 0 && height >= 0 && (long) (width + 1) * (height + 1) <= Integer.MAX_VALUE - 8;
+    }
+    
+    /**
+     * Builds the summed-area table of an existing mask.
+     * 
+     * @param mask The mask to sum
+     * @return A new integral image of the mask
+     * @throws IllegalArgumentException if the mask is null or too large for a table
+     */
+    public static SamosaIntegralImage fromMask(SamosaMask mask) throws IllegalArgumentException {
+        if (mask == null) {
+            throw new IllegalArgumentException("Mask cannot be null");
+        }
+        
+        SamosaIntegralImage integral = new SamosaIntegralImage(mask.getWidth(), mask.getHeight());
+        long[] words = mask.getWords();
+        int wordsPerRow = mask.getWordsPerRow();
+        for (int y = 0; y < mask.getHeight(); y++) {
+            integral.sumRow(y, words, y * wordsPerRow);
+        }
+        integral.sumColumns();
+        return integral;
+    }
+    
+    /**
+     * Fills in the running count along one mask row. Called right after the row is classified
+     * so its words are still in cache; different rows may be summed concurrently.
+     * 
+     * @param y The mask row
+     * @param words The mask words
+     * @param wordOffset The index of the row's first word
+     */
+    void sumRow(int y, long[] words, int wordOffset) {
+        int base = (y + 1) * stride + 1;
+        int count = 0;
+        
+        for (int x = 0; x < width; x += 64) {
+            long word = words[wordOffset + (x >>> 6)];
+            int end = Math.min(64, width - x);
+            int index = base + x;
+            
+            if (word == 0) {
+                Arrays.fill(sums, index, index + end, count);
+                continue;
+            }
+            
+            for (int bit = 0; bit < end; bit++) {
+                count += (int) (word >>> bit) & 1;
+                sums[index + bit] = count;
+            }
+        }
+    }
+    
+    /**
+     * Turns the per-row running counts into the full table by adding every row to the one below.
+     * Must run once, after all rows have been summed.
+     */
+    void sumColumns() {
+        for (int y = 2; y <= height; y++) {
+            int above = (y - 1) * stride;
+            int row = y * stride;
+            for (int x = 1; x <= width; x++) {
+                sums[row + x] += sums[above + x];
+            }
+        }
+    }
+    
+    /**
+     * Gets the table width.
+     * 
+     * @return The width of the summed mask in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+    
+    /**
+     * Gets the table height.
+     * 
+     * @return The height of the summed mask in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+    
+    /**
+     * Counts the samosa pixels inside a rectangle in constant time. The rectangle is clipped
+     * to the image, so slots that hang over the edge count only their visible part.
+     * 
+     * @param x The left column of the rectangle
+     * @param y The top row of the rectangle
+     * @param w The rectangle width
+     * @param h The rectangle height
+     * @return The number of samosa pixels inside the rectangle
+     * @throws IllegalArgumentException if the width or height is negative
+     */
+    public int countInRect(int x, int y, int w, int h) throws IllegalArgumentException {
+        if (w < 0 || h < 0) {
+            throw new IllegalArgumentException("Rectangle size cannot be negative: " + w + " x " + h);
+        }
+        
+        int left = clip(x, width);
+        int top = clip(y, height);
+        int right = clip((long) x + w, width);
+        int bottom = clip((long) y + h, height);
+        if (right <= left || bottom <= top) {
+            return 0;
+        }
+        
+        return sums[bottom * stride + right] - sums[top * stride + right]
+             - sums[bottom * stride + left] + sums[top * stride + left];
+    }
+    
+    /**
+     * Counts the samosa pixels inside a rectangle in constant time.
+     * 
+     * @param rect The rectangle, clipped to the image
+     * @return The number of samosa pixels inside the rectangle
+     * @throws IllegalArgumentException if the rectangle is null or has a negative size
+     */
+    public int countInRect(Rectangle rect) throws IllegalArgumentException {
+        if (rect == null) {
+            throw new IllegalArgumentException("Rectangle cannot be null");
+        }
+        return countInRect(rect.x, rect.y, rect.width, rect.height);
+    }
+    
+    /**
+     * Gets the percentage of a rectangle covered by samosa pixels, measured over the part of
+     * the rectangle that lies inside the image.
+     * 
+     * @param x The left column of the rectangle
+     * @param y The top row of the rectangle
+     * @param w The rectangle width
+     * @param h The rectangle height
+     * @return The coverage percentage (0.0 to 100.0), or 0.0 if the rectangle misses the image
+     * @throws IllegalArgumentException if the width or height is negative
+     */
+    public double getCoverageInRect(int x, int y, int w, int h) throws IllegalArgumentException {
+        int count = countInRect(x, y, w, h);
+        long visibleWidth = clip((long) x + w, width) - clip(x, width);
+        long visibleHeight = clip((long) y + h, height) - clip(y, height);
+        if (visibleWidth <= 0 || visibleHeight <= 0) {
+            return 0.0;
+        }
+        return AreaCalculator.calculateSamosaCoveragePercentage(count, visibleWidth * visibleHeight);
+    }
+    
+    /**
+     * Counts the samosa pixels inside a polygon. A pixel belongs to the polygon when its center
+     * lies inside it by the even-odd rule; a center exactly on a left edge is inside and one on
+     * a right edge is outside, so polygons sharing an edge never count a pixel twice. Each covered row is resolved into spans that are
+     * counted with the table, so the cost grows with the polygon's height and vertex count,
+     * not with its area.
+     * 
+     * @param polygon The polygon in image coordinates, clipped to the image
+     * @return The number of samosa pixels inside the polygon
+     * @throws IllegalArgumentException if the polygon parameter is null
+     */
+    public int countInPolygon(Polygon polygon) throws IllegalArgumentException {
+        return (int) measurePolygon(polygon)[0];
+    }
+    
+    /**
+     * Gets the percentage of a polygon covered by samosa pixels, measured over the pixels of
+     * the polygon that lie inside the image.
+     * 
+     * @param polygon The polygon in image coordinates
+     * @return The coverage percentage (0.0 to 100.0), or 0.0 if the polygon covers no pixels
+     * @throws IllegalArgumentException if the polygon parameter is null
+     */
+    public double getCoverageInPolygon(Polygon polygon) throws IllegalArgumentException {
+        return getCoverage(measurePolygon(polygon));
+    }
+    
+    /**
+     * Counts both the samosa pixels and all pixels inside a polygon in a single scan, by the
+     * same rule as {@link #countInPolygon(Polygon)}. Callers that need the count and the
+     * coverage together use this rather than scanning the polygon twice.
+     * 
+     * @param polygon The polygon in image coordinates, clipped to the image
+     * @return A two-element array: the samosa pixel count, then the polygon's pixel count
+     * @throws IllegalArgumentException if the polygon parameter is null
+     */
+    public long[] measurePolygon(Polygon polygon) throws IllegalArgumentException {
+        if (polygon == null) {
+            throw new IllegalArgumentException("Polygon cannot be null");
+        }
+        long[] totals = new long[2];
+        scanPolygon(polygon, totals);
+        return totals;
+    }
+    
+    /**
+     * Gets the coverage percentage of a region measured by {@link #measurePolygon(Polygon)}.
+     * 
+     * @param totals The samosa pixel count and the region's pixel count
+     * @return The coverage percentage (0.0 to 100.0), or 0.0 if the region covers no pixels
+     * @throws IllegalArgumentException if the totals parameter is null or has fewer than two elements
+     */
+    public static double getCoverage(long[] totals) throws IllegalArgumentException {
+        if (totals == null || totals.length < 2) {
+            throw new IllegalArgumentException("Totals must hold a samosa count and a pixel count");
+        }
+        if (totals[1] <= 0) {
+            return 0.0;
+        }
+        return AreaCalculator.calculateSamosaCoveragePercentage(totals[0], totals[1]);
+    }
+    
+    /**
+     * Walks the rows whose pixel centers the polygon crosses, adding the samosa pixels of each
+     * inside span to totals[0] and the span widths to totals[1].
+     */
+    private void scanPolygon(Polygon polygon, long[] totals) {
+        int vertexCount = polygon.npoints;
+        if (vertexCount < 3) {
+            return;
+        }
+        
+        Rectangle bounds = polygon.getBounds();
+        int firstRow = clip(bounds.y, height);
+        int lastRow = clip((long) bounds.y + bounds.height, height);
+        int[] xs = polygon.xpoints;
+        int[] ys = polygon.ypoints;
+        double[] crossings = new double[vertexCount];
+        
+        for (int y = firstRow; y < lastRow; y++) {
+            double centerY = y + 0.5;
+            int crossingCount = 0;
+            
+            for (int i = 0, j = vertexCount - 1; i < vertexCount; j = i++) {
+                if ((ys[i] <= centerY) != (ys[j] <= centerY)) {
+                    crossings[crossingCount++] = xs[j] + (centerY - ys[j]) * (xs[i] - xs[j]) / (ys[i] - ys[j]);
+                }
+            }
+            Arrays.sort(crossings, 0, crossingCount);
+            
+            // Pixels whose centers fall in [enter, exit) are inside
+            for (int k = 0; k + 1 < crossingCount; k += 2) {
+                int spanStart = clip((long) Math.ceil(crossings[k] - 0.5), width);
+                int spanEnd = clip((long) Math.ceil(crossings[k + 1] - 0.5), width);
+                if (spanEnd > spanStart) {
+                    totals[0] += countInRect(spanStart, y, spanEnd - spanStart, 1);
+                    totals[1] += spanEnd - spanStart;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Gets the number of samosa pixels in the whole mask.
+     * 
+     * @return The total samosa pixel count
+     */
+    public int getTotalCount() {
+        return sums[sums.length - 1];
+    }
+    
+    private static int clip(long value, int limit) {
+        return (int) Math.max(0, Math.min(limit, value));
+    }
+    
+    /**
+     * Tests one pixel center against a polygon edge by edge, for checking the span scan.
+     * A center on a left edge is inside and a center on a right edge is outside.
+     */
+    private static boolean isCenterInside(Polygon polygon, int x, int y) {
+        double centerX = x + 0.5;
+        double centerY = y + 0.5;
+        boolean inside = false;
+        for (int i = 0, j = polygon.npoints - 1; i < polygon.npoints; j = i++) {
+            int yi = polygon.ypoints[i];
+            int yj = polygon.ypoints[j];
+            if ((yi <= centerY) != (yj <= centerY)) {
+                double crossing = polygon.xpoints[j] + (centerY - yj) * (polygon.xpoints[i] - polygon.xpoints[j]) / (yi - yj);
+                if (crossing <= centerX) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+    
+    @Override
+    public String toString() {
+        return "SamosaIntegralImage[" + width + "x" + height + ", samosaPixels=" + getTotalCount() + "]";
+    }
+    
+    /**
+     * Main method for testing rectangle counts against a direct scan of a random mask.
+     * 
+     * @param args Command line arguments (not used)
+     */
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        SamosaMask mask = new SamosaMask(203, 157);
+        for (int y = 0; y < mask.getHeight(); y++) {
+            for (int x = 0; x < mask.getWidth(); x++) {
+                if (random.nextInt(3) == 0) {
+                    mask.set(x, y);
+                }
+            }
+        }
+        
+        SamosaIntegralImage integral = fromMask(mask);
+        System.out.println(integral + " (mask area " + mask.countPixels() + ")");
+        
+        int mismatches = 0;
+        for (int i = 0; i < 10000; i++) {
+            int x = random.nextInt(260) - 30;
+            int y = random.nextInt(200) - 30;
+            int w = random.nextInt(120);
+            int h = random.nextInt(120);
+            
+            int expected = 0;
+            for (int row = Math.max(0, y); row < Math.min(mask.getHeight(), y + h); row++) {
+                for (int col = Math.max(0, x); col < Math.min(mask.getWidth(), x + w); col++) {
+                    if (mask.get(col, row)) {
+                        expected++;
+                    }
+                }
+            }
+            if (integral.countInRect(x, y, w, h) != expected) {
+                mismatches++;
+            }
+        }
+        System.out.println("Random rectangles checked: 10000, mismatches: " + mismatches);
+        
+        mismatches = 0;
+        for (int i = 0; i < 1000; i++) {
+            Polygon polygon = new Polygon();
+            int vertices = 3 + random.nextInt(5);
+            for (int v = 0; v < vertices; v++) {
+                polygon.addPoint(random.nextInt(260) - 30, random.nextInt(200) - 30);
+            }
+            
+            int expected = 0;
+            for (int row = 0; row < mask.getHeight(); row++) {
+                for (int col = 0; col < mask.getWidth(); col++) {
+                    if (mask.get(col, row) && isCenterInside(polygon, col, row)) {
+                        expected++;
+                    }
+                }
+            }
+            if (integral.countInPolygon(polygon) != expected) {
+                mismatches++;
+            }
+        }
+        System.out.println("Random polygons checked: 1000, mismatches: " + mismatches);
+        System.out.println("Top-left quarter coverage: "
+                           + AreaCalculator.formatPercentage(integral.getCoverageInRect(0, 0, 101, 78)));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,376 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide timing and throughput counters for the stages of an analysis: decoding, classification
+ * and shape analysis. For each stage it keeps the number of calls, total and maximum wall time,
+ * the amount of work done (bytes read for decoding, pixels for the other stages) and the bytes
+ * allocated by the calling thread.
+ * 
+ * Metrics are off unless the {@value #ENABLED_PROPERTY} system property is true or
+ * {@link #setEnabled(boolean)} is called. While off, {@link #start()} returns null after one
+ * volatile read and {@link #stop(Sample, int, long)} returns at once, so instrumented code costs
+ * next to nothing. Setting {@value #PERIOD_PROPERTY} to a number of seconds also prints a summary
+ * to standard error at that interval.
+ * 
+ * Allocation is read from the calling thread only, so work a stage hands to other threads (such as
+ * parallel classification bands) is not included. It is reported as 0 on JVMs that cannot measure it.
+ */
+public final class SamosaMetrics {
+    
+    /** System property that enables metrics at startup. */
+    public static final String ENABLED_PROPERTY = "samosa.metrics";
+    
+    /** System property giving the interval in seconds of the periodic summary. */
+    public static final String PERIOD_PROPERTY = "samosa.metrics.period";
+    
+    /** Decoding an encoded image; work is counted in bytes read. */
+    public static final int STAGE_DECODE = 0;
+    
+    /** Classifying pixels as samosa or not; work is counted in pixels. */
+    public static final int STAGE_CLASSIFY = 1;
+    
+    /** Labeling and measuring individual samosas; work is counted in pixels. */
+    public static final int STAGE_SHAPES = 2;
+    
+    private static final String[] STAGE_NAMES = {"decode", "classify", "shapes"};
+    private static final String[] WORK_UNITS = {"B", "px", "px"};
+    private static final int STAGE_COUNT = STAGE_NAMES.length;
+    
+    private static final LongAdder[] CALLS = newAdders();
+    private static final LongAdder[] NANOS = newAdders();
+    private static final LongAdder[] WORK = newAdders();
+    private static final LongAdder[] ALLOCATED = newAdders();
+    private static final AtomicLongArray MAX_NANOS = new AtomicLongArray(STAGE_COUNT);
+    
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = findAllocationBean();
+    
+    private static volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+    
+    private static ScheduledExecutorService summaryExecutor;
+    private static ScheduledFuture<?> summaryTask;
+    
+    static {
+        long period = Long.getLong(PERIOD_PROPERTY, 0L);
+        if (period > 0) {
+            enabled = true;
+            startPeriodicSummary(period);
+        }
+    }
+    
+    private SamosaMetrics() {
+    }
+    
+    /**
+     * Checks whether metrics are being recorded.
+     * 
+     * @return true if metrics are enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Turns recording on or off. Counters keep their values while recording is off.
+     * 
+     * @param enable true to record metrics
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+    
+    /**
+     * Starts timing a stage on the calling thread.
+     * 
+     * @return The start of the measurement, or null if metrics are disabled
+     */
+    public static Sample start() {
+        if (!enabled) {
+            return null;
+        }
+        return new Sample(System.nanoTime(), allocatedBytes());
+    }
+    
+    /**
+     * Finishes timing a stage and adds it to the counters. Must be called on the thread that
+     * called {@link #start()}.
+     * 
+     * @param sample The value returned by {@link #start()}; null is ignored
+     * @param stage The stage, one of the STAGE_ constants
+     * @param work The work done: bytes read for {@link #STAGE_DECODE}, pixels otherwise
+     * @throws IllegalArgumentException if the stage is unknown
+     */
+    public static void stop(Sample sample, int stage, long work) throws IllegalArgumentException {
+        if (sample == null) {
+            return;
+        }
+        checkStage(stage);
+        
+        long nanos = System.nanoTime() - sample.startNanos;
+        CALLS[stage].increment();
+        NANOS[stage].add(nanos);
+        WORK[stage].add(Math.max(0, work));
+        if (sample.startAllocated >= 0) {
+            ALLOCATED[stage].add(Math.max(0, allocatedBytes() - sample.startAllocated));
+        }
+        
+        long max = MAX_NANOS.get(stage);
+        while (nanos > max && !MAX_NANOS.compareAndSet(stage, max, nanos)) {
+            max = MAX_NANOS.get(stage);
+        }
+    }
+    
+    /**
+     * Gets the number of completed calls of a stage.
+     * 
+     * @param stage The stage, one of the STAGE_ constants
+     * @return The call count
+     * @throws IllegalArgumentException if the stage is unknown
+     */
+    public static long getCalls(int stage) throws IllegalArgumentException {
+        checkStage(stage);
+        return CALLS[stage].sum();
+    }
+    
+    /**
+     * Gets the total wall time spent in a stage.
+     * 
+     * @param stage The stage, one of the STAGE_ constants
+     * @return The total time in nanoseconds
+     * @throws IllegalArgumentException if the stage is unknown
+     */
+    public static long getTotalNanos(int stage) throws IllegalArgumentException {
+        checkStage(stage);
+        return NANOS[stage].sum();
+    }
+    
+    /**
+     * Gets the longest single call of a stage.
+     * 
+     * @param stage The stage, one of the STAGE_ constants
+     * @return The longest time in nanoseconds
+     * @throws IllegalArgumentException if the stage is unknown
+     */
+    public static long getMaxNanos(int stage) throws IllegalArgumentException {
+        checkStage(stage);
+        return MAX_NANOS.get(stage);
+    }
+    
+    /**
+     * Gets the total work done in a stage.
+     * 
+     * @param stage The stage, one of the STAGE_ constants
+     * @return Bytes read for {@link #STAGE_DECODE}, pixels otherwise
+     * @throws IllegalArgumentException if the stage is unknown
+     */
+    public static long getWork(int stage) throws IllegalArgumentException {
+        checkStage(stage);
+        return WORK[stage].sum();
+    }
+    
+    /**
+     * Gets the bytes allocated by the calling threads of a stage.
+     * 
+     * @param stage The stage, one of the STAGE_ constants
+     * @return The allocated bytes, 0 if allocation cannot be measured
+     * @throws IllegalArgumentException if the stage is unknown
+     */
+    public static long getAllocatedBytes(int stage) throws IllegalArgumentException {
+        checkStage(stage);
+        return ALLOCATED[stage].sum();
+    }
+    
+    /**
+     * Gets the throughput of a stage over the time spent in it.
+     * 
+     * @param stage The stage, one of the STAGE_ constants
+     * @return Bytes per second for {@link #STAGE_DECODE}, pixels per second otherwise; 0 before the first call
+     * @throws IllegalArgumentException if the stage is unknown
+     */
+    public static double getThroughput(int stage) throws IllegalArgumentException {
+        long nanos = getTotalNanos(stage);
+        return nanos > 0 ? getWork(stage) * 1e9 / nanos : 0;
+    }
+    
+    /**
+     * Gets the name of a stage as shown in summaries.
+     * 
+     * @param stage The stage, one of the STAGE_ constants
+     * @return The stage name
+     * @throws IllegalArgumentException if the stage is unknown
+     */
+    public static String getStageName(int stage) throws IllegalArgumentException {
+        checkStage(stage);
+        return STAGE_NAMES[stage];
+    }
+    
+    /**
+     * Sets every counter back to zero.
+     */
+    public static void reset() {
+        for (int stage = 0; stage < STAGE_COUNT; stage++) {
+            CALLS[stage].reset();
+            NANOS[stage].reset();
+            WORK[stage].reset();
+            ALLOCATED[stage].reset();
+            MAX_NANOS.set(stage, 0);
+        }
+    }
+    
+    /**
+     * Formats the counters as one line per stage that has been called, for example
+     * "classify: 12 calls, mean 8.31 ms, max 15.02 ms, 245.3 Mpx/s, 1.2 MB allocated per call".
+     * 
+     * @return The summary, or a note that nothing has been recorded
+     */
+    public static String formatSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (int stage = 0; stage < STAGE_COUNT; stage++) {
+            long calls = CALLS[stage].sum();
+            if (calls == 0) {
+                continue;
+            }
+            summary.append(String.format(Locale.ROOT, "%s: %d calls, mean %.2f ms, max %.2f ms, %.1f M%s/s, %.1f MB allocated per call%n",
+                                         STAGE_NAMES[stage], calls, NANOS[stage].sum() / 1e6 / calls,
+                                         MAX_NANOS.get(stage) / 1e6, getThroughput(stage) / 1e6, WORK_UNITS[stage],
+                                         ALLOCATED[stage].sum() / 1e6 / calls));
+        }
+        return summary.length() == 0 ? "No analysis stages recorded" + System.lineSeparator() : summary.toString();
+    }
+    
+    /**
+     * Prints {@link #formatSummary()} to standard error at a fixed interval, replacing any
+     * summary already scheduled. The printing thread is a daemon and does not keep the JVM alive.
+     * 
+     * @param periodSeconds The interval in seconds
+     * @throws IllegalArgumentException if the interval is less than 1
+     */
+    public static synchronized void startPeriodicSummary(long periodSeconds) throws IllegalArgumentException {
+        if (periodSeconds < 1) {
+            throw new IllegalArgumentException("Summary period must be at least 1 second: " + periodSeconds);
+        }
+        stopPeriodicSummary();
+        if (summaryExecutor == null) {
+            summaryExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, "samosa-metrics-summary");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        summaryTask = summaryExecutor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                System.err.print("Samosa metrics:" + System.lineSeparator() + formatSummary());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Stops the periodic summary, if one is scheduled.
+     */
+    public static synchronized void stopPeriodicSummary() {
+        if (summaryTask != null) {
+            summaryTask.cancel(false);
+            summaryTask = null;
+        }
+    }
+    
+    private static void checkStage(int stage) throws IllegalArgumentException {
+        if (stage < 0 || stage >= STAGE_COUNT) {
+            throw new IllegalArgumentException("Unknown stage: " + stage);
+        }
+    }
+    
+    /**
+     * Reads the bytes allocated so far by the calling thread.
+     * 
+     * @return The allocated bytes, or -1 if the JVM cannot measure them
+     */
+    private static long allocatedBytes() {
+        return ALLOCATION_BEAN != null ? ALLOCATION_BEAN.getCurrentThreadAllocatedBytes() : -1;
+    }
+    
+    private static com.sun.management.ThreadMXBean findAllocationBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+                if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+                    return allocationBean;
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Warning: Allocation metrics unavailable: " + e.getMessage());
+        } catch (LinkageError e) {
+            // The java.management module is not present
+        }
+        return null;
+    }
+    
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[STAGE_COUNT];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+    
+    /**
+     * The start of one stage measurement.
+     */
+    public static final class Sample {
+        
+        private final long startNanos;
+        private final long startAllocated;
+        
+        private Sample(long startNanos, long startAllocated) {
+            this.startNanos = startNanos;
+            this.startAllocated = startAllocated;
+        }
+    }
+    
+    /**
+     * Main method measuring the cost of disabled and enabled instrumentation and printing a summary
+     * of decoding and classifying the given images.
+     * 
+     * @param args Image files to analyze
+     */
+    public static void main(String[] args) {
+        int iterations = 10_000_000;
+        setEnabled(false);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            stop(start(), STAGE_CLASSIFY, 1);
+        }
+        long disabledNanos = System.nanoTime() - start;
+        
+        setEnabled(true);
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            stop(start(), STAGE_CLASSIFY, 1);
+        }
+        long enabledNanos = System.nanoTime() - start;
+        System.out.printf("Instrumentation cost per stage: %.2f ns disabled, %.1f ns enabled%n",
+                          (double) disabledNanos / iterations, (double) enabledNanos / iterations);
+        
+        reset();
+        for (String path : args) {
+            java.awt.image.BufferedImage image = ImageLoader.loadImageFromPath(path);
+            if (image != null) {
+                ImageProcessor.calculateSamosaPixelArea(image);
+            }
+        }
+        System.out.print(formatSummary());
+    }
+}
\ No newline at end of file
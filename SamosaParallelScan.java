@@ -0,0 +1,144 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Runs a row-band scan over an image on a ForkJoinPool.
+ * 
+ * The image is split recursively into horizontal bands until each band is small enough,
+ * and the per-band results are summed back up the same split tree, so the reduction
+ * order - and therefore the result - never depends on thread scheduling. Images below
+ * {@link #SEQUENTIAL_THRESHOLD_PIXELS} are scanned on the calling thread, where the
+ * fork overhead would outweigh the gain.
+ */
+final class SamosaParallelScan {
+    
+    /** Images with fewer pixels than this are always scanned sequentially. */
+    static final long SEQUENTIAL_THRESHOLD_PIXELS = 512L * 512L;
+    
+    /** Bands are never split below roughly this many pixels. */
+    private static final int MIN_BAND_PIXELS = 64 * 1024;
+    
+    /** Number of bands per worker, so uneven bands still balance out. */
+    private static final int BANDS_PER_WORKER = 4;
+    
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<Integer, ForkJoinPool>();
+    
+    private SamosaParallelScan() {
+    }
+    
+    /**
+     * A scan over the rows [startRow, endRow) of an image returning a count for that band.
+     * Bands never overlap, so implementations may write per-row output without synchronization.
+     */
+    interface BandScan {
+        
+        /**
+         * Scans one band of rows.
+         * 
+         * @param startRow The first row of the band (inclusive)
+         * @param endRow The last row of the band (exclusive)
+         * @return The count produced for the band
+         */
+        long scan(int startRow, int endRow);
+    }
+    
+    /**
+     * Scans all rows of an image, splitting the work across a ForkJoinPool when the image is large enough.
+     * 
+     * @param width The image width
+     * @param height The image height
+     * @param parallelism The maximum number of worker threads; 1 forces a sequential scan
+     * @param scan The band scan to run
+     * @return The sum of the counts of all bands
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    static long scanRows(int width, int height, int parallelism, BandScan scan) throws IllegalArgumentException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        
+        int bandRows = getBandRows(width, height, parallelism);
+        if (bandRows >= height) {
+            return scan.scan(0, height);
+        }
+        
+        return getPool(parallelism).invoke(new BandTask(scan, 0, height, bandRows));
+    }
+    
+    /**
+     * Chooses how many rows each band of a parallel scan should cover.
+     * 
+     * @param width The image width
+     * @param height The image height
+     * @param parallelism The maximum number of worker threads
+     * @return The rows per band; the full height when the image should be scanned sequentially
+     */
+    static int getBandRows(int width, int height, int parallelism) {
+        if (parallelism <= 1 || height < 2 || (long) width * height < SEQUENTIAL_THRESHOLD_PIXELS) {
+            return height;
+        }
+        
+        int minBandRows = Math.max(1, MIN_BAND_PIXELS / Math.max(1, width));
+        int targetBandRows = (height + parallelism * BANDS_PER_WORKER - 1) / (parallelism * BANDS_PER_WORKER);
+        return Math.max(minBandRows, targetBandRows);
+    }
+    
+    /**
+     * Gets the shared pool for a parallelism level, creating it on first use.
+     * Pool threads are daemon threads, so idle pools never keep the JVM alive.
+     * 
+     * @param parallelism The parallelism level
+     * @return The pool for that level
+     */
+    static ForkJoinPool getPool(int parallelism) {
+        if (parallelism == ForkJoinPool.getCommonPoolParallelism()) {
+            return ForkJoinPool.commonPool();
+        }
+        
+        return POOLS.computeIfAbsent(parallelism, new Function<Integer, ForkJoinPool>() {
+            @Override
+            public ForkJoinPool apply(Integer level) {
+                return new ForkJoinPool(level);
+            }
+        });
+    }
+    
+    /**
+     * Splits a band in half until it is at most bandRows high, then scans it.
+     */
+    private static final class BandTask extends RecursiveTask<Long> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final transient BandScan scan;
+        private final int startRow;
+        private final int endRow;
+        private final int bandRows;
+        
+        BandTask(BandScan scan, int startRow, int endRow, int bandRows) {
+            this.scan = scan;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.bandRows = bandRows;
+        }
+        
+        @Override
+        protected Long compute() {
+            if (endRow - startRow <= bandRows) {
+                return scan.scan(startRow, endRow);
+            }
+            
+            int middleRow = (startRow + endRow) >>> 1;
+            BandTask top = new BandTask(scan, startRow, middleRow, bandRows);
+            BandTask bottom = new BandTask(scan, middleRow, endRow, bandRows);
+            
+            top.fork();
+            long bottomCount = bottom.compute();
+            long topCount = top.join();
+            
+            return topCount + bottomCount;
+        }
+    }
+}
\ No newline at end of file
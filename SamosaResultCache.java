@@ -0,0 +1,376 @@
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+/**
+ * Content-addressed cache of samosa areas, so re-submitted photos are not decoded or classified again.
+ * 
+ * Results are keyed by the SHA-256 of the encoded image bytes plus the fingerprint of the
+ * classification rules ({@link SamosaColorLut#getFingerprint()}). Renaming or copying a file
+ * still hits, and changing the classifier profile misses instead of returning stale areas.
+ * Hashing reads the bytes once, which is far cheaper than decoding them.
+ * 
+ * There are two tiers. A least-recently-used map bounded by entry count answers repeat
+ * lookups without touching the disk. An optional directory keeps one small file per result,
+ * so results survive restarts. The directory is never pruned, but each entry is only a few
+ * dozen bytes. Disk failures are reported and otherwise ignored, because the cache can always
+ * fall back to analyzing the image.
+ */
+public class SamosaResultCache {
+    
+    /** Number of entries kept in memory by the shared cache. */
+    public static final int DEFAULT_CAPACITY = 1024;
+    
+    /** System property naming the directory the shared cache persists results in. */
+    public static final String CACHE_DIR_PROPERTY = "samosa.cache.dir";
+    
+    /** First token of every result file; bump the version when the format changes. */
+    private static final String FILE_HEADER = "samosa-result-1";
+    
+    private final int capacity;
+    private final File directory;
+    private final LinkedHashMap<String, SamosaAreaResult> entries;
+    private long memoryHits;
+    private long diskHits;
+    private long misses;
+    
+    /**
+     * Creates a cache that only keeps results in memory.
+     * 
+     * @param capacity The maximum number of results kept in memory
+     * @throws IllegalArgumentException if the capacity is less than 1
+     */
+    public SamosaResultCache(int capacity) throws IllegalArgumentException {
+        this(capacity, null);
+    }
+    
+    /**
+     * Creates a cache that also persists results in a directory.
+     * 
+     * @param capacity The maximum number of results kept in memory
+     * @param directory The directory results are persisted in, created if needed; null for memory only
+     * @throws IllegalArgumentException if the capacity is less than 1 or the directory cannot be created
+     */
+    public SamosaResultCache(final int capacity, File directory) throws IllegalArgumentException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1: " + capacity);
+        }
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create cache directory: " + directory);
+        }
+        
+        this.capacity = capacity;
+        this.directory = directory;
+        this.entries = new LinkedHashMap<String, SamosaAreaResult>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SamosaAreaResult> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+    
+    /**
+     * Gets the cache shared by {@link AreaCalculator} and {@link SamosaAnalysisServer}. It persists
+     * results in the directory named by {@value #CACHE_DIR_PROPERTY}, or only keeps them in memory
+     * when the property is not set or the directory cannot be created.
+     * 
+     * @return The shared cache
+     */
+    public static SamosaResultCache getShared() {
+        return SharedHolder.SHARED;
+    }
+    
+    /**
+     * Gets the samosa area of an image file, reading and hashing its bytes but decoding them only on a cache miss.
+     * 
+     * @param imageFile The encoded image file
+     * @param lut The color lookup table to classify with
+     * @param parallelism The maximum number of threads to classify with on a miss
+     * @return The samosa area of the image
+     * @throws IllegalArgumentException if imageFile or lut is null or parallelism is less than 1
+     * @throws IOException if the file cannot be read or decoded
+     */
+    public SamosaAreaResult analyze(File imageFile, SamosaColorLut lut, int parallelism)
+            throws IllegalArgumentException, IOException {
+        if (imageFile == null) {
+            throw new IllegalArgumentException("Image file cannot be null");
+        }
+        return analyze(Files.readAllBytes(imageFile.toPath()), lut, parallelism);
+    }
+    
+    /**
+     * Gets the samosa area of an encoded image, decoding and classifying it only on a cache miss.
+     * 
+     * @param encodedImage The encoded image bytes, for example a JPEG or PNG file's contents
+     * @param lut The color lookup table to classify with
+     * @param parallelism The maximum number of threads to classify with on a miss
+     * @return The samosa area of the image
+     * @throws IllegalArgumentException if encodedImage or lut is null or parallelism is less than 1
+     * @throws IOException if the bytes cannot be decoded as an image
+     */
+    public SamosaAreaResult analyze(byte[] encodedImage, SamosaColorLut lut, int parallelism)
+            throws IllegalArgumentException, IOException {
+        if (encodedImage == null) {
+            throw new IllegalArgumentException("Encoded image cannot be null");
+        }
+        if (lut == null) {
+            throw new IllegalArgumentException("Color lookup table cannot be null");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        
+        String key = contentHash(encodedImage) + "-" + lut.getFingerprint();
+        synchronized (this) {
+            SamosaAreaResult cached = entries.get(key);
+            if (cached != null) {
+                memoryHits++;
+                return cached;
+            }
+        }
+        
+        // Disk reads, decoding and classification all happen outside the lock
+        SamosaAreaResult stored = readFromDisk(key);
+        if (stored != null) {
+            synchronized (this) {
+                diskHits++;
+                entries.put(key, stored);
+            }
+            return stored;
+        }
+        
+        SamosaMetrics.Sample sample = SamosaMetrics.start();
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(encodedImage));
+        SamosaMetrics.stop(sample, SamosaMetrics.STAGE_DECODE, encodedImage.length);
+        if (image == null) {
+            throw new IOException("Unsupported image format");
+        }
+        int samosaPixels = ImageProcessor.calculateSamosaPixelArea(image, lut, parallelism);
+        SamosaAreaResult result = new SamosaAreaResult(image.getWidth(), image.getHeight(), samosaPixels);
+        
+        synchronized (this) {
+            misses++;
+            entries.put(key, result);
+        }
+        writeToDisk(key, result);
+        return result;
+    }
+    
+    /**
+     * Removes all entries from the memory tier. Persisted results are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+    
+    /**
+     * Gets the number of results currently held in memory.
+     * 
+     * @return The entry count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Gets the maximum number of results held in memory.
+     * 
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * Gets the directory results are persisted in.
+     * 
+     * @return The directory, or null if the cache only keeps results in memory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+    
+    /**
+     * Gets the number of lookups answered from memory.
+     * 
+     * @return The memory hit count
+     */
+    public synchronized long getMemoryHits() {
+        return memoryHits;
+    }
+    
+    /**
+     * Gets the number of lookups answered from the directory.
+     * 
+     * @return The disk hit count
+     */
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+    
+    /**
+     * Gets the number of lookups that had to decode and classify the image.
+     * 
+     * @return The miss count
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    /**
+     * Hashes encoded image bytes.
+     * 
+     * @return The SHA-256 digest as 64 hex digits
+     */
+    static String contentHash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * Gets the file a result is persisted in, spread over 256 subdirectories by the first byte of the content hash.
+     */
+    private Path resultPath(String key) {
+        return new File(new File(directory, key.substring(0, 2)), key + ".result").toPath();
+    }
+    
+    /**
+     * Reads a persisted result.
+     * 
+     * @return The result, or null if there is none or it cannot be read
+     */
+    private SamosaAreaResult readFromDisk(String key) {
+        if (directory == null) {
+            return null;
+        }
+        
+        Path path = resultPath(key);
+        try {
+            String[] fields = new String(Files.readAllBytes(path), StandardCharsets.US_ASCII).trim().split("\\s+");
+            if (fields.length != 4 || !fields[0].equals(FILE_HEADER)) {
+                System.err.println("Warning: Ignoring malformed cached result " + path);
+                return null;
+            }
+            return new SamosaAreaResult(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (NumberFormatException e) {
+            System.err.println("Warning: Ignoring malformed cached result " + path);
+            return null;
+        } catch (IOException e) {
+            System.err.println("Warning: Could not read cached result " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Persists a result through a temporary file, so concurrent readers never see a partial entry.
+     */
+    private void writeToDisk(String key, SamosaAreaResult result) {
+        if (directory == null) {
+            return;
+        }
+        
+        Path path = resultPath(key);
+        String contents = FILE_HEADER + " " + result.getWidth() + " " + result.getHeight() + " " +
+                          result.getSamosaPixelCount() + "\n";
+        Path temporary = null;
+        try {
+            Files.createDirectories(path.getParent());
+            temporary = Files.createTempFile(path.getParent(), key.substring(0, 16), ".tmp");
+            Files.write(temporary, contents.getBytes(StandardCharsets.US_ASCII));
+            try {
+                Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not persist cached result " + path + ": " + e.getMessage());
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                    // The warning above already covers this entry
+                }
+            }
+        }
+    }
+    
+    /**
+     * Creates the shared cache on first use, so reading the system property is deferred until then.
+     */
+    private static final class SharedHolder {
+        
+        static final SamosaResultCache SHARED = createShared();
+        
+        private static SamosaResultCache createShared() {
+            String directory = System.getProperty(CACHE_DIR_PROPERTY);
+            if (directory != null && !directory.isEmpty()) {
+                try {
+                    return new SamosaResultCache(DEFAULT_CAPACITY, new File(directory));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Warning: " + e.getMessage() + "; caching results in memory only");
+                }
+            }
+            return new SamosaResultCache(DEFAULT_CAPACITY);
+        }
+    }
+    
+    /**
+     * Main method timing cold, disk and memory lookups for the given image files.
+     * 
+     * @param args The image files to analyze
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: java SamosaResultCache <image>...");
+            System.exit(2);
+        }
+        
+        try {
+            File directory = Files.createTempDirectory("samosa-cache").toFile();
+            SamosaColorLut lut = SamosaColorLut.getDefault();
+            String[] labels = {"cold", "memory", "disk after restart"};
+            SamosaResultCache cache = new SamosaResultCache(DEFAULT_CAPACITY, directory);
+            
+            for (int pass = 0; pass < labels.length; pass++) {
+                if (pass == 2) {
+                    cache = new SamosaResultCache(DEFAULT_CAPACITY, directory);
+                }
+                for (String path : args) {
+                    long start = System.nanoTime();
+                    SamosaAreaResult result = cache.analyze(new File(path), lut, ImageProcessor.DEFAULT_PARALLELISM);
+                    System.out.printf("%-18s %s: %s in %.2f ms%n", labels[pass], path, result, (System.nanoTime() - start) / 1e6);
+                }
+            }
+            System.out.println("Memory hits: " + cache.getMemoryHits() + ", disk hits: " + cache.getDiskHits() +
+                               ", misses: " + cache.getMisses() + ", directory: " + directory);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
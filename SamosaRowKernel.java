@@ -0,0 +1,91 @@
+import java.lang.reflect.Constructor;
+
+/**
+ * Classifies one row of packed 0xRRGGBB pixels at a time.
+ * The scalar implementation looks every pixel up in a {@link SamosaColorLut}; when the
+ * jdk.incubator.vector module is present a SIMD implementation evaluates the color
+ * ranges several pixels at a time instead.
+ */
+interface SamosaRowKernel {
+    
+    /** System property that disables the SIMD kernel when set to "false". */
+    String VECTOR_PROPERTY = "samosa.vector";
+    
+    /**
+     * Counts samosa pixels in one row.
+     * 
+     * @param rgbRow The row of packed 0xRRGGBB values
+     * @param width The number of pixels in the row
+     * @return The number of samosa pixels in the row
+     */
+    int countRow(int[] rgbRow, int width);
+    
+    /**
+     * Classifies one row and sets the bits of its samosa pixels in a mask row.
+     * The mask row is expected to be clear; bits are only ever set, never cleared.
+     *
+     * @param rgbRow The row of packed 0xRRGGBB values
+     * @param width The number of pixels in the row
+     * @param maskWords The mask's backing words
+     * @param wordOffset The index of the row's first word
+     * @return The number of samosa pixels in the row
+     */
+    int markRow(int[] rgbRow, int width, long[] maskWords, int wordOffset);
+    
+    /**
+     * Gets the fastest available kernel for a lookup table.
+     * The SIMD kernel is used when the jdk.incubator.vector module is available, not disabled
+     * through the {@value #VECTOR_PROPERTY} system property and the table was built from
+     * plain color ranges rather than a profile with HSV ranges or exclusions.
+     * 
+     * @param lut The color lookup table to classify with
+     * @return A row kernel producing exactly the same results as the lookup table
+     */
+    static SamosaRowKernel forLut(SamosaColorLut lut) {
+        Constructor<?> vectorConstructor = VectorSupport.CONSTRUCTOR;
+        if (vectorConstructor != null && !lut.getRanges().isEmpty()) {
+            try {
+                return (SamosaRowKernel) vectorConstructor.newInstance(lut);
+            } catch (Exception e) {
+                System.err.println("Falling back to scalar samosa kernel: " + e.getMessage());
+            }
+        }
+        return new LutRowKernel(lut);
+    }
+    
+    /**
+     * Checks whether {@link #forLut(SamosaColorLut)} hands out the SIMD kernel.
+     * 
+     * @return true if the vector kernel is available and enabled
+     */
+    static boolean isVectorAvailable() {
+        return VectorSupport.CONSTRUCTOR != null;
+    }
+    
+    /**
+     * Looks the vector kernel up reflectively so this interface still loads on
+     * runtimes started without the incubator module.
+     */
+    final class VectorSupport {
+        
+        static final Constructor<?> CONSTRUCTOR = findConstructor();
+        
+        private VectorSupport() {
+        }
+        
+        private static Constructor<?> findConstructor() {
+            if ("false".equalsIgnoreCase(System.getProperty(VECTOR_PROPERTY))) {
+                return null;
+            }
+            if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+                return null;
+            }
+            try {
+                return Class.forName("VectorRowKernel").getDeclaredConstructor(SamosaColorLut.class);
+            } catch (Throwable t) {
+                // Class not compiled in or the module failed to link; use the scalar kernel
+                return null;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,308 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+/**
+ * Incremental samosa analysis for image sequences such as a fryer camera taking a still every second.
+ * 
+ * Each frame is split into square tiles. A tile is reclassified only when a sparse grid of
+ * sample pixels has moved away from the samples taken the last time the tile was classified;
+ * every other tile keeps its previous samosa count. Only the sample grid is read for unchanged
+ * tiles (1/16 of the pixels with the default step), so the cost of a frame grows with how much
+ * of it changed rather than with its size.
+ * 
+ * Small sample differences are treated as sensor noise. Changes that fall entirely between sample
+ * points, or that stay within the tolerance, are not picked up until the tile changes visibly. A
+ * sample step of 1 with a tolerance of 0 compares every pixel exactly and gives the same counts
+ * as a full rescan.
+ */
+public class SamosaSequenceAnalyzer {
+    
+    /** Default edge length of a tile in pixels. */
+    public static final int DEFAULT_TILE_SIZE = 64;
+    
+    /** Default distance between sample pixels in each direction. */
+    public static final int DEFAULT_SAMPLE_STEP = 4;
+    
+    /** Default largest per-channel difference of a sample that still counts as unchanged. */
+    public static final int DEFAULT_TOLERANCE = 12;
+    
+    private final int tileSize;
+    private final int sampleStep;
+    private final int tolerance;
+    private final int parallelism;
+    private final SamosaRowKernel kernel;
+    
+    private int width = -1;
+    private int height = -1;
+    private int tilesX;
+    private int tilesY;
+    private int samplesPerTile;
+    private int[] tileCounts;
+    private int[] referenceSamples;
+    private long samosaPixelCount;
+    private long frameCount;
+    
+    /**
+     * Creates a sequence analyzer with the default tile size, sampling and classifier.
+     */
+    public SamosaSequenceAnalyzer() {
+        this(DEFAULT_TILE_SIZE, DEFAULT_SAMPLE_STEP, DEFAULT_TOLERANCE, SamosaColorLut.getDefault(),
+             ImageProcessor.DEFAULT_PARALLELISM);
+    }
+    
+    /**
+     * Creates a sequence analyzer.
+     * 
+     * @param tileSize The edge length of a tile in pixels
+     * @param sampleStep The distance between sample pixels in each direction, at most the tile size
+     * @param tolerance The largest per-channel difference (0-255) of a sample that still counts as unchanged
+     * @param lut The color lookup table to classify with
+     * @param parallelism The maximum number of threads to use; 1 forces a sequential scan
+     * @throws IllegalArgumentException if an argument is out of range or lut is null
+     */
+    public SamosaSequenceAnalyzer(int tileSize, int sampleStep, int tolerance, SamosaColorLut lut, int parallelism)
+            throws IllegalArgumentException {
+        if (tileSize < 1 || sampleStep < 1 || sampleStep > tileSize) {
+            throw new IllegalArgumentException("Invalid tile size " + tileSize + " or sample step " + sampleStep);
+        }
+        if (tolerance < 0 || tolerance > 255) {
+            throw new IllegalArgumentException("Tolerance must be between 0 and 255: " + tolerance);
+        }
+        if (lut == null) {
+            throw new IllegalArgumentException("Color lookup table cannot be null");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        
+        this.tileSize = tileSize;
+        this.sampleStep = sampleStep;
+        this.tolerance = tolerance;
+        this.parallelism = parallelism;
+        this.kernel = SamosaRowKernel.forLut(lut);
+    }
+    
+    /**
+     * Analyzes the next frame of the sequence. The first frame, and any frame whose size differs
+     * from the previous one, is classified in full.
+     * 
+     * @param frame The next frame
+     * @return The frame's samosa statistics and how many tiles were reclassified
+     * @throws IllegalArgumentException if the frame parameter is null, or the frame has too many tiles
+     *         for the sample step; the analyzer then keeps the previous sequence
+     */
+    public synchronized SamosaFrameResult analyzeFrame(BufferedImage frame) throws IllegalArgumentException {
+        if (frame == null) {
+            throw new IllegalArgumentException("Frame cannot be null");
+        }
+        
+        final boolean classifyAll = frame.getWidth() != width || frame.getHeight() != height;
+        if (classifyAll) {
+            startSequence(frame.getWidth(), frame.getHeight());
+        }
+        
+        final RgbRowReader reader = RgbRowReader.forImage(frame);
+        final int[] changedPerTileRow = new int[tilesY];
+        // Each band row is a whole row of tiles; the pixel count only sizes the bands, so it is clamped
+        int pixelsPerTileRow = (int) Math.min(Integer.MAX_VALUE, (long) width * tileSize);
+        long delta = SamosaParallelScan.scanRows(pixelsPerTileRow, tilesY, parallelism, new SamosaParallelScan.BandScan() {
+            @Override
+            public long scan(int startTileRow, int endTileRow) {
+                return updateTileRows(reader, startTileRow, endTileRow, classifyAll, changedPerTileRow);
+            }
+        });
+        
+        samosaPixelCount += delta;
+        int changedTiles = 0;
+        for (int changed : changedPerTileRow) {
+            changedTiles += changed;
+        }
+        
+        long totalPixels = (long) width * height;
+        double coveragePercentage = AreaCalculator.calculateSamosaCoveragePercentage(samosaPixelCount, totalPixels);
+        return new SamosaFrameResult(frameCount++, samosaPixelCount, totalPixels, coveragePercentage, changedTiles, tilesX * tilesY);
+    }
+    
+    /**
+     * Forgets the previous frames, so the next frame is classified in full.
+     */
+    public synchronized void reset() {
+        width = -1;
+        height = -1;
+        tileCounts = null;
+        referenceSamples = null;
+        samosaPixelCount = 0;
+        frameCount = 0;
+    }
+    
+    /**
+     * Sets up the tile grid for a new frame size. The grid is validated and allocated before any
+     * field changes, so a frame that is too large leaves the analyzer as it was.
+     */
+    private void startSequence(int frameWidth, int frameHeight) throws IllegalArgumentException {
+        int newTilesX = (int) (((long) frameWidth + tileSize - 1) / tileSize);
+        int newTilesY = (int) (((long) frameHeight + tileSize - 1) / tileSize);
+        int samplesPerSide = (tileSize + sampleStep - 1) / sampleStep;
+        long newSamplesPerTile = (long) samplesPerSide * samplesPerSide;
+        
+        long referenceLength = (long) newTilesX * newTilesY * newSamplesPerTile;
+        if (referenceLength > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Frame too large for sample step " + sampleStep + ": " + frameWidth + " x " + frameHeight);
+        }
+        int[] newTileCounts = new int[newTilesX * newTilesY];
+        int[] newReferenceSamples = new int[(int) referenceLength];
+        
+        width = frameWidth;
+        height = frameHeight;
+        tilesX = newTilesX;
+        tilesY = newTilesY;
+        samplesPerTile = (int) newSamplesPerTile;
+        tileCounts = newTileCounts;
+        referenceSamples = newReferenceSamples;
+        samosaPixelCount = 0;
+    }
+    
+    /**
+     * Checks and, where needed, reclassifies the tiles of the tile rows [startTileRow, endTileRow).
+     * Bands write only their own tiles, so they can run concurrently.
+     * 
+     * @return The change in the samosa pixel count over these tiles
+     */
+    private long updateTileRows(RgbRowReader reader, int startTileRow, int endTileRow, boolean classifyAll,
+                                int[] changedPerTileRow) {
+        int[] rgbRow = new int[tileSize];
+        long delta = 0;
+        
+        for (int tileY = startTileRow; tileY < endTileRow; tileY++) {
+            int y0 = tileY * tileSize;
+            int tileHeight = Math.min(tileSize, height - y0);
+            int changed = 0;
+            
+            for (int tileX = 0; tileX < tilesX; tileX++) {
+                int x0 = tileX * tileSize;
+                int tileWidth = Math.min(tileSize, width - x0);
+                int tile = tileY * tilesX + tileX;
+                int referenceOffset = tile * samplesPerTile;
+                
+                if (!classifyAll && !samplesChanged(reader, x0, y0, tileWidth, tileHeight, referenceOffset)) {
+                    continue;
+                }
+                
+                int count = 0;
+                for (int y = y0; y < y0 + tileHeight; y++) {
+                    reader.readRow(y, x0, tileWidth, rgbRow);
+                    count += kernel.countRow(rgbRow, tileWidth);
+                }
+                delta += count - tileCounts[tile];
+                tileCounts[tile] = count;
+                storeSamples(reader, x0, y0, tileWidth, tileHeight, referenceOffset);
+                changed++;
+            }
+            changedPerTileRow[tileY] = changed;
+        }
+        
+        return delta;
+    }
+    
+    /**
+     * Compares a tile's sample grid with its reference samples, stopping at the first sample
+     * that differs by more than the tolerance in any channel.
+     */
+    private boolean samplesChanged(RgbRowReader reader, int x0, int y0, int tileWidth, int tileHeight, int referenceOffset) {
+        int index = referenceOffset;
+        for (int y = y0 + firstSample(tileHeight); y < y0 + tileHeight; y += sampleStep) {
+            for (int x = x0 + firstSample(tileWidth); x < x0 + tileWidth; x += sampleStep) {
+                int current = reader.readPixel(x, y);
+                int reference = referenceSamples[index++];
+                if (Math.abs(((current >> 16) & 0xFF) - ((reference >> 16) & 0xFF)) > tolerance
+                        || Math.abs(((current >> 8) & 0xFF) - ((reference >> 8) & 0xFF)) > tolerance
+                        || Math.abs((current & 0xFF) - (reference & 0xFF)) > tolerance) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    private void storeSamples(RgbRowReader reader, int x0, int y0, int tileWidth, int tileHeight, int referenceOffset) {
+        int index = referenceOffset;
+        for (int y = y0 + firstSample(tileHeight); y < y0 + tileHeight; y += sampleStep) {
+            for (int x = x0 + firstSample(tileWidth); x < x0 + tileWidth; x += sampleStep) {
+                referenceSamples[index++] = reader.readPixel(x, y);
+            }
+        }
+    }
+    
+    /**
+     * Gets the offset of the first sample in a tile edge, centering samples in their cells
+     * while keeping at least one sample in narrow edge tiles.
+     */
+    private int firstSample(int edgeLength) {
+        return Math.min(sampleStep / 2, edgeLength - 1);
+    }
+    
+    /**
+     * Main method comparing incremental frame counts and timings with full rescans on a synthetic
+     * sequence where one samosa moves across a noisy, otherwise static tray.
+     * 
+     * @param args Optional frame width, height and frame count (defaults to 2000 x 1500, 20 frames)
+     */
+    public static void main(String[] args) {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 1500;
+        int frames = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        
+        BufferedImage tray = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = tray.createGraphics();
+        g2d.setColor(new Color(220, 220, 225));
+        g2d.fillRect(0, 0, width, height);
+        g2d.setColor(new Color(170, 110, 40));
+        for (int slot = 0; slot < 24; slot++) {
+            int x = (slot % 6) * width / 6 + width / 24;
+            int y = (slot / 6) * height / 4 + height / 16;
+            g2d.fillPolygon(new int[] {x, x + width / 10, x + width / 20}, new int[] {y + height / 8, y + height / 8, y}, 3);
+        }
+        g2d.dispose();
+        
+        SamosaSequenceAnalyzer analyzer = new SamosaSequenceAnalyzer();
+        Random random = new Random(42);
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] trayPixels = ((DataBufferInt) tray.getRaster().getDataBuffer()).getData();
+        int[] framePixels = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+        
+        long incrementalNanos = 0;
+        long fullNanos = 0;
+        for (int i = 0; i < frames; i++) {
+            // Low-level sensor noise everywhere, plus one samosa sliding along the top edge
+            for (int p = 0; p < framePixels.length; p++) {
+                int noise = random.nextInt(5) - 2;
+                int rgb = trayPixels[p];
+                framePixels[p] = (clamp(((rgb >> 16) & 0xFF) + noise) << 16) | (clamp(((rgb >> 8) & 0xFF) + noise) << 8)
+                                 | clamp((rgb & 0xFF) + noise);
+            }
+            g2d = frame.createGraphics();
+            g2d.setColor(new Color(160, 100, 30));
+            g2d.fillOval(i * width / frames, height / 100, width / 12, width / 12);
+            g2d.dispose();
+            
+            long start = System.nanoTime();
+            SamosaFrameResult result = analyzer.analyzeFrame(frame);
+            long middle = System.nanoTime();
+            int exact = ImageProcessor.calculateSamosaPixelArea(frame);
+            long end = System.nanoTime();
+            incrementalNanos += i > 0 ? middle - start : 0;
+            fullNanos += i > 0 ? end - middle : 0;
+            
+            System.out.printf("%s exact=%d (%.1f ms vs %.1f ms full)%n", result, exact, (middle - start) / 1e6, (end - middle) / 1e6);
+        }
+        System.out.printf("Mean after the first frame: %.2f ms incremental, %.2f ms full rescan%n",
+                          incrementalNanos / 1e6 / Math.max(1, frames - 1), fullNanos / 1e6 / Math.max(1, frames - 1));
+    }
+    
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+import java.awt.Polygon;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+
+/**
+ * Geometry of one detected samosa: its convex hull and its minimum-area enclosing triangle,
+ * next to the pixel-count area. A well-formed samosa fills most of its enclosing triangle;
+ * a low {@link #getTriangleFill()} flags a broken, folded or merged piece.
+ * Coordinates are pixel corners, so a single pixel spans (x, y) to (x + 1, y + 1).
+ */
+public final class SamosaShape {
+    
+    /** Triangle fill below which a samosa is reported as misshapen by default. */
+    public static final double DEFAULT_MIN_TRIANGLE_FILL = 0.75;
+    
+    private final SamosaComponent component;
+    private final Polygon convexHull;
+    private final double hullArea;
+    private final double[] triangle;
+    private final double triangleArea;
+    
+    /**
+     * Creates a new shape record.
+     * 
+     * @param component The component the shape was computed for
+     * @param convexHull The convex hull of the component's pixels
+     * @param hullArea The area enclosed by the hull
+     * @param triangle The enclosing triangle's vertices as x1, y1, x2, y2, x3, y3
+     * @param triangleArea The area of the enclosing triangle
+     */
+    SamosaShape(SamosaComponent component, Polygon convexHull, double hullArea, double[] triangle, double triangleArea) {
+        this.component = component;
+        this.convexHull = convexHull;
+        this.hullArea = hullArea;
+        this.triangle = triangle;
+        this.triangleArea = triangleArea;
+    }
+    
+    /**
+     * Gets the component this shape describes.
+     * 
+     * @return The component
+     */
+    public SamosaComponent getComponent() {
+        return component;
+    }
+    
+    /**
+     * Gets the pixel-count area of the component.
+     * 
+     * @return The number of samosa pixels
+     */
+    public long getPixelArea() {
+        return component.getArea();
+    }
+    
+    /**
+     * Gets the convex hull of the component.
+     * 
+     * @return A copy of the hull polygon
+     */
+    public Polygon getConvexHull() {
+        return new Polygon(convexHull.xpoints, convexHull.ypoints, convexHull.npoints);
+    }
+    
+    /**
+     * Gets the area enclosed by the convex hull.
+     * 
+     * @return The hull area in square pixels
+     */
+    public double getHullArea() {
+        return hullArea;
+    }
+    
+    /**
+     * Gets the vertices of the minimum-area enclosing triangle.
+     * 
+     * @return The three vertices
+     */
+    public Point2D.Double[] getTriangleVertices() {
+        return new Point2D.Double[] {
+            new Point2D.Double(triangle[0], triangle[1]),
+            new Point2D.Double(triangle[2], triangle[3]),
+            new Point2D.Double(triangle[4], triangle[5])
+        };
+    }
+    
+    /**
+     * Gets the minimum-area enclosing triangle as a closed path, ready to draw.
+     * 
+     * @return The triangle outline
+     */
+    public Path2D.Double getTriangle() {
+        Path2D.Double path = new Path2D.Double();
+        path.moveTo(triangle[0], triangle[1]);
+        path.lineTo(triangle[2], triangle[3]);
+        path.lineTo(triangle[4], triangle[5]);
+        path.closePath();
+        return path;
+    }
+    
+    /**
+     * Gets the area of the minimum-area enclosing triangle.
+     * 
+     * @return The geometric triangle area in square pixels
+     */
+    public double getTriangleArea() {
+        return triangleArea;
+    }
+    
+    /**
+     * Gets how much of the enclosing triangle the samosa's pixels fill.
+     * 
+     * @return The pixel area divided by the triangle area, from 0.0 to 1.0
+     */
+    public double getTriangleFill() {
+        return component.getArea() / triangleArea;
+    }
+    
+    /**
+     * Gets how much of the convex hull the samosa's pixels fill. Low values point to dents
+     * or bites rather than a wrong overall outline.
+     * 
+     * @return The pixel area divided by the hull area, from 0.0 to 1.0
+     */
+    public double getSolidity() {
+        return component.getArea() / hullArea;
+    }
+    
+    /**
+     * Checks whether the samosa fills too little of its enclosing triangle to be well formed.
+     * 
+     * @param minTriangleFill The smallest acceptable triangle fill, from 0.0 to 1.0
+     * @return true if the samosa is misshapen
+     */
+    public boolean isMisshapen(double minTriangleFill) {
+        return getTriangleFill() < minTriangleFill;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("SamosaShape[#%d, pixels=%d, hull=%.1f (%d vertices), triangle=%.1f, fill=%.3f]",
+                             component.getLabel(), component.getArea(), hullArea, convexHull.npoints,
+                             triangleArea, getTriangleFill());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,473 @@
+import java.awt.Polygon;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+/**
+ * Computes the convex hull and the minimum-area enclosing triangle of detected samosas.
+ * 
+ * The hull is built from each component's per-row left and right extents rather than from
+ * its pixels: only the outermost pixel corners of every row can be hull vertices, and they
+ * arrive already sorted by row, so a monotone chain over them runs in O(rows).
+ * 
+ * The minimum enclosing triangle always has one side flush with a hull edge. For every hull
+ * edge the second side's angle is found with a coarse scan and a golden-section refinement;
+ * the third side then follows exactly from the midpoint property of minimal cuts, located by
+ * binary search over the hull vertices. A triangular samosa, whose hull has a handful of
+ * vertices, takes about a tenth of a millisecond; a round blob with 70 hull vertices about two.
+ */
+public class SamosaShapeAnalyzer {
+    
+    /** Samples taken across each angle range before refining the best one. */
+    private static final int COARSE_SAMPLES = 12;
+    
+    /** Golden-section steps; each shrinks the bracket by about 38%. */
+    private static final int REFINE_STEPS = 24;
+    
+    private static final double GOLDEN_RATIO = (Math.sqrt(5.0) - 1.0) / 2.0;
+    
+    /** Keeps sides away from being parallel, where the triangle becomes unbounded. */
+    private static final double ANGLE_MARGIN = 1e-6;
+    
+    /**
+     * Analyzes the shape of every component.
+     * 
+     * @param components The components to analyze
+     * @return One shape per component, in the same order
+     * @throws IllegalArgumentException if the components parameter is null
+     */
+    public static List<SamosaShape> analyze(List<SamosaComponent> components) throws IllegalArgumentException {
+        if (components == null) {
+            throw new IllegalArgumentException("Components cannot be null");
+        }
+        
+        List<SamosaShape> shapes = new ArrayList<SamosaShape>(components.size());
+        for (SamosaComponent component : components) {
+            shapes.add(analyze(component));
+        }
+        return Collections.unmodifiableList(shapes);
+    }
+    
+    /**
+     * Analyzes the shape of one component.
+     * 
+     * @param component The component to analyze
+     * @return The component's hull, enclosing triangle and derived ratios
+     * @throws IllegalArgumentException if the component parameter is null
+     */
+    public static SamosaShape analyze(SamosaComponent component) throws IllegalArgumentException {
+        if (component == null) {
+            throw new IllegalArgumentException("Component cannot be null");
+        }
+        
+        Polygon hull = computeConvexHull(component);
+        double hullArea = AreaCalculator.calculatePolygonArea(hull.xpoints, hull.ypoints, hull.npoints);
+        double[] triangle = computeMinimumEnclosingTriangle(hull);
+        double triangleArea = AreaCalculator.calculateTriangleArea(triangle[0], triangle[1], triangle[2],
+                                                                   triangle[3], triangle[4], triangle[5]);
+        return new SamosaShape(component, hull, hullArea, triangle, triangleArea);
+    }
+    
+    /**
+     * Builds the convex hull of a component's pixel squares with positive orientation
+     * (counterclockwise in a y-up frame, clockwise on screen) and no collinear vertices.
+     * 
+     * @param component The component
+     * @return The hull polygon
+     */
+    static Polygon computeConvexHull(SamosaComponent component) {
+        int minY = component.getMinY();
+        int maxY = component.getMaxY();
+        
+        // At each horizontal grid line only the outermost corners of the rows above and below
+        // can be on the hull; emit them in (y, x) order
+        int[] pointX = new int[2 * (maxY - minY + 2)];
+        int[] pointY = new int[pointX.length];
+        int pointCount = 0;
+        for (int gridY = minY; gridY <= maxY + 1; gridY++) {
+            int left = Integer.MAX_VALUE;
+            int right = Integer.MIN_VALUE;
+            if (gridY > minY) {
+                left = Math.min(left, component.getRowLeft(gridY - 1));
+                right = Math.max(right, component.getRowRight(gridY - 1) + 1);
+            }
+            if (gridY <= maxY) {
+                left = Math.min(left, component.getRowLeft(gridY));
+                right = Math.max(right, component.getRowRight(gridY) + 1);
+            }
+            pointX[pointCount] = left;
+            pointY[pointCount++] = gridY;
+            pointX[pointCount] = right;
+            pointY[pointCount++] = gridY;
+        }
+        
+        // Andrew's monotone chain, run on points sorted by (y, x) instead of (x, y)
+        int[] hullX = new int[pointCount + 1];
+        int[] hullY = new int[pointCount + 1];
+        int size = 0;
+        for (int i = 0; i < pointCount; i++) {
+            while (size >= 2 && cross(hullX[size - 2], hullY[size - 2], hullX[size - 1], hullY[size - 1],
+                                      pointX[i], pointY[i]) >= 0) {
+                size--;
+            }
+            hullX[size] = pointX[i];
+            hullY[size++] = pointY[i];
+        }
+        int lowerSize = size + 1;
+        for (int i = pointCount - 2; i >= 0; i--) {
+            while (size >= lowerSize && cross(hullX[size - 2], hullY[size - 2], hullX[size - 1], hullY[size - 1],
+                                              pointX[i], pointY[i]) >= 0) {
+                size--;
+            }
+            hullX[size] = pointX[i];
+            hullY[size++] = pointY[i];
+        }
+        size--;
+        
+        Polygon hull = new Polygon(hullX, hullY, size);
+        if (signedDoubleArea(hull) < 0) {
+            reverse(hull);
+        }
+        return hull;
+    }
+    
+    /**
+     * Finds the minimum-area triangle enclosing a convex polygon.
+     * 
+     * @param hull A convex polygon with positive orientation and no collinear vertices
+     * @return The triangle's vertices as x1, y1, x2, y2, x3, y3
+     */
+    static double[] computeMinimumEnclosingTriangle(Polygon hull) {
+        final HullSupport support = new HullSupport(hull);
+        double[] best = null;
+        double bestArea = Double.POSITIVE_INFINITY;
+        
+        for (int edge = 0; edge < support.size; edge++) {
+            final int flushVertex = edge;
+            final double flushAngle = support.edgeAngle[edge];
+            
+            // The second side turns left from the flush side by less than pi
+            AngleFunction areaForSecondSide = new AngleFunction() {
+                @Override
+                public double evaluate(double secondAngle) {
+                    return support.closeTriangle(flushVertex, secondAngle, null);
+                }
+            };
+            double secondAngle = minimize(areaForSecondSide, flushAngle, flushAngle + Math.PI);
+            
+            double[] vertices = new double[6];
+            double area = support.closeTriangle(flushVertex, secondAngle, vertices);
+            if (area < bestArea) {
+                bestArea = area;
+                best = vertices;
+            }
+        }
+        
+        return best;
+    }
+    
+    /**
+     * Locates the minimum of a function over an open angle range: a coarse scan picks the
+     * best sample, then golden-section search refines within its neighbours.
+     */
+    private static double minimize(AngleFunction function, double low, double high) {
+        low += ANGLE_MARGIN;
+        high -= ANGLE_MARGIN;
+        
+        double step = (high - low) / (COARSE_SAMPLES + 1);
+        int bestSample = 1;
+        double bestValue = Double.POSITIVE_INFINITY;
+        for (int i = 1; i <= COARSE_SAMPLES; i++) {
+            double value = function.evaluate(low + i * step);
+            if (value < bestValue) {
+                bestValue = value;
+                bestSample = i;
+            }
+        }
+        
+        double a = low + (bestSample - 1) * step;
+        double b = low + (bestSample + 1) * step;
+        double c = b - GOLDEN_RATIO * (b - a);
+        double d = a + GOLDEN_RATIO * (b - a);
+        double valueC = function.evaluate(c);
+        double valueD = function.evaluate(d);
+        for (int i = 0; i < REFINE_STEPS; i++) {
+            if (valueC < valueD) {
+                b = d;
+                d = c;
+                valueD = valueC;
+                c = b - GOLDEN_RATIO * (b - a);
+                valueC = function.evaluate(c);
+            } else {
+                a = c;
+                c = d;
+                valueC = valueD;
+                d = a + GOLDEN_RATIO * (b - a);
+                valueD = function.evaluate(d);
+            }
+        }
+        
+        if (Math.min(valueC, valueD) > bestValue) {
+            return low + bestSample * step;
+        }
+        return valueC < valueD ? c : d;
+    }
+    
+    private static long signedDoubleArea(Polygon polygon) {
+        long area = 0;
+        for (int i = 0, j = polygon.npoints - 1; i < polygon.npoints; j = i++) {
+            area += (long) polygon.xpoints[j] * polygon.ypoints[i] - (long) polygon.xpoints[i] * polygon.ypoints[j];
+        }
+        return area;
+    }
+    
+    private static void reverse(Polygon polygon) {
+        for (int i = 0, j = polygon.npoints - 1; i < j; i++, j--) {
+            int swapX = polygon.xpoints[i];
+            polygon.xpoints[i] = polygon.xpoints[j];
+            polygon.xpoints[j] = swapX;
+            int swapY = polygon.ypoints[i];
+            polygon.ypoints[i] = polygon.ypoints[j];
+            polygon.ypoints[j] = swapY;
+        }
+    }
+    
+    /**
+     * Cross product of (b - a) and (c - a).
+     */
+    private static long cross(int ax, int ay, int bx, int by, int cx, int cy) {
+        return (long) (bx - ax) * (cy - ay) - (long) (by - ay) * (cx - ax);
+    }
+    
+    /**
+     * A function of one line angle to be minimized.
+     */
+    private interface AngleFunction {
+        
+        double evaluate(double angle);
+    }
+    
+    /**
+     * Support-line queries against a convex polygon. Edge angles increase monotonically
+     * around a positively oriented polygon, so the vertex touched by a support line of a
+     * given direction is found by binary search.
+     */
+    private static final class HullSupport {
+        
+        final int size;
+        final double[] x;
+        final double[] y;
+        final double[] edgeAngle;
+        
+        HullSupport(Polygon hull) {
+            size = hull.npoints;
+            x = new double[size];
+            y = new double[size];
+            edgeAngle = new double[size];
+            for (int i = 0; i < size; i++) {
+                x[i] = hull.xpoints[i];
+                y[i] = hull.ypoints[i];
+            }
+            for (int i = 0; i < size; i++) {
+                int next = (i + 1) % size;
+                double angle = Math.atan2(y[next] - y[i], x[next] - x[i]);
+                if (i > 0) {
+                    while (angle <= edgeAngle[i - 1]) {
+                        angle += 2 * Math.PI;
+                    }
+                }
+                edgeAngle[i] = angle;
+            }
+        }
+        
+        /**
+         * Finds the vertex touched by the support line with the given direction, the polygon
+         * lying to its left.
+         */
+        int supportVertex(double angle) {
+            double normalized = angle - Math.floor((angle - edgeAngle[0]) / (2 * Math.PI)) * 2 * Math.PI;
+            
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (edgeAngle[middle] < normalized) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low == size ? 0 : low;
+        }
+        
+        /**
+         * Completes a triangle whose first side is flush with an edge and whose second side is
+         * the support line at the given angle, choosing the third side of least area.
+         * 
+         * Among support lines touching one vertex, the smallest triangle cut from the wedge of
+         * the first two sides is the one with the vertex at the midpoint of the cut. That
+         * midpoint direction moves monotonically around the hull, so a binary search over the
+         * candidate vertices finds the one whose support range contains it.
+         * 
+         * @param flushVertex The start vertex of the edge the first side lies on
+         * @param secondAngle The direction of the second side
+         * @param vertices Receives the triangle's vertices when not null
+         * @return The area of the triangle, or infinity if the sides cannot close a triangle
+         */
+        double closeTriangle(int flushVertex, double secondAngle, double[] vertices) {
+            double flushAngle = edgeAngle[flushVertex];
+            double ax = x[flushVertex];
+            double ay = y[flushVertex];
+            double adx = Math.cos(flushAngle);
+            double ady = Math.sin(flushAngle);
+            
+            int secondVertex = supportVertex(secondAngle);
+            double bdx = Math.cos(secondAngle);
+            double bdy = Math.sin(secondAngle);
+            double denominator = adx * bdy - ady * bdx;
+            if (!(denominator > 0)) {
+                return Double.POSITIVE_INFINITY;
+            }
+            
+            // Apex where the first side ends and the second begins
+            double s = ((x[secondVertex] - ax) * bdy - (y[secondVertex] - ay) * bdx) / denominator;
+            double apexX = ax + s * adx;
+            double apexY = ay + s * ady;
+            
+            double low = Math.max(secondAngle, flushAngle + Math.PI) + ANGLE_MARGIN;
+            double high = secondAngle + Math.PI - ANGLE_MARGIN;
+            if (high <= low) {
+                return Double.POSITIVE_INFINITY;
+            }
+            
+            int first = supportVertex(low);
+            int count = (supportVertex(high) - first + size) % size + 1;
+            double[] range = new double[2];
+            
+            int lowIndex = 0;
+            int highIndex = count - 1;
+            while (lowIndex < highIndex) {
+                int middle = (lowIndex + highIndex) >>> 1;
+                int vertex = (first + middle) % size;
+                supportRange(vertex, low, high, range);
+                double midpointAngle = midpointAngle(vertex, apexX, apexY, adx, ady, bdx, bdy, range);
+                if (midpointAngle > range[1]) {
+                    lowIndex = middle + 1;
+                } else {
+                    highIndex = middle;
+                }
+            }
+            
+            // Check the neighbours too, in case rounding put the search one vertex off
+            double bestArea = Double.POSITIVE_INFINITY;
+            for (int index = Math.max(0, lowIndex - 1); index <= Math.min(count - 1, lowIndex + 1); index++) {
+                int vertex = (first + index) % size;
+                supportRange(vertex, low, high, range);
+                double angle = midpointAngle(vertex, apexX, apexY, adx, ady, bdx, bdy, range);
+                angle = Math.max(range[0], Math.min(range[1], angle));
+                double area = cutArea(vertex, angle, apexX, apexY, adx, ady, bdx, bdy, null);
+                if (area < bestArea) {
+                    bestArea = area;
+                    if (vertices != null) {
+                        cutArea(vertex, angle, apexX, apexY, adx, ady, bdx, bdy, vertices);
+                    }
+                }
+            }
+            return bestArea;
+        }
+        
+        /**
+         * Gets the directions of the support lines touching a vertex, clipped to [low, high]
+         * and unwrapped into the same turn as that range.
+         */
+        private void supportRange(int vertex, double low, double high, double[] range) {
+            double in = vertex == 0 ? edgeAngle[size - 1] - 2 * Math.PI : edgeAngle[vertex - 1];
+            double out = edgeAngle[vertex];
+            double shift = Math.ceil((low - out) / (2 * Math.PI)) * 2 * Math.PI;
+            range[0] = Math.max(low, in + shift);
+            range[1] = Math.min(high, out + shift);
+        }
+        
+        /**
+         * Gets the direction of the line through a vertex that is cut by the two sides at equal
+         * distances from the vertex, unwrapped to lie near the given range.
+         */
+        private double midpointAngle(int vertex, double apexX, double apexY, double adx, double ady,
+                                     double bdx, double bdy, double[] range) {
+            // The cut points are apex - s * a and apex + t * b; their midpoint is the vertex
+            double rx = 2 * (x[vertex] - apexX);
+            double ry = 2 * (y[vertex] - apexY);
+            double determinant = ady * bdx - adx * bdy;
+            double s = (rx * bdy - ry * bdx) / determinant;
+            double t = (ady * rx - adx * ry) / determinant;
+            double angle = Math.atan2(-s * ady - t * bdy, -s * adx - t * bdx);
+            
+            double center = (range[0] + range[1]) / 2;
+            return angle + Math.rint((center - angle) / (2 * Math.PI)) * 2 * Math.PI;
+        }
+        
+        /**
+         * Computes the triangle formed by the first two sides and the line through a vertex at
+         * the given direction.
+         */
+        private double cutArea(int vertex, double angle, double apexX, double apexY, double adx, double ady,
+                               double bdx, double bdy, double[] vertices) {
+            double cdx = Math.cos(angle);
+            double cdy = Math.sin(angle);
+            double vx = x[vertex] - apexX;
+            double vy = y[vertex] - apexY;
+            
+            // Where the third side meets the first side (behind the apex) and the second side
+            double alongFirst = (vx * cdy - vy * cdx) / (adx * cdy - ady * cdx);
+            double alongSecond = (vx * cdy - vy * cdx) / (bdx * cdy - bdy * cdx);
+            double area = 0.5 * Math.abs(alongFirst * alongSecond * (adx * bdy - ady * bdx));
+            if (Double.isNaN(area)) {
+                return Double.POSITIVE_INFINITY;
+            }
+            
+            if (vertices != null) {
+                vertices[0] = apexX + alongFirst * adx;
+                vertices[1] = apexY + alongFirst * ady;
+                vertices[2] = apexX;
+                vertices[3] = apexY;
+                vertices[4] = apexX + alongSecond * bdx;
+                vertices[5] = apexY + alongSecond * bdy;
+            }
+            return area;
+        }
+    }
+    
+    /**
+     * Main method for testing the SamosaShapeAnalyzer functionality.
+     * 
+     * @param args Paths of image files to analyze
+     */
+    public static void main(String[] args) {
+        System.out.println("SamosaShapeAnalyzer Test");
+        System.out.println("========================");
+        
+        for (String path : args) {
+            try {
+                BufferedImage image = ImageIO.read(new File(path));
+                if (image == null) {
+                    System.out.println(path + ": Error - unsupported format");
+                    continue;
+                }
+                List<SamosaComponent> components = SamosaComponentLabeler.label(ImageProcessor.detectSamosaMask(image));
+                long start = System.nanoTime();
+                List<SamosaShape> shapes = analyze(components);
+                long elapsedMicros = (System.nanoTime() - start) / 1000;
+                
+                System.out.println(path + ": " + shapes.size() + " samosas measured in " + elapsedMicros + " us");
+                for (SamosaShape shape : shapes) {
+                    System.out.println("  " + shape + (shape.isMisshapen(SamosaShape.DEFAULT_MIN_TRIANGLE_FILL) ? "  MISSHAPEN" : ""));
+                }
+            } catch (Exception e) {
+                System.out.println(path + ": Error - " + e.getMessage());
+            }
+        }
+    }
+}
\ No newline at end of file
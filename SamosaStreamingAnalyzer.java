@@ -0,0 +1,185 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Streaming samosa analysis for images too large to decode in one piece.
+ * The image is decoded in horizontal bands through {@link ImageReadParam#setSourceRegion(Rectangle)},
+ * each band is classified as soon as it is decoded, and only the counts (and, optionally, the
+ * one-bit-per-pixel mask) are kept. Peak pixel memory is one band, reused for every read.
+ * 
+ * Tiled and striped formats such as TIFF decode each band independently. Sequential codecs
+ * such as PNG and JPEG have to decode from the top of the file up to every requested band,
+ * so taller bands make them proportionally cheaper.
+ */
+public class SamosaStreamingAnalyzer {
+    
+    /** Number of rows decoded per band by default. */
+    public static final int DEFAULT_BAND_HEIGHT = 512;
+    
+    /**
+     * Receives each band as soon as it has been classified.
+     */
+    public interface BandListener {
+        
+        /**
+         * Called once per band, in top-to-bottom order, on the analyzing thread.
+         * The band mask is reused for the next band, so copy anything that must outlive the call.
+         * 
+         * @param startRow The image row of the band's first row
+         * @param rowCount The number of rows in the band
+         * @param bandMask The band's detection mask; only its first rowCount rows are valid
+         * @param samosaPixelCount The number of samosa pixels in the band
+         */
+        void bandAnalyzed(int startRow, int rowCount, SamosaMask bandMask, int samosaPixelCount);
+    }
+    
+    /**
+     * Analyzes an image file band by band and collects the full detection mask.
+     * 
+     * @param imageFile The image file to analyze
+     * @return The analysis result
+     * @throws IllegalArgumentException if the imageFile parameter is null
+     * @throws IOException if the file cannot be read or no reader supports its format
+     */
+    public static SamosaAnalysisResult analyze(File imageFile) throws IllegalArgumentException, IOException {
+        return analyze(imageFile, DEFAULT_BAND_HEIGHT, true, null);
+    }
+    
+    /**
+     * Analyzes an image file band by band.
+     * 
+     * @param imageFile The image file to analyze
+     * @param bandHeight The number of rows to decode at a time
+     * @param collectMask true to assemble the full-size mask (one bit per pixel), false to keep
+     *                    only the counts so memory stays bounded by the band size
+     * @return The analysis result; its mask is null when collectMask is false
+     * @throws IllegalArgumentException if the imageFile parameter is null or bandHeight is less than 1
+     * @throws IOException if the file cannot be read or no reader supports its format
+     */
+    public static SamosaAnalysisResult analyze(File imageFile, int bandHeight, boolean collectMask)
+            throws IllegalArgumentException, IOException {
+        return analyze(imageFile, bandHeight, collectMask, null);
+    }
+    
+    /**
+     * Analyzes an image file band by band, reporting every band to a listener.
+     * 
+     * @param imageFile The image file to analyze
+     * @param bandHeight The number of rows to decode at a time
+     * @param collectMask true to assemble the full-size mask (one bit per pixel), false to keep
+     *                    only the counts so memory stays bounded by the band size
+     * @param listener Receives each classified band, or null
+     * @return The analysis result; its mask is null when collectMask is false
+     * @throws IllegalArgumentException if the imageFile parameter is null or bandHeight is less than 1
+     * @throws IOException if the file cannot be read or no reader supports its format
+     */
+    public static SamosaAnalysisResult analyze(File imageFile, int bandHeight, boolean collectMask, BandListener listener)
+            throws IllegalArgumentException, IOException {
+        if (imageFile == null) {
+            throw new IllegalArgumentException("Image file cannot be null");
+        }
+        if (bandHeight < 1) {
+            throw new IllegalArgumentException("Band height must be at least 1: " + bandHeight);
+        }
+        
+        ImageInputStream input = ImageIO.createImageInputStream(imageFile);
+        if (input == null) {
+            throw new IOException("Could not open image file: " + imageFile.getPath());
+        }
+        
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Could not read image file: " + imageFile.getPath() +
+                                   " (unsupported format or corrupted file)");
+            }
+            
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, false, true);
+                return analyzeBands(reader, bandHeight, collectMask, listener);
+            } finally {
+                reader.dispose();
+            }
+        } finally {
+            input.close();
+        }
+    }
+    
+    /**
+     * Decodes and classifies the first image of a reader one band at a time.
+     */
+    private static SamosaAnalysisResult analyzeBands(ImageReader reader, int bandHeight, boolean collectMask,
+                                                     BandListener listener) throws IOException {
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        bandHeight = Math.min(bandHeight, Math.max(1, height));
+        
+        SamosaMask fullMask = collectMask ? new SamosaMask(width, height) : null;
+        SamosaMask bandMask = new SamosaMask(width, bandHeight);
+        SamosaColorLut lut = SamosaColorLut.getDefault();
+        
+        // Decode every band into the same buffer instead of allocating one per read
+        ImageReadParam param = reader.getDefaultReadParam();
+        Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+        if (types != null && types.hasNext()) {
+            param.setDestination(types.next().createBufferedImage(width, bandHeight));
+        }
+        
+        long samosaPixelCount = 0;
+        for (int startRow = 0; startRow < height; startRow += bandHeight) {
+            int rowCount = Math.min(bandHeight, height - startRow);
+            param.setSourceRegion(new Rectangle(0, startRow, width, rowCount));
+            BufferedImage band = reader.read(0, param);
+            
+            // The last band may be shorter; rows left over from the previous band must not be counted
+            if (band.getHeight() > rowCount) {
+                band = band.getSubimage(0, 0, width, rowCount);
+            }
+            
+            bandMask.clear();
+            int bandCount = ImageProcessor.detectSamosaPixels(band, bandMask, lut, ImageProcessor.DEFAULT_PARALLELISM);
+            samosaPixelCount += bandCount;
+            
+            if (fullMask != null) {
+                fullMask.copyRows(bandMask, rowCount, startRow);
+            }
+            if (listener != null) {
+                listener.bandAnalyzed(startRow, rowCount, bandMask, bandCount);
+            }
+        }
+        
+        long totalPixels = (long) width * height;
+        double coveragePercentage = AreaCalculator.calculateSamosaCoveragePercentage(samosaPixelCount, totalPixels);
+        return new SamosaAnalysisResult(fullMask, samosaPixelCount, totalPixels, coveragePercentage);
+    }
+    
+    /**
+     * Main method for testing the SamosaStreamingAnalyzer functionality.
+     * 
+     * @param args Paths of image files to analyze
+     */
+    public static void main(String[] args) {
+        System.out.println("SamosaStreamingAnalyzer Test");
+        System.out.println("============================");
+        
+        for (String path : args) {
+            try {
+                long start = System.nanoTime();
+                SamosaAnalysisResult result = analyze(new File(path), DEFAULT_BAND_HEIGHT, false);
+                long elapsedMillis = (System.nanoTime() - start) / 1000000;
+                System.out.println(path + ": " + result + " in " + elapsedMillis + " ms");
+            } catch (Exception e) {
+                System.out.println(path + ": Error - " + e.getMessage());
+            }
+        }
+    }
+}
\ No newline at end of file
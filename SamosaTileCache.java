@@ -0,0 +1,309 @@
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory-bounded cache of image tiles that are rendered on background threads.
+ * 
+ * A tile is identified by the renderer that produces it, its pyramid level and its column and
+ * row at that level. Looking a tile up never blocks: a tile that is not cached yet is queued for
+ * rendering and null is returned, and the {@link TileListener} is told once it arrives, so the
+ * caller can repaint. The most recently requested tiles are rendered first, which keeps the
+ * tiles under the current view ahead of those the view has already moved past.
+ * 
+ * Cached tiles are evicted in least recently used order once their pixel memory exceeds the
+ * configured limit.
+ */
+public class SamosaTileCache {
+    
+    /** Width and height of a full tile in pixels; tiles on the right and bottom edges may be smaller. */
+    public static final int TILE_SIZE = 256;
+    
+    /** Default memory limit: an eighth of the maximum heap, capped at 256 MB. */
+    public static final long DEFAULT_MAX_BYTES = Math.min(256L << 20, Runtime.getRuntime().maxMemory() / 8);
+    
+    /**
+     * Renders the tiles of one image, or of one layer drawn over an image.
+     */
+    public interface TileRenderer {
+        
+        /**
+         * Renders one tile. Called on a background thread, possibly for several tiles at once.
+         * 
+         * @param level The pyramid level, where level n has 1/2^n of the full resolution
+         * @param tileX The tile column at that level
+         * @param tileY The tile row at that level
+         * @return The rendered tile, at most {@link #TILE_SIZE} pixels on each side
+         */
+        BufferedImage renderTile(int level, int tileX, int tileY);
+    }
+    
+    /**
+     * Receives notice of newly rendered tiles.
+     */
+    public interface TileListener {
+        
+        /**
+         * Called on the rendering thread after a tile has been added to the cache.
+         * 
+         * @param renderer The renderer that produced the tile
+         * @param level The tile's pyramid level
+         * @param tileX The tile column
+         * @param tileY The tile row
+         */
+        void tileReady(TileRenderer renderer, int level, int tileX, int tileY);
+    }
+    
+    private final long maxBytes;
+    private final TileListener listener;
+    private final ThreadPoolExecutor renderPool;
+    
+    private final LinkedHashMap<TileKey, BufferedImage> tiles = new LinkedHashMap<TileKey, BufferedImage>(256, 0.75f, true);
+    private final Set<TileKey> pending = new HashSet<TileKey>();
+    private long cachedBytes = 0;
+    
+    /** Incremented by {@link #clear()} so that tiles requested earlier are neither rendered nor stored. */
+    private int generation = 0;
+    
+    /**
+     * Creates a tile cache with the default memory limit and one rendering thread per processor.
+     * 
+     * @param listener Told about each rendered tile, or null
+     */
+    public SamosaTileCache(TileListener listener) {
+        this(DEFAULT_MAX_BYTES, ImageProcessor.DEFAULT_PARALLELISM, listener);
+    }
+    
+    /**
+     * Creates a tile cache.
+     * 
+     * @param maxBytes The most pixel memory cached tiles may use
+     * @param threads The number of background rendering threads
+     * @param listener Told about each rendered tile, or null
+     * @throws IllegalArgumentException if maxBytes or threads is less than 1
+     */
+    public SamosaTileCache(long maxBytes, int threads, TileListener listener) throws IllegalArgumentException {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Tile cache size must be positive: " + maxBytes);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Rendering threads must be at least 1: " + threads);
+        }
+        
+        this.maxBytes = maxBytes;
+        this.listener = listener;
+        
+        // Queued at the front, so the newest request is taken next
+        LinkedBlockingDeque<Runnable> queue = new LinkedBlockingDeque<Runnable>() {
+            private static final long serialVersionUID = 1L;
+            
+            @Override
+            public boolean offer(Runnable task) {
+                return offerFirst(task);
+            }
+        };
+        this.renderPool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, queue, new ThreadFactory() {
+            private int count = 0;
+            
+            @Override
+            public synchronized Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "samosa-tile-" + (++count));
+                thread.setDaemon(true);
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        });
+        this.renderPool.allowCoreThreadTimeOut(true);
+    }
+    
+    /**
+     * Gets a tile from the cache, queueing it for rendering if it is not there yet.
+     * Never blocks on rendering, so it is safe to call while painting.
+     * 
+     * @param renderer The renderer that produces the tile
+     * @param level The pyramid level
+     * @param tileX The tile column
+     * @param tileY The tile row
+     * @return The cached tile, or null if it is still being rendered
+     */
+    public BufferedImage getTile(TileRenderer renderer, int level, int tileX, int tileY) {
+        final TileKey key = new TileKey(renderer, level, tileX, tileY);
+        final int requestGeneration;
+        synchronized (this) {
+            BufferedImage tile = tiles.get(key);
+            if (tile != null || !pending.add(key)) {
+                return tile;
+            }
+            requestGeneration = generation;
+        }
+        
+        renderPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                render(key, requestGeneration);
+            }
+        });
+        return null;
+    }
+    
+    /**
+     * Gets a tile only if it is already cached, without queueing it for rendering.
+     * 
+     * @param renderer The renderer that produces the tile
+     * @param level The pyramid level
+     * @param tileX The tile column
+     * @param tileY The tile row
+     * @return The cached tile, or null
+     */
+    public synchronized BufferedImage peekTile(TileRenderer renderer, int level, int tileX, int tileY) {
+        return tiles.get(new TileKey(renderer, level, tileX, tileY));
+    }
+    
+    /**
+     * Removes every cached tile of one renderer, for example after the layer it draws has changed.
+     * Tiles of that renderer still being rendered are stored when they finish, so callers that
+     * change what a renderer draws should switch to a new renderer instead.
+     * 
+     * @param renderer The renderer whose tiles to drop
+     */
+    public synchronized void invalidate(TileRenderer renderer) {
+        Iterator<Map.Entry<TileKey, BufferedImage>> entries = tiles.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<TileKey, BufferedImage> entry = entries.next();
+            if (entry.getKey().renderer == renderer) {
+                cachedBytes -= tileBytes(entry.getValue());
+                entries.remove();
+            }
+        }
+    }
+    
+    /**
+     * Removes every cached tile and abandons all queued requests.
+     */
+    public synchronized void clear() {
+        generation++;
+        tiles.clear();
+        pending.clear();
+        cachedBytes = 0;
+    }
+    
+    /**
+     * Gets the pixel memory used by the cached tiles.
+     * 
+     * @return The cached tile memory in bytes
+     */
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+    
+    /**
+     * Gets the memory limit of this cache.
+     * 
+     * @return The most pixel memory cached tiles may use, in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    /**
+     * Stops the rendering threads. Queued requests are dropped; tiles already cached stay readable.
+     */
+    public void shutdown() {
+        renderPool.shutdownNow();
+    }
+    
+    private void render(TileKey key, int requestGeneration) {
+        synchronized (this) {
+            if (requestGeneration != generation) {
+                return;
+            }
+        }
+        
+        BufferedImage tile = null;
+        try {
+            tile = key.renderer.renderTile(key.level, key.tileX, key.tileY);
+        } catch (RuntimeException e) {
+            System.err.println("Error rendering tile " + key.level + "/" + key.tileX + "/" + key.tileY + ": " + e.getMessage());
+        } catch (OutOfMemoryError e) {
+            System.err.println("Not enough memory to render tile " + key.level + "/" + key.tileX + "/" + key.tileY);
+        }
+        
+        synchronized (this) {
+            if (requestGeneration != generation) {
+                return;
+            }
+            pending.remove(key);
+            if (tile == null) {
+                return;
+            }
+            BufferedImage previous = tiles.put(key, tile);
+            if (previous != null) {
+                cachedBytes -= tileBytes(previous);
+            }
+            cachedBytes += tileBytes(tile);
+            evict();
+        }
+        
+        if (listener != null) {
+            listener.tileReady(key.renderer, key.level, key.tileX, key.tileY);
+        }
+    }
+    
+    /**
+     * Drops least recently used tiles until the cache is within its memory limit. The newest
+     * tile is always kept, even if it alone exceeds the limit.
+     */
+    private void evict() {
+        Iterator<BufferedImage> eldest = tiles.values().iterator();
+        while (cachedBytes > maxBytes && tiles.size() > 1) {
+            cachedBytes -= tileBytes(eldest.next());
+            eldest.remove();
+        }
+    }
+    
+    private static long tileBytes(BufferedImage tile) {
+        return 4L * tile.getWidth() * tile.getHeight();
+    }
+    
+    /**
+     * Identifies a tile by the identity of its renderer, its level and its position.
+     */
+    private static final class TileKey {
+        
+        private final TileRenderer renderer;
+        private final int level;
+        private final int tileX;
+        private final int tileY;
+        
+        TileKey(TileRenderer renderer, int level, int tileX, int tileY) {
+            this.renderer = renderer;
+            this.level = level;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof TileKey)) {
+                return false;
+            }
+            TileKey key = (TileKey) other;
+            return renderer == key.renderer && level == key.level && tileX == key.tileX && tileY == key.tileY;
+        }
+        
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(renderer);
+            hash = 31 * hash + level;
+            hash = 31 * hash + tileX;
+            return 31 * hash + tileY;
+        }
+    }
+}
\ No newline at end of file
@@ -3,6 +3,8 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import java.io.File;
 import javax.swing.UIManager;
 
@@ -12,16 +14,31 @@ import javax.swing.UIManager;
  */
 public class SamosaViewerUI extends JFrame {
     
+    /** Analysis progress, in percent, reached once every pixel has been classified. */
+    private static final int CLASSIFY_PROGRESS = 80;
+    
+    /** Analysis progress, in percent, reached once the mask has been split into samosas. */
+    private static final int LABEL_PROGRESS = 90;
+    
     // GUI Components
     private JButton loadImageButton;
     private JButton calculateAreaButton;
     private JButton showProcessedButton;
     private JButton calibrateButton;
-    private JLabel imageLabel;
+    private JButton overlayColorButton;
+    private JButton tuneColorsButton;
+    private JSlider overlayOpacitySlider;
+    private JLabel overlayOpacityLabel;
+    private JComboBox<String> regionModeBox;
+    private JButton fitToWindowButton;
+    private JProgressBar analysisProgressBar;
+    private JButton cancelAnalysisButton;
+    private SamosaImagePanel imageView;
     private JLabel statusLabel;
     private JLabel areaLabel;
     private JLabel coverageLabel;
     private JLabel realAreaLabel;
+    private JLabel regionLabel;
     private JPanel mainPanel;
     private JPanel buttonPanel;
     private JPanel imagePanel;
@@ -29,11 +46,19 @@ public class SamosaViewerUI extends JFrame {
     
     // Application data
     private BufferedImage currentImage;
-    private BufferedImage processedImage;
+    private SamosaMask samosaMask;
+    private SamosaIntegralImage samosaIntegral;
+    private SamosaColorHistogram colorHistogram;
+    private SamosaColorLut samosaLut = SamosaColorLut.getDefault();
+    private String classifierName = SamosaClassifierProfile.getActive().getName();
+    private SwingWorker<SamosaColorLut, Void> tuningWorker;
+    private java.util.List<SamosaShape> samosaShapes;
     private int samosaPixelArea;
     private double samosaCoveragePercentage;
     private double pixelsPerCm = 0; // Calibration factor
     private boolean isCalibrated = false;
+    private SwingWorker<AnalysisOutcome, Long> analysisWorker; // The only worker allowed to publish results
+    private SwingWorker<SamosaIntegralImage, Void> integralWorker; // Builds the region table for the current mask
     
     /**
      * Constructor - sets up the GUI components and layout
@@ -80,14 +105,53 @@ public class SamosaViewerUI extends JFrame {
         calibrateButton.setFocusPainted(false);
         calibrateButton.setEnabled(false);
         
-        // Labels
-        imageLabel = new JLabel("No image loaded");
-        imageLabel.setHorizontalAlignment(JLabel.CENTER);
-        imageLabel.setVerticalAlignment(JLabel.CENTER);
-        imageLabel.setBorder(BorderFactory.createEtchedBorder());
-        imageLabel.setFont(new Font("Arial", Font.PLAIN, 16));
-        imageLabel.setForeground(Color.GRAY);
+        overlayColorButton = new JButton("Highlight Color");
+        overlayColorButton.setFont(new Font("Arial", Font.BOLD, 14));
+        overlayColorButton.setBackground(new Color(178, 34, 34));
+        overlayColorButton.setForeground(Color.WHITE);
+        overlayColorButton.setFocusPainted(false);
+        overlayColorButton.setEnabled(false);
+        
+        tuneColorsButton = new JButton("Tune Colors");
+        tuneColorsButton.setFont(new Font("Arial", Font.BOLD, 14));
+        tuneColorsButton.setBackground(new Color(0, 128, 128));
+        tuneColorsButton.setForeground(Color.WHITE);
+        tuneColorsButton.setFocusPainted(false);
+        tuneColorsButton.setEnabled(false);
+        
+        // Overlay opacity slider (percent)
+        overlayOpacitySlider = new JSlider(0, 100, 60);
+        overlayOpacitySlider.setPreferredSize(new Dimension(120, overlayOpacitySlider.getPreferredSize().height));
+        overlayOpacitySlider.setBackground(new Color(240, 240, 240));
+        overlayOpacitySlider.setEnabled(false);
+        
+        overlayOpacityLabel = new JLabel("Opacity");
+        overlayOpacityLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+        
+        // Region selection mode; the item index matches the SamosaImagePanel.SELECT_* constants
+        regionModeBox = new JComboBox<String>(new String[] {"Whole Image", "Rectangle Region", "Polygon Region"});
+        regionModeBox.setFont(new Font("Arial", Font.PLAIN, 12));
+        regionModeBox.setEnabled(false);
         
+        // Zooming is done with the mouse wheel over the image; this returns to the whole image
+        fitToWindowButton = new JButton("Fit to Window");
+        fitToWindowButton.setFont(new Font("Arial", Font.PLAIN, 12));
+        fitToWindowButton.setEnabled(false);
+        
+        // Analysis progress, shown only while an analysis runs
+        analysisProgressBar = new JProgressBar(0, 100);
+        analysisProgressBar.setStringPainted(true);
+        analysisProgressBar.setPreferredSize(new Dimension(200, analysisProgressBar.getPreferredSize().height));
+        analysisProgressBar.setVisible(false);
+        
+        cancelAnalysisButton = new JButton("Cancel");
+        cancelAnalysisButton.setFont(new Font("Arial", Font.PLAIN, 12));
+        cancelAnalysisButton.setVisible(false);
+        
+        // Image view
+        imageView = new SamosaImagePanel();
+        
+        // Labels
         statusLabel = new JLabel("Ready to load image");
         statusLabel.setFont(new Font("Arial", Font.PLAIN, 12));
         statusLabel.setForeground(Color.BLACK);
@@ -104,6 +168,10 @@ public class SamosaViewerUI extends JFrame {
         realAreaLabel.setFont(new Font("Arial", Font.BOLD, 14));
         realAreaLabel.setForeground(new Color(0, 100, 0));
         
+        regionLabel = new JLabel("Region: Whole image");
+        regionLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        regionLabel.setForeground(new Color(0, 90, 180));
+        
         // Panels
         mainPanel = new JPanel();
         buttonPanel = new JPanel();
@@ -123,12 +191,18 @@ public class SamosaViewerUI extends JFrame {
         buttonPanel.add(loadImageButton);
         buttonPanel.add(calibrateButton);
         buttonPanel.add(calculateAreaButton);
+        buttonPanel.add(tuneColorsButton);
         buttonPanel.add(showProcessedButton);
+        buttonPanel.add(overlayColorButton);
+        buttonPanel.add(overlayOpacityLabel);
+        buttonPanel.add(overlayOpacitySlider);
+        buttonPanel.add(regionModeBox);
+        buttonPanel.add(fitToWindowButton);
         
         // Image panel (center)
         imagePanel.setLayout(new BorderLayout());
         imagePanel.setBackground(Color.WHITE);
-        imagePanel.add(imageLabel, BorderLayout.CENTER);
+        imagePanel.add(imageView, BorderLayout.CENTER);
         imagePanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
         // Info panel (bottom)
@@ -139,6 +213,8 @@ public class SamosaViewerUI extends JFrame {
         JPanel statusPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         statusPanel.setBackground(new Color(248, 248, 248));
         statusPanel.add(statusLabel);
+        statusPanel.add(analysisProgressBar);
+        statusPanel.add(cancelAnalysisButton);
         
         JPanel areaPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         areaPanel.setBackground(new Color(248, 248, 248));
@@ -152,10 +228,15 @@ public class SamosaViewerUI extends JFrame {
         realAreaPanel.setBackground(new Color(248, 248, 248));
         realAreaPanel.add(realAreaLabel);
         
+        JPanel regionPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        regionPanel.setBackground(new Color(248, 248, 248));
+        regionPanel.add(regionLabel);
+        
         infoPanel.add(statusPanel);
         infoPanel.add(areaPanel);
         infoPanel.add(coveragePanel);
         infoPanel.add(realAreaPanel);
+        infoPanel.add(regionPanel);
         
         // Add panels to main frame
         add(buttonPanel, BorderLayout.NORTH);
@@ -188,12 +269,68 @@ public class SamosaViewerUI extends JFrame {
             }
         });
         
+        cancelAnalysisButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (analysisWorker != null) {
+                    analysisWorker.cancel(false);
+                }
+            }
+        });
+        
+        tuneColorsButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                tuneColors();
+            }
+        });
+        
         showProcessedButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
                 showProcessedImage();
             }
         });
+        
+        overlayColorButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                chooseOverlayColor();
+            }
+        });
+        
+        overlayOpacitySlider.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                imageView.setOverlayOpacity(overlayOpacitySlider.getValue() / 100.0f);
+            }
+        });
+        
+        fitToWindowButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                imageView.fitToWindow();
+            }
+        });
+        
+        regionModeBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                imageView.setSelectionMode(regionModeBox.getSelectedIndex());
+                if (regionModeBox.getSelectedIndex() != SamosaImagePanel.SELECT_NONE) {
+                    prepareRegionIntegral();
+                }
+                updateRegionLabel(null, null);
+            }
+        });
+        
+        // Recount on every mouse event while a region is drawn; the integral image makes each recount constant time
+        imageView.setRegionListener(new SamosaImagePanel.RegionListener() {
+            @Override
+            public void regionChanged(Rectangle rectangle, Polygon polygon) {
+                updateRegionLabel(rectangle, polygon);
+            }
+        });
     }
     
     /**
@@ -208,11 +345,25 @@ public class SamosaViewerUI extends JFrame {
             currentImage = ImageLoader.loadImage();
             
             if (currentImage != null) {
+                // Results of an analysis still running belong to the previous image
+                cancelAnalysis();
                 displayImage(currentImage);
                 calculateAreaButton.setEnabled(true);
                 calibrateButton.setEnabled(true);
-                showProcessedButton.setEnabled(false);
-                processedImage = null;
+                setOverlayControlsEnabled(false);
+                samosaMask = null;
+                discardRegionIntegral();
+                colorHistogram = null;
+                samosaShapes = null;
+                tuneColorsButton.setEnabled(true);
+                // Region measurement needs a summed-area table, which very large images cannot have
+                boolean regionsSupported = SamosaIntegralImage.isSupported(currentImage.getWidth(), currentImage.getHeight());
+                if (!regionsSupported) {
+                    regionModeBox.setSelectedIndex(SamosaImagePanel.SELECT_NONE);
+                }
+                regionModeBox.setEnabled(regionsSupported);
+                fitToWindowButton.setEnabled(true);
+                updateRegionLabel(null, null);
                 isCalibrated = false;
                 statusLabel.setText("Image loaded successfully: " + currentImage.getWidth() + " x " + currentImage.getHeight() + " pixels");
                 statusLabel.setForeground(new Color(0, 128, 0));
@@ -224,7 +375,10 @@ public class SamosaViewerUI extends JFrame {
                 statusLabel.setForeground(Color.RED);
                 calculateAreaButton.setEnabled(false);
                 calibrateButton.setEnabled(false);
-                showProcessedButton.setEnabled(false);
+                tuneColorsButton.setEnabled(false);
+                regionModeBox.setEnabled(false);
+                fitToWindowButton.setEnabled(false);
+                setOverlayControlsEnabled(false);
             }
             
         } catch (Exception e) {
@@ -232,7 +386,10 @@ public class SamosaViewerUI extends JFrame {
             statusLabel.setForeground(Color.RED);
             calculateAreaButton.setEnabled(false);
             calibrateButton.setEnabled(false);
-            showProcessedButton.setEnabled(false);
+            tuneColorsButton.setEnabled(false);
+            regionModeBox.setEnabled(false);
+            fitToWindowButton.setEnabled(false);
+            setOverlayControlsEnabled(false);
         }
     }
     
@@ -304,27 +461,8 @@ public class SamosaViewerUI extends JFrame {
      * Display the loaded image in the GUI
      */
     private void displayImage(BufferedImage image) {
-        // Calculate scaled dimensions to fit in the panel
-        int maxWidth = 700;
-        int maxHeight = 500;
-        
-        int originalWidth = image.getWidth();
-        int originalHeight = image.getHeight();
-        
-        double scaleX = (double) maxWidth / originalWidth;
-        double scaleY = (double) maxHeight / originalHeight;
-        double scale = Math.min(scaleX, scaleY);
-        
-        int scaledWidth = (int) (originalWidth * scale);
-        int scaledHeight = (int) (originalHeight * scale);
-        
-        // Create scaled image
-        Image scaledImage = image.getScaledInstance(scaledWidth, scaledHeight, Image.SCALE_SMOOTH);
-        
-        // Create ImageIcon and set it to the label
-        ImageIcon imageIcon = new ImageIcon(scaledImage);
-        imageLabel.setIcon(imageIcon);
-        imageLabel.setText("");
+        // The image view fits the image to the display area; the mouse wheel zooms in and dragging pans
+        imageView.setImage(image);
         
         // Update the frame size if needed
         pack();
@@ -357,29 +495,95 @@ public class SamosaViewerUI extends JFrame {
     }
     
     /**
-     * Process image and calculate samosa area using ImageProcessor and AreaCalculator
+     * Process image and calculate samosa area using a single SamosaAnalyzer pass.
+     * The scan runs in chunks that report progress and partial counts and can be cancelled
+     * between chunks. Starting a new analysis cancels the previous one, and only the latest
+     * worker may publish its results, so a slow scan can never overwrite a newer image's results.
      */
     private void processImageAndCalculateArea() {
-        // Use SwingWorker for background processing
-        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+        cancelAnalysis();
+        
+        final BufferedImage image = currentImage;
+        final SamosaColorLut lut = samosaLut;
+        SwingWorker<AnalysisOutcome, Long> worker = new SwingWorker<AnalysisOutcome, Long>() {
             @Override
-            protected Void doInBackground() throws Exception {
-                // Process the image for samosa detection
-                processedImage = ImageProcessor.processForSamosaDetection(currentImage);
-                
-                // Calculate samosa area using AreaCalculator
-                samosaPixelArea = AreaCalculator.calculateSamosaArea(currentImage);
+            protected AnalysisOutcome doInBackground() throws Exception {
+                // Detect samosa pixels, count them and compute coverage in one pass; the region table is built
+                // from the mask later, and only if a region is measured
+                SamosaAnalysisResult result = SamosaAnalyzer.analyze(image, lut, ImageProcessor.DEFAULT_PARALLELISM, false,
+                                                                     new SamosaAnalyzer.ProgressListener() {
+                    @Override
+                    public boolean progress(int rowsDone, int totalRows, long samosaPixelsSoFar) {
+                        // Classification is most of the work; labeling and shape analysis share the last 20%
+                        setProgress((int) ((long) rowsDone * CLASSIFY_PROGRESS / totalRows));
+                        publish(samosaPixelsSoFar);
+                        return !isCancelled();
+                    }
+                });
+                if (isCancelled()) {
+                    return null;
+                }
                 
-                // Calculate coverage percentage
-                samosaCoveragePercentage = AreaCalculator.calculateSamosaCoveragePercentage(currentImage);
+                // Split the mask into individual samosas, ignoring speckle, and measure their shapes,
+                // checking for cancellation between the two phases
+                SamosaMetrics.Sample sample = SamosaMetrics.start();
+                java.util.List<SamosaComponent> components = SamosaComponentLabeler.label(result.getMask());
+                if (isCancelled()) {
+                    return null;
+                }
+                setProgress(LABEL_PROGRESS);
+                publish(result.getSamosaPixelCountAsLong());
+                java.util.List<SamosaShape> shapes = SamosaShapeAnalyzer.analyze(components);
+                SamosaMetrics.stop(sample, SamosaMetrics.STAGE_SHAPES, result.getTotalPixels());
+                if (isCancelled()) {
+                    return null;
+                }
                 
-                return null;
+                setProgress(100);
+                return new AnalysisOutcome(image, result, shapes);
+            }
+            
+            @Override
+            protected void process(java.util.List<Long> partialCounts) {
+                if (this != analysisWorker) {
+                    return;
+                }
+                long samosaPixelsSoFar = partialCounts.get(partialCounts.size() - 1);
+                analysisProgressBar.setValue(getProgress());
+                areaLabel.setText("Samosa Pixel Area: " + samosaPixelsSoFar + " pixels so far...");
+                if (getProgress() >= CLASSIFY_PROGRESS) {
+                    statusLabel.setText("Measuring individual samosas...");
+                }
             }
             
             @Override
             protected void done() {
+                // A newer analysis or image has replaced this one; its results must not be shown
+                if (this != analysisWorker) {
+                    return;
+                }
+                analysisWorker = null;
+                analysisProgressBar.setVisible(false);
+                cancelAnalysisButton.setVisible(false);
+                
+                if (isCancelled()) {
+                    statusLabel.setText("Analysis cancelled");
+                    statusLabel.setForeground(Color.ORANGE);
+                    areaLabel.setText("Samosa Pixel Area: Not calculated");
+                    coverageLabel.setText("Samosa Coverage: Not calculated");
+                    return;
+                }
+                
                 try {
-                    get();
+                    AnalysisOutcome outcome = get();
+                    if (outcome.image != currentImage) {
+                        return;
+                    }
+                    samosaMask = outcome.result.getMask();
+                    discardRegionIntegral();
+                    samosaPixelArea = outcome.result.getSamosaPixelCount();
+                    samosaCoveragePercentage = outcome.result.getCoveragePercentage();
+                    samosaShapes = outcome.shapes;
                     
                     // Update the display
                     if (AreaCalculator.isValidArea(samosaPixelArea)) {
@@ -406,7 +610,12 @@ public class SamosaViewerUI extends JFrame {
                         
                         statusLabel.setText("Area calculation completed successfully");
                         statusLabel.setForeground(new Color(0, 128, 0));
-                        showProcessedButton.setEnabled(true);
+                        imageView.setMask(samosaMask);
+                        setOverlayControlsEnabled(true);
+                        if (imageView.getSelectionMode() != SamosaImagePanel.SELECT_NONE) {
+                            prepareRegionIntegral();
+                        }
+                        updateRegionLabel(imageView.getSelectedRectangle(), imageView.getSelectedPolygon());
                         
                         // Show results in a dialog
                         showResultsDialog();
@@ -416,7 +625,7 @@ public class SamosaViewerUI extends JFrame {
                         realAreaLabel.setText("Real Area: No samosa detected");
                         statusLabel.setText("No samosa detected in the image");
                         statusLabel.setForeground(Color.ORANGE);
-                        showProcessedButton.setEnabled(false);
+                        setOverlayControlsEnabled(false);
                     }
                     
                 } catch (Exception e) {
@@ -425,21 +634,226 @@ public class SamosaViewerUI extends JFrame {
                     areaLabel.setText("Samosa Pixel Area: Error");
                     coverageLabel.setText("Samosa Coverage: Error");
                     realAreaLabel.setText("Real Area: Error");
-                    showProcessedButton.setEnabled(false);
+                    setOverlayControlsEnabled(false);
+                }
+            }
+        };
+        
+        analysisWorker = worker;
+        analysisProgressBar.setValue(0);
+        analysisProgressBar.setVisible(true);
+        cancelAnalysisButton.setVisible(true);
+        worker.execute();
+    }
+    
+    /**
+     * Build the summed-area table of the current mask in the background, unless it exists or is
+     * already being built. The table costs an int per pixel, so it is only built once a region
+     * selection mode is in use; if the image is too large for it, region mode is switched off.
+     */
+    private void prepareRegionIntegral() {
+        if (samosaMask == null || samosaIntegral != null || integralWorker != null) {
+            return;
+        }
+        if (!SamosaIntegralImage.isSupported(samosaMask.getWidth(), samosaMask.getHeight())) {
+            disableRegionMode("Region: Not available - the image is too large to measure regions");
+            return;
+        }
+        
+        final SamosaMask mask = samosaMask;
+        SwingWorker<SamosaIntegralImage, Void> worker = new SwingWorker<SamosaIntegralImage, Void>() {
+            @Override
+            protected SamosaIntegralImage doInBackground() throws Exception {
+                return SamosaIntegralImage.fromMask(mask);
+            }
+            
+            @Override
+            protected void done() {
+                // The mask was replaced while the table was being built
+                if (this != integralWorker) {
+                    return;
+                }
+                integralWorker = null;
+                try {
+                    samosaIntegral = get();
+                    updateRegionLabel(imageView.getSelectedRectangle(), imageView.getSelectedPolygon());
+                } catch (Exception e) {
+                    if (e.getCause() instanceof OutOfMemoryError) {
+                        disableRegionMode("Region: Not available - not enough memory to measure regions");
+                    } else {
+                        regionLabel.setText("Region: Error preparing region measurement: " + e.getMessage());
+                    }
                 }
             }
         };
         
+        integralWorker = worker;
         worker.execute();
     }
     
     /**
-     * Show the processed image with samosa detection highlights
+     * Forget the region table of the previous mask, including one still being built
+     */
+    private void discardRegionIntegral() {
+        if (integralWorker != null) {
+            integralWorker.cancel(false);
+            integralWorker = null;
+        }
+        samosaIntegral = null;
+    }
+    
+    /**
+     * Switch back to whole-image mode and keep region selection off for the current image
+     */
+    private void disableRegionMode(String reason) {
+        regionModeBox.setSelectedIndex(SamosaImagePanel.SELECT_NONE);
+        regionModeBox.setEnabled(false);
+        regionLabel.setText(reason);
+    }
+    
+    /**
+     * Cancel the running analysis, if any, and forget it so that it cannot publish results
+     */
+    private void cancelAnalysis() {
+        if (analysisWorker != null) {
+            analysisWorker.cancel(false);
+            analysisWorker = null;
+        }
+        analysisProgressBar.setVisible(false);
+        cancelAnalysisButton.setVisible(false);
+    }
+    
+    /**
+     * Let the user tune the samosa color ranges on a histogram of the image, then rescan with the applied ranges
+     */
+    private void tuneColors() {
+        if (currentImage == null) {
+            JOptionPane.showMessageDialog(this, 
+                "Please load an image first!", 
+                "No Image", 
+                JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        
+        // Profiles with HSV ranges or exclusions have no plain ranges to tune; tuning starts from the built-in ones
+        // and applying replaces the profile's rules, so make sure that is what the user wants
+        if (samosaLut.getRanges().isEmpty()) {
+            int choice = JOptionPane.showConfirmDialog(this,
+                "The classifier profile \"" + classifierName + "\" uses HSV ranges or exclusions, which cannot be tuned here.\n"
+                + "Tuning starts from the built-in RGB ranges, and applying them replaces the profile's rules\n"
+                + "until the viewer is restarted. Continue?",
+                "Replace Classifier Profile",
+                JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.WARNING_MESSAGE);
+            if (choice != JOptionPane.OK_OPTION) {
+                return;
+            }
+        }
+        
+        if (colorHistogram != null) {
+            showTuningDialog();
+            return;
+        }
+        
+        // One pass over the pixels, off the event thread; every slider move after this only sums histogram bins
+        final BufferedImage image = currentImage;
+        tuneColorsButton.setEnabled(false);
+        statusLabel.setText("Building color histogram...");
+        statusLabel.setForeground(Color.BLUE);
+        SwingWorker<SamosaColorHistogram, Void> worker = new SwingWorker<SamosaColorHistogram, Void>() {
+            @Override
+            protected SamosaColorHistogram doInBackground() throws Exception {
+                return SamosaColorHistogram.build(image);
+            }
+            
+            @Override
+            protected void done() {
+                // A different image was loaded meanwhile; its own histogram is built when it is tuned
+                if (image != currentImage) {
+                    return;
+                }
+                tuneColorsButton.setEnabled(true);
+                try {
+                    colorHistogram = get();
+                    statusLabel.setText("Color histogram ready");
+                    statusLabel.setForeground(new Color(0, 128, 0));
+                    showTuningDialog();
+                } catch (Exception e) {
+                    statusLabel.setText("Error building color histogram: " + e.getMessage());
+                    statusLabel.setForeground(Color.RED);
+                }
+            }
+        };
+        worker.execute();
+    }
+    
+    /**
+     * Show the tuning dialog on the current histogram, then build the tuned lookup table in the
+     * background and rescan with it
+     */
+    private void showTuningDialog() {
+        java.util.List<SamosaColorRange> currentRanges = samosaLut.getRanges().isEmpty()
+            ? ImageProcessor.DEFAULT_SAMOSA_RANGES : samosaLut.getRanges();
+        SamosaColorTuningDialog dialog = new SamosaColorTuningDialog(this, colorHistogram, currentRanges);
+        final java.util.List<SamosaColorRange> tunedRanges = dialog.showDialog();
+        if (tunedRanges == null) {
+            return;
+        }
+        
+        // Tuned tables are not shared, so each applied set of ranges is freed once it is replaced
+        final BufferedImage image = currentImage;
+        tuneColorsButton.setEnabled(false);
+        statusLabel.setText("Applying tuned color ranges...");
+        statusLabel.setForeground(Color.BLUE);
+        tuningWorker = new SwingWorker<SamosaColorLut, Void>() {
+            @Override
+            protected SamosaColorLut doInBackground() throws Exception {
+                return SamosaColorLut.createForRanges(tunedRanges);
+            }
+            
+            @Override
+            protected void done() {
+                // Ranges tuned later replace these, even if their table was ready first
+                if (this != tuningWorker) {
+                    return;
+                }
+                tuningWorker = null;
+                
+                // Loading another image meanwhile has already re-enabled the button for it
+                boolean sameImage = image == currentImage;
+                if (sameImage) {
+                    tuneColorsButton.setEnabled(true);
+                }
+                try {
+                    // Applied ranges carry over to every image loaded afterwards, so they are kept either way
+                    samosaLut = get();
+                    classifierName = "Tuned";
+                } catch (Exception e) {
+                    statusLabel.setText("Error applying tuned color ranges: " + e.getMessage());
+                    statusLabel.setForeground(Color.RED);
+                    return;
+                }
+                if (sameImage) {
+                    processImageAndCalculateArea();
+                } else {
+                    statusLabel.setText("Tuned color ranges applied; calculate the area to use them");
+                    statusLabel.setForeground(new Color(0, 128, 0));
+                }
+            }
+        };
+        tuningWorker.execute();
+    }
+    
+    /**
+     * Toggle the samosa detection highlights, composited over the displayed image at paint time
      */
     private void showProcessedImage() {
-        if (processedImage != null) {
-            displayImage(processedImage);
-            statusLabel.setText("Showing processed image with samosa detection highlights");
+        if (samosaMask != null) {
+            boolean showHighlights = !imageView.isOverlayVisible();
+            imageView.setOverlayVisible(showHighlights);
+            showProcessedButton.setText(showHighlights ? "Show Original Image" : "Show Processed Image");
+            statusLabel.setText(showHighlights ? "Showing processed image with samosa detection highlights"
+                                               : "Showing original image");
             statusLabel.setForeground(new Color(0, 128, 0));
         } else {
             JOptionPane.showMessageDialog(this,
@@ -449,6 +863,80 @@ public class SamosaViewerUI extends JFrame {
         }
     }
     
+    /**
+     * Let the user pick the color used to highlight samosa pixels
+     */
+    private void chooseOverlayColor() {
+        Color color = JColorChooser.showDialog(this, "Choose Highlight Color", imageView.getOverlayColor());
+        if (color != null) {
+            imageView.setOverlayColor(color);
+        }
+    }
+    
+    /**
+     * Enable or disable the controls that act on the samosa overlay
+     */
+    private void setOverlayControlsEnabled(boolean enabled) {
+        showProcessedButton.setEnabled(enabled);
+        overlayColorButton.setEnabled(enabled);
+        overlayOpacitySlider.setEnabled(enabled);
+        if (!enabled) {
+            showProcessedButton.setText("Show Processed Image");
+        }
+    }
+    
+    /**
+     * Show the samosa area and coverage of the selected region, read from the integral image
+     */
+    private void updateRegionLabel(Rectangle rectangle, Polygon polygon) {
+        if (rectangle == null && polygon == null) {
+            switch (imageView.getSelectionMode()) {
+                case SamosaImagePanel.SELECT_RECTANGLE:
+                    regionLabel.setText("Region: Drag a rectangle on the image (right-click to clear)");
+                    break;
+                case SamosaImagePanel.SELECT_POLYGON:
+                    regionLabel.setText("Region: Click polygon vertices, double-click to close (right-click to clear)");
+                    break;
+                default:
+                    regionLabel.setText("Region: Whole image");
+                    break;
+            }
+            return;
+        }
+        
+        if (samosaIntegral == null) {
+            if (samosaMask == null) {
+                regionLabel.setText("Region: Selected - calculate samosa area to measure it");
+            } else {
+                regionLabel.setText("Region: Selected - preparing region measurement...");
+            }
+            return;
+        }
+        
+        int regionPixels;
+        double regionCoverage;
+        if (rectangle != null) {
+            regionPixels = samosaIntegral.countInRect(rectangle);
+            regionCoverage = samosaIntegral.getCoverageInRect(rectangle.x, rectangle.y, rectangle.width, rectangle.height);
+        } else {
+            // One scan per mouse move: the coverage comes from the same totals as the count
+            long[] totals = samosaIntegral.measurePolygon(polygon);
+            regionPixels = (int) totals[0];
+            regionCoverage = SamosaIntegralImage.getCoverage(totals);
+        }
+        
+        String text = "Region: " + AreaCalculator.formatArea(regionPixels) + " samosa pixels, "
+                      + AreaCalculator.formatPercentage(regionCoverage) + " coverage";
+        if (isCalibrated && pixelsPerCm > 0) {
+            double realAreaCm2 = AreaCalculator.calculateEstimatedPhysicalArea(
+                regionPixels, currentImage.getWidth(), currentImage.getHeight(), pixelsPerCm);
+            if (AreaCalculator.isValidArea(realAreaCm2)) {
+                text += ", " + AreaCalculator.formatArea(realAreaCm2) + " cm²";
+            }
+        }
+        regionLabel.setText(text);
+    }
+    
     /**
      * Show results dialog with detailed information
      */
@@ -460,6 +948,26 @@ public class SamosaViewerUI extends JFrame {
         message.append("Samosa Pixel Area: ").append(AreaCalculator.formatArea(samosaPixelArea)).append(" pixels\n");
         message.append("Samosa Coverage: ").append(AreaCalculator.formatPercentage(samosaCoveragePercentage)).append("\n");
         
+        if (samosaShapes != null) {
+            message.append("Samosas Found: ").append(samosaShapes.size()).append("\n");
+            int listed = Math.min(samosaShapes.size(), 10);
+            for (int i = 0; i < listed; i++) {
+                SamosaShape shape = samosaShapes.get(i);
+                SamosaComponent component = shape.getComponent();
+                message.append("  #").append(i + 1).append(": ").append(component.getArea()).append(" pixels at (")
+                       .append(Math.round(component.getCentroidX())).append(", ")
+                       .append(Math.round(component.getCentroidY())).append("), triangle ")
+                       .append(AreaCalculator.formatArea(shape.getTriangleArea())).append(" pixels");
+                if (shape.isMisshapen(SamosaShape.DEFAULT_MIN_TRIANGLE_FILL)) {
+                    message.append(" - misshapen");
+                }
+                message.append("\n");
+            }
+            if (samosaShapes.size() > listed) {
+                message.append("  ... and ").append(samosaShapes.size() - listed).append(" more\n");
+            }
+        }
+        
         if (isCalibrated && pixelsPerCm > 0) {
             double realAreaCm2 = AreaCalculator.calculateEstimatedPhysicalArea(
                 samosaPixelArea, 
@@ -478,7 +986,11 @@ public class SamosaViewerUI extends JFrame {
         }
         
         message.append("\nDetection Method: Color-based analysis\n");
+        message.append("Classifier Profile: ").append(classifierName).append("\n");
         message.append("Detected brown/orange regions typical of samosas.\n\n");
+        if (SamosaMetrics.isEnabled()) {
+            message.append("Stage Timings:\n").append(SamosaMetrics.formatSummary()).append("\n");
+        }
         message.append("Note: This is an automated detection based on color analysis.");
         
         JOptionPane.showMessageDialog(this,
@@ -487,10 +999,30 @@ public class SamosaViewerUI extends JFrame {
             JOptionPane.INFORMATION_MESSAGE);
     }
     
+    /**
+     * Results of one background analysis, tagged with the image they belong to
+     */
+    private static final class AnalysisOutcome {
+        
+        final BufferedImage image;
+        final SamosaAnalysisResult result;
+        final java.util.List<SamosaShape> shapes;
+        
+        AnalysisOutcome(BufferedImage image, SamosaAnalysisResult result, java.util.List<SamosaShape> shapes) {
+            this.image = image;
+            this.result = result;
+            this.shapes = shapes;
+        }
+    }
+    
     /**
      * Main method to launch the application
      */
     public static void main(String[] args) {
+        // Load the active profile and compile its 2 MB lookup table here rather than on the
+        // Event Dispatch Thread; both are cached, so the viewer's own lookup returns at once
+        SamosaColorLut.getDefault();
+        
         // Launch the application on the Event Dispatch Thread
         SwingUtilities.invokeLater(new Runnable() {
             @Override
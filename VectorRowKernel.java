@@ -0,0 +1,121 @@
+import java.util.List;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD row kernel built on the jdk.incubator.vector API.
+ * Unpacks the red, green and blue lanes of packed pixels, evaluates every color range
+ * as masked vector comparisons and accumulates counts with lane-wise adds. The row tail
+ * that does not fill a whole vector goes through the lookup table.
+ * 
+ * Only instantiated reflectively by {@link SamosaRowKernel#forLut(SamosaColorLut)}, so the
+ * rest of the code keeps working on runtimes without the incubator module.
+ */
+final class VectorRowKernel implements SamosaRowKernel {
+    
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    
+    private final SamosaColorLut lut;
+    private final int rangeCount;
+    private final int[] redMin;
+    private final int[] redMax;
+    private final int[] greenMin;
+    private final int[] greenMax;
+    private final int[] blueMin;
+    private final int[] blueMax;
+    
+    /**
+     * Creates a vector kernel for the color ranges of a lookup table.
+     * 
+     * @param lut The color lookup table whose ranges are evaluated
+     */
+    VectorRowKernel(SamosaColorLut lut) {
+        this.lut = lut;
+        List<SamosaColorRange> ranges = lut.getRanges();
+        this.rangeCount = ranges.size();
+        this.redMin = new int[rangeCount];
+        this.redMax = new int[rangeCount];
+        this.greenMin = new int[rangeCount];
+        this.greenMax = new int[rangeCount];
+        this.blueMin = new int[rangeCount];
+        this.blueMax = new int[rangeCount];
+        for (int i = 0; i < rangeCount; i++) {
+            SamosaColorRange range = ranges.get(i);
+            redMin[i] = range.getRedMin();
+            redMax[i] = range.getRedMax();
+            greenMin[i] = range.getGreenMin();
+            greenMax[i] = range.getGreenMax();
+            blueMin[i] = range.getBlueMin();
+            blueMax[i] = range.getBlueMax();
+        }
+    }
+    
+    @Override
+    public int countRow(int[] rgbRow, int width) {
+        IntVector one = IntVector.broadcast(SPECIES, 1);
+        IntVector counts = IntVector.zero(SPECIES);
+        int upperBound = SPECIES.loopBound(width);
+        int x = 0;
+        
+        for (; x < upperBound; x += SPECIES.length()) {
+            IntVector rgb = IntVector.fromArray(SPECIES, rgbRow, x);
+            counts = counts.add(one, matches(rgb));
+        }
+        
+        int samosaPixelCount = counts.reduceLanes(VectorOperators.ADD);
+        for (; x < width; x++) {
+            if (lut.matches(rgbRow[x])) {
+                samosaPixelCount++;
+            }
+        }
+        return samosaPixelCount;
+    }
+    
+    @Override
+    public int markRow(int[] rgbRow, int width, long[] maskWords, int wordOffset) {
+        IntVector one = IntVector.broadcast(SPECIES, 1);
+        IntVector counts = IntVector.zero(SPECIES);
+        int upperBound = SPECIES.loopBound(width);
+        int x = 0;
+        
+        // The lane count divides 64, so a vector's mask bits never straddle two words
+        for (; x < upperBound; x += SPECIES.length()) {
+            IntVector rgb = IntVector.fromArray(SPECIES, rgbRow, x);
+            VectorMask<Integer> samosa = matches(rgb);
+            maskWords[wordOffset + (x >>> 6)] |= samosa.toLong() << x;
+            counts = counts.add(one, samosa);
+        }
+        
+        int samosaPixelCount = counts.reduceLanes(VectorOperators.ADD);
+        for (; x < width; x++) {
+            if (lut.matches(rgbRow[x])) {
+                maskWords[wordOffset + (x >>> 6)] |= 1L << x;
+                samosaPixelCount++;
+            }
+        }
+        return samosaPixelCount;
+    }
+    
+    /**
+     * Evaluates all color ranges for one vector of packed pixels.
+     */
+    private VectorMask<Integer> matches(IntVector rgb) {
+        IntVector red = rgb.lanewise(VectorOperators.LSHR, 16).and(0xFF);
+        IntVector green = rgb.lanewise(VectorOperators.LSHR, 8).and(0xFF);
+        IntVector blue = rgb.and(0xFF);
+        
+        VectorMask<Integer> samosa = SPECIES.maskAll(false);
+        for (int i = 0; i < rangeCount; i++) {
+            VectorMask<Integer> inRange = red.compare(VectorOperators.GT, redMin[i])
+                .and(red.compare(VectorOperators.LT, redMax[i]))
+                .and(green.compare(VectorOperators.GT, greenMin[i]))
+                .and(green.compare(VectorOperators.LT, greenMax[i]))
+                .and(blue.compare(VectorOperators.GT, blueMin[i]))
+                .and(blue.compare(VectorOperators.LT, blueMax[i]));
+            samosa = samosa.or(inRange);
+        }
+        return samosa;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+package samosascope.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end latency of the analysis entry points on an already decoded image:
+ * the single-pass analyzer used by the viewer, the highlighted-image path and the
+ * coverage calculation in AreaCalculator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class AnalyzeBenchmark {
+    
+    @Param({"640x480", "1920x1080", "4000x3000"})
+    public String size;
+    
+    private BufferedImage image;
+    private int parallelism;
+    private PrintStream standardOutput;
+    
+    @Setup(Level.Trial)
+    public void createInputs() {
+        image = SyntheticImages.create("3BYTE_BGR", size);
+        parallelism = Runtime.getRuntime().availableProcessors();
+        standardOutput = HotPaths.silenceStandardOutput();
+    }
+    
+    @TearDown(Level.Trial)
+    public void restoreOutput() {
+        System.setOut(standardOutput);
+    }
+    
+    @Benchmark
+    public Object analyze() {
+        return HotPaths.analyze(image, parallelism);
+    }
+    
+    @Benchmark
+    public Object analyzeSequential() {
+        return HotPaths.analyze(image, 1);
+    }
+    
+    @Benchmark
+    public BufferedImage processForSamosaDetection() {
+        return HotPaths.processForSamosaDetection(image, parallelism);
+    }
+    
+    @Benchmark
+    public double calculateSamosaCoveragePercentage() {
+        return HotPaths.calculateSamosaCoveragePercentage(image);
+    }
+}
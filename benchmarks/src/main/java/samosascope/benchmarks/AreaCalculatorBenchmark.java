@@ -0,0 +1,65 @@
+package samosascope.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The AreaCalculator formulas and formatters. Inputs are non-final fields so the JIT
+ * cannot fold the results into constants.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class AreaCalculatorBenchmark {
+    
+    public double base = 12.5;
+    public double height = 9.25;
+    public double radius = 4.75;
+    public int samosaPixels = 1234567;
+    public int imageWidth = 4000;
+    public int imageHeight = 3000;
+    public double pixelsPerCm = 37.8;
+    public double area = 98765.4321;
+    public double percentage = 10.2880;
+    
+    @Benchmark
+    public double calculateTriangleArea() {
+        return HotPaths.calculateTriangleArea(base, height);
+    }
+    
+    @Benchmark
+    public double calculateCircleArea() {
+        return HotPaths.calculateCircleArea(radius);
+    }
+    
+    @Benchmark
+    public double calculateSamosaCoveragePercentage() {
+        return HotPaths.calculateSamosaCoveragePercentage(samosaPixels, (long) imageWidth * imageHeight);
+    }
+    
+    @Benchmark
+    public double calculateEstimatedPhysicalArea() {
+        return HotPaths.calculateEstimatedPhysicalArea(samosaPixels, imageWidth, imageHeight, pixelsPerCm);
+    }
+    
+    @Benchmark
+    public String formatArea() {
+        return HotPaths.formatArea(area);
+    }
+    
+    @Benchmark
+    public String formatPercentage() {
+        return HotPaths.formatPercentage(percentage);
+    }
+}
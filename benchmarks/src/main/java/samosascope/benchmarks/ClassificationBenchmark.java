@@ -0,0 +1,81 @@
+package samosascope.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Classification throughput of ImageProcessor across image types and sizes.
+ * The "pixels" secondary result is the figure to compare: classified pixels per second.
+ * Runs with the SIMD kernel when the Vector API is available; see
+ * {@link ScalarClassificationBenchmark} for the lookup-table kernel and
+ * {@link ColorPredicateBenchmark} for the per-pixel predicate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class ClassificationBenchmark {
+    
+    @Param({"INT_RGB", "INT_ARGB", "3BYTE_BGR", "4BYTE_ABGR", "BYTE_GRAY"})
+    public String imageType;
+    
+    @Param({"640x480", "1920x1080", "4000x3000"})
+    public String size;
+    
+    private BufferedImage image;
+    private long pixelCount;
+    
+    /**
+     * Counts classified pixels so JMH reports them as a rate next to the operation rate.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class PixelCounter {
+        
+        public long pixels;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            pixels = 0;
+        }
+    }
+    
+    @Setup(Level.Trial)
+    public void createInputs() {
+        image = SyntheticImages.create(imageType, size);
+        pixelCount = (long) image.getWidth() * image.getHeight();
+    }
+    
+    @Benchmark
+    public int countSequential(PixelCounter counter) {
+        counter.pixels += pixelCount;
+        return HotPaths.calculateSamosaPixelArea(image, 1);
+    }
+    
+    @Benchmark
+    public int countParallel(PixelCounter counter) {
+        counter.pixels += pixelCount;
+        return HotPaths.calculateSamosaPixelArea(image, Runtime.getRuntime().availableProcessors());
+    }
+    
+    @Benchmark
+    public Object detectMaskSequential(PixelCounter counter) {
+        counter.pixels += pixelCount;
+        return HotPaths.detectSamosaMask(image, 1);
+    }
+}
@@ -0,0 +1,48 @@
+package samosascope.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The reference per-pixel predicate, ImageProcessor.isSamosaColor. It does not depend on image
+ * type or size, so it has no parameters and runs once rather than for every
+ * {@link ClassificationBenchmark} combination.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class ColorPredicateBenchmark {
+    
+    /** Number of colors in the predicate input. */
+    private static final int COLOR_COUNT = 1 << 16;
+    
+    private int[] colors;
+    
+    @Setup(Level.Trial)
+    public void createColors() {
+        colors = SyntheticImages.createColors(COLOR_COUNT);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(COLOR_COUNT)
+    public void isSamosaColor(Blackhole blackhole) {
+        for (int rgb : colors) {
+            blackhole.consume(HotPaths.isSamosaColor((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package samosascope.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of getting an image off disk: a full decode through ImageLoader versus the
+ * header-only dimension lookup in ImageProcessor. The synthetic image is encoded once
+ * per trial into a temporary file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class DecodeBenchmark {
+    
+    @Param({"png", "jpg", "bmp"})
+    public String format;
+    
+    @Param({"640x480", "1920x1080", "4000x3000"})
+    public String size;
+    
+    private File imageFile;
+    private String imagePath;
+    private PrintStream standardOutput;
+    
+    @Setup(Level.Trial)
+    public void writeImage() throws IOException {
+        BufferedImage image = SyntheticImages.create("3BYTE_BGR", size);
+        imageFile = Files.createTempFile("samosa-benchmark-", "." + format).toFile();
+        if (!ImageIO.write(image, format, imageFile)) {
+            throw new IOException("No ImageIO writer for " + format);
+        }
+        imagePath = imageFile.getPath();
+        standardOutput = HotPaths.silenceStandardOutput();
+    }
+    
+    @TearDown(Level.Trial)
+    public void deleteImage() {
+        System.setOut(standardOutput);
+        imageFile.delete();
+    }
+    
+    @Benchmark
+    public BufferedImage loadImageFromPath() {
+        return HotPaths.loadImageFromPath(imagePath);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int[] getPixelDimensions() throws IOException {
+        return HotPaths.getPixelDimensions(imageFile);
+    }
+}
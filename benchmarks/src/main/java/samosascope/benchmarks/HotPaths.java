@@ -0,0 +1,221 @@
+package samosascope.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+
+/**
+ * Bridge from the benchmark package to the SamosaScope classes.
+ * The application lives in the default package, which Java code in a named package cannot
+ * reference, and JMH refuses to generate benchmarks in the default package. Each entry point is
+ * therefore bound once to a static final MethodHandle; invokeExact on a constant handle is
+ * inlined by the JIT, so the benchmarks measure the target method rather than the bridge.
+ */
+final class HotPaths {
+    
+    private static final MethodHandle CALCULATE_SAMOSA_PIXEL_AREA = find("ImageProcessor", "calculateSamosaPixelArea",
+            MethodType.methodType(int.class, BufferedImage.class, int.class));
+    private static final MethodHandle DETECT_SAMOSA_MASK = find("ImageProcessor", "detectSamosaMask",
+            MethodType.methodType(Object.class, BufferedImage.class, int.class));
+    private static final MethodHandle PROCESS_FOR_SAMOSA_DETECTION = find("ImageProcessor", "processForSamosaDetection",
+            MethodType.methodType(BufferedImage.class, BufferedImage.class, int.class));
+    private static final MethodHandle IS_SAMOSA_COLOR = find("ImageProcessor", "isSamosaColor",
+            MethodType.methodType(boolean.class, int.class, int.class, int.class));
+    private static final MethodHandle GET_PIXEL_DIMENSIONS = find("ImageProcessor", "getPixelDimensions",
+            MethodType.methodType(int[].class, File.class));
+    private static final MethodHandle ANALYZE = find("SamosaAnalyzer", "analyze",
+            MethodType.methodType(Object.class, BufferedImage.class, int.class));
+    private static final MethodHandle LOAD_IMAGE_FROM_PATH = find("ImageLoader", "loadImageFromPath",
+            MethodType.methodType(BufferedImage.class, String.class));
+    private static final MethodHandle CALCULATE_TRIANGLE_AREA = find("AreaCalculator", "calculateTriangleArea",
+            MethodType.methodType(double.class, double.class, double.class));
+    private static final MethodHandle CALCULATE_CIRCLE_AREA = find("AreaCalculator", "calculateCircleArea",
+            MethodType.methodType(double.class, double.class));
+    private static final MethodHandle CALCULATE_COVERAGE_FROM_COUNTS = find("AreaCalculator", "calculateSamosaCoveragePercentage",
+            MethodType.methodType(double.class, long.class, long.class));
+    private static final MethodHandle CALCULATE_COVERAGE_FROM_IMAGE = find("AreaCalculator", "calculateSamosaCoveragePercentage",
+            MethodType.methodType(double.class, BufferedImage.class));
+    private static final MethodHandle CALCULATE_ESTIMATED_PHYSICAL_AREA = find("AreaCalculator", "calculateEstimatedPhysicalArea",
+            MethodType.methodType(double.class, int.class, int.class, int.class, double.class));
+    private static final MethodHandle FORMAT_AREA = find("AreaCalculator", "formatArea",
+            MethodType.methodType(String.class, double.class));
+    private static final MethodHandle FORMAT_PERCENTAGE = find("AreaCalculator", "formatPercentage",
+            MethodType.methodType(String.class, double.class));
+    
+    private HotPaths() {
+    }
+    
+    static int calculateSamosaPixelArea(BufferedImage image, int parallelism) {
+        try {
+            return (int) CALCULATE_SAMOSA_PIXEL_AREA.invokeExact(image, parallelism);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+    
+    static Object detectSamosaMask(BufferedImage image, int parallelism) {
+        try {
+            return (Object) DETECT_SAMOSA_MASK.invokeExact(image, parallelism);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+    
+    static BufferedImage processForSamosaDetection(BufferedImage image, int parallelism) {
+        try {
+            return (BufferedImage) PROCESS_FOR_SAMOSA_DETECTION.invokeExact(image, parallelism);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+    
+    static boolean isSamosaColor(int red, int green, int blue) {
+        try {
+            return (boolean) IS_SAMOSA_COLOR.invokeExact(red, green, blue);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+    
+    static int[] getPixelDimensions(File imageFile) throws IOException {
+        try {
+            return (int[]) GET_PIXEL_DIMENSIONS.invokeExact(imageFile);
+        } catch (IOException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+    
+    static Object analyze(BufferedImage image, int parallelism) {
+        try {
+            return (Object) ANALYZE.invokeExact(image, parallelism);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+    
+    static BufferedImage loadImageFromPath(String filePath) {
+        try {
+            return (BufferedImage) LOAD_IMAGE_FROM_PATH.invokeExact(filePath);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+    
+    static double calculateTriangleArea(double base, double height) {
+        try {
+            return (double) CALCULATE_TRIANGLE_AREA.invokeExact(base, height);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+    
+    static double calculateCircleArea(double radius) {
+        try {
+            return (double) CALCULATE_CIRCLE_AREA.invokeExact(radius);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+    
+    static double calculateSamosaCoveragePercentage(long samosaPixels, long totalPixels) {
+        try {
+            return (double) CALCULATE_COVERAGE_FROM_COUNTS.invokeExact(samosaPixels, totalPixels);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+    
+    static double calculateSamosaCoveragePercentage(BufferedImage image) {
+        try {
+            return (double) CALCULATE_COVERAGE_FROM_IMAGE.invokeExact(image);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+    
+    static double calculateEstimatedPhysicalArea(int samosaPixels, int imageWidth, int imageHeight, double pixelsPerCm) {
+        try {
+            return (double) CALCULATE_ESTIMATED_PHYSICAL_AREA.invokeExact(samosaPixels, imageWidth, imageHeight, pixelsPerCm);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+    
+    static String formatArea(double area) {
+        try {
+            return (String) FORMAT_AREA.invokeExact(area);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+    
+    static String formatPercentage(double percentage) {
+        try {
+            return (String) FORMAT_PERCENTAGE.invokeExact(percentage);
+        } catch (Throwable t) {
+            throw propagate(t);
+        }
+    }
+    
+    /**
+     * Replaces System.out with a stream that discards everything, so the progress messages
+     * printed by the application do not flood the benchmark output.
+     * 
+     * @return The previous System.out, to be restored after the trial
+     */
+    static PrintStream silenceStandardOutput() {
+        PrintStream previous = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+            
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+        return previous;
+    }
+    
+    /**
+     * Binds a static method of a default-package class, adapting reference return types that
+     * are themselves default-package classes to Object. Package-private methods are reachable
+     * because both sides live in the unnamed module.
+     */
+    private static MethodHandle find(String className, String methodName, MethodType type) {
+        try {
+            Class<?> owner = Class.forName(className);
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+            for (Method method : owner.getDeclaredMethods()) {
+                if (method.getName().equals(methodName) &&
+                    Arrays.equals(method.getParameterTypes(), type.parameterArray()) &&
+                    Modifier.isStatic(method.getModifiers())) {
+                    return lookup.unreflect(method).asType(type);
+                }
+            }
+            throw new NoSuchMethodException(className + "." + methodName + type);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    private static RuntimeException propagate(Throwable t) {
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new IllegalStateException(t);
+    }
+}
@@ -0,0 +1,11 @@
+package samosascope.benchmarks;
+
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * The classification benchmarks with the SIMD kernel disabled, so every image is classified
+ * by the scalar lookup-table kernel. Compare against {@link ClassificationBenchmark}.
+ */
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Dsamosa.vector=false"})
+public class ScalarClassificationBenchmark extends ClassificationBenchmark {
+}
@@ -0,0 +1,98 @@
+package samosascope.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Deterministic benchmark inputs. Every image is generated from a fixed seed, so results stay
+ * comparable between runs and machines: about a third of the pixels fall inside the samosa
+ * color ranges and the rest are uniformly random colors.
+ */
+final class SyntheticImages {
+    
+    /** Seed shared by every generated input. */
+    static final long SEED = 42L;
+    
+    /** Representative colors inside the brownish, golden brown and dark brown ranges. */
+    private static final int[] SAMOSA_COLORS = {0x9A5030, 0xB47828, 0x6E3C1E, 0xA86432, 0xC88C3C};
+    
+    private SyntheticImages() {
+    }
+    
+    /**
+     * Creates a synthetic image.
+     * 
+     * @param type The BufferedImage type constant
+     * @param width The width in pixels
+     * @param height The height in pixels
+     * @return The generated image
+     */
+    static BufferedImage create(int type, int width, int height) {
+        Random random = new Random(SEED);
+        BufferedImage image = new BufferedImage(width, height, type);
+        int[] row = new int[width];
+        
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (random.nextInt(3) == 0) {
+                    // Jitter the samosa colors a little so they do not collapse into a few cache lines
+                    int base = SAMOSA_COLORS[random.nextInt(SAMOSA_COLORS.length)];
+                    row[x] = 0xFF000000 | (base + random.nextInt(8) * 0x010101);
+                } else {
+                    row[x] = 0xFF000000 | random.nextInt(0x1000000);
+                }
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        
+        return image;
+    }
+    
+    /**
+     * Creates a synthetic image from benchmark parameter strings.
+     * 
+     * @param typeName One of INT_RGB, INT_ARGB, 3BYTE_BGR, 4BYTE_ABGR or BYTE_GRAY
+     * @param size The size as WIDTHxHEIGHT, for example 1920x1080
+     * @return The generated image
+     */
+    static BufferedImage create(String typeName, String size) {
+        int separator = size.indexOf('x');
+        int width = Integer.parseInt(size.substring(0, separator));
+        int height = Integer.parseInt(size.substring(separator + 1));
+        return create(parseType(typeName), width, height);
+    }
+    
+    /**
+     * Creates a fixed array of packed RGB colors for per-pixel predicate benchmarks.
+     * 
+     * @param count The number of colors
+     * @return The packed 0xRRGGBB colors
+     */
+    static int[] createColors(int count) {
+        Random random = new Random(SEED);
+        int[] colors = new int[count];
+        for (int i = 0; i < count; i++) {
+            colors[i] = random.nextInt(3) == 0
+                    ? SAMOSA_COLORS[random.nextInt(SAMOSA_COLORS.length)] + random.nextInt(8) * 0x010101
+                    : random.nextInt(0x1000000);
+        }
+        return colors;
+    }
+    
+    private static int parseType(String typeName) {
+        switch (typeName) {
+            case "INT_RGB":
+                return BufferedImage.TYPE_INT_RGB;
+            case "INT_ARGB":
+                return BufferedImage.TYPE_INT_ARGB;
+            case "3BYTE_BGR":
+                return BufferedImage.TYPE_3BYTE_BGR;
+            case "4BYTE_ABGR":
+                return BufferedImage.TYPE_4BYTE_ABGR;
+            case "BYTE_GRAY":
+                return BufferedImage.TYPE_BYTE_GRAY;
+            default:
+                throw new IllegalArgumentException("Unknown image type: " + typeName);
+        }
+    }
+}